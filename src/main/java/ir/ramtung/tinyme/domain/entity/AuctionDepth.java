@@ -0,0 +1,135 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.Arrays;
+
+class AuctionDepth {
+    static final int MAX_TICKS = 1 << 20;
+    private static final int MIN_TICKS = 64;
+
+    private final int tickSize;
+    private final int basePrice;
+    private long[] sells;
+    private long[] buys;
+    private long buyTotal;
+
+    private AuctionDepth(int tickSize, int basePrice, int capacity) {
+        this.tickSize = tickSize;
+        this.basePrice = basePrice;
+        sells = new long[capacity + 1];
+        buys = new long[capacity + 1];
+    }
+
+    // Covers the ticks from lowestPrice to highestPrice with as much room again around them; null if that is too wide.
+    static AuctionDepth covering(int tickSize, int lowestPrice, int highestPrice) {
+        int lowestTick = Math.floorDiv(lowestPrice, tickSize);
+        long span = (long) Math.floorDiv(highestPrice, tickSize) - lowestTick + 1;
+        int capacity = MIN_TICKS;
+        while (capacity < 2 * span && capacity < MAX_TICKS)
+            capacity <<= 1;
+        if (capacity < 2 * span)
+            return null;
+        int baseTick = Math.max(0, lowestTick - (int) ((capacity - span) / 2));
+        return new AuctionDepth(tickSize, baseTick * tickSize, capacity);
+    }
+
+    boolean add(Side side, int price, long quantity) {
+        int tick = tickOf(price);
+        if (tick < 0 || tick >= MAX_TICKS || priceOf(tick) != price || !ensureCapacity(tick + 1))
+            return false;
+        if (side == Side.SELL) {
+            add(sells, tick + 1, quantity);
+        } else {
+            add(buys, tick + 1, quantity);
+            buyTotal += quantity;
+        }
+        return true;
+    }
+
+    long sellsAtOrBelow(int price) {
+        int tick = tickOf(price);
+        return tick < 0 ? 0 : prefix(sells, tick + 1L);
+    }
+
+    long buysAtOrAbove(int price) {
+        int tickBelow = tickOf(price - 1);
+        return tickBelow < 0 ? buyTotal : buyTotal - prefix(buys, tickBelow + 1L);
+    }
+
+    int highestSellAtOrBelow(int price) {
+        long quantity = sellsAtOrBelow(price);
+        return quantity == 0 ? -1 : priceOf(lowestIndexReaching(sells, quantity) - 1);
+    }
+
+    int lowestBuyAtOrAbove(int price) {
+        long below = buyTotal - buysAtOrAbove(price);
+        return below == buyTotal ? -1 : priceOf(lowestIndexReaching(buys, below + 1) - 1);
+    }
+
+    int firstCrossingPrice() {
+        if (buyTotal == 0)
+            return 0;
+        int price = priceOf(lowestIndexReaching(sells, buys, buyTotal) - 1);
+        return sellsAtOrBelow(price) >= buysAtOrAbove(price) ? price : price + 1;
+    }
+
+    private int tickOf(int price) {
+        return Math.floorDiv(price - basePrice, tickSize);
+    }
+
+    private int priceOf(int tick) {
+        return basePrice + tick * tickSize;
+    }
+
+    private boolean ensureCapacity(int index) {
+        int capacity = sells.length - 1;
+        while (index > capacity) {
+            if (capacity >= MAX_TICKS)
+                return false;
+            sells = grow(sells, capacity);
+            buys = grow(buys, capacity);
+            capacity <<= 1;
+        }
+        return true;
+    }
+
+    private static long[] grow(long[] tree, int capacity) {
+        long[] grown = Arrays.copyOf(tree, 2 * capacity + 1);
+        grown[2 * capacity] = tree[capacity];
+        return grown;
+    }
+
+    private static void add(long[] tree, int index, long quantity) {
+        for (; index < tree.length; index += index & -index)
+            tree[index] += quantity;
+    }
+
+    private static long prefix(long[] tree, long end) {
+        long sum = 0;
+        for (int index = (int) Math.min(end, tree.length - 1); index > 0; index -= index & -index)
+            sum += tree[index];
+        return sum;
+    }
+
+    private static int lowestIndexReaching(long[] tree, long quantity) {
+        int index = 0;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            if (index + step < tree.length && tree[index + step] < quantity) {
+                index += step;
+                quantity -= tree[index];
+            }
+        }
+        return index + 1;
+    }
+
+    // Same search over the sum of two trees of equal size, i.e. over sells and buys at or below each tick.
+    private static int lowestIndexReaching(long[] first, long[] second, long quantity) {
+        int index = 0;
+        for (int step = Integer.highestOneBit(first.length - 1); step > 0; step >>= 1) {
+            if (index + step < first.length && first[index + step] + second[index + step] < quantity) {
+                index += step;
+                quantity -= first[index] + second[index];
+            }
+        }
+        return index + 1;
+    }
+}
@@ -0,0 +1,16 @@
+package ir.ramtung.tinyme.domain.entity;
+
+public record Bar(
+    long startMillis,
+    int open,
+    int high,
+    int low,
+    int close,
+    long volume,
+    long notional,
+    int tradeCount) {
+
+    public double vwap() {
+        return volume == 0 ? 0 : (double) notional / volume;
+    }
+}
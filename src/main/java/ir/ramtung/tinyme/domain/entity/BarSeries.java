@@ -0,0 +1,110 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BarSeries {
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int SLOT_SIZE = 56;
+    private static final int VERSION = 0;
+    private static final int START = 8;
+    private static final int VOLUME = 16;
+    private static final int NOTIONAL = 24;
+    private static final int OPEN = 32;
+    private static final int HIGH = 36;
+    private static final int LOW = 40;
+    private static final int CLOSE = 44;
+    private static final int TRADE_COUNT = 48;
+    private static final int READ_ATTEMPTS = 64;
+
+    private final long intervalMillis;
+    private final ByteBuffer slots;
+    private final int history;
+    private volatile long bars;
+    private long currentStart = Long.MIN_VALUE;
+
+    public BarSeries(long intervalMillis, int history) {
+        if (intervalMillis < 1 || history < 1)
+            throw new IllegalArgumentException("interval and history must be positive");
+        this.intervalMillis = intervalMillis;
+        this.history = history;
+        this.slots = ByteBuffer.allocateDirect(history * SLOT_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    public long intervalMillis() {
+        return intervalMillis;
+    }
+
+    // A trade stamped before the current bar (the clock stepped back) is folded into the current bar rather than reopening a past one.
+    public void add(long timeMillis, int price, int quantity) {
+        long start = Math.max(timeMillis - Math.floorMod(timeMillis, intervalMillis), currentStart);
+        long count = bars;
+        boolean opens = count == 0 || start > currentStart;
+        if (opens)
+            count++;
+        int base = (int) ((count - 1) % history) * SLOT_SIZE;
+        long version = (long) LONG.get(slots, base + VERSION);
+        LONG.setOpaque(slots, base + VERSION, version + 1);
+        VarHandle.storeStoreFence();
+        if (opens) {
+            currentStart = start;
+            slots.putLong(base + START, start);
+            slots.putLong(base + VOLUME, quantity);
+            slots.putLong(base + NOTIONAL, (long) price * quantity);
+            slots.putInt(base + OPEN, price);
+            slots.putInt(base + HIGH, price);
+            slots.putInt(base + LOW, price);
+            slots.putInt(base + TRADE_COUNT, 1);
+        } else {
+            slots.putLong(base + VOLUME, slots.getLong(base + VOLUME) + quantity);
+            slots.putLong(base + NOTIONAL, slots.getLong(base + NOTIONAL) + (long) price * quantity);
+            slots.putInt(base + HIGH, Math.max(slots.getInt(base + HIGH), price));
+            slots.putInt(base + LOW, Math.min(slots.getInt(base + LOW), price));
+            slots.putInt(base + TRADE_COUNT, slots.getInt(base + TRADE_COUNT) + 1);
+        }
+        slots.putInt(base + CLOSE, price);
+        LONG.setRelease(slots, base + VERSION, version + 2);
+        if (opens)
+            bars = count;
+    }
+
+    public Bar current() {
+        long count = bars;
+        return count == 0 ? null : read(count - 1);
+    }
+
+    public List<Bar> recent(int limit) {
+        long end = bars;
+        long start = Math.max(0, Math.max(end - history, end - limit));
+        List<Bar> recent = new ArrayList<>((int) (end - start));
+        for (long index = start; index < end; index++) {
+            Bar bar = read(index);
+            if (bar != null && bars - index <= history)
+                recent.add(bar);
+        }
+        return recent;
+    }
+
+    // Gives up with null, like a torn read in TradeRing, if the writer keeps the slot busy for too long.
+    private Bar read(long index) {
+        int base = (int) (index % history) * SLOT_SIZE;
+        for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+            long before = (long) LONG.getAcquire(slots, base + VERSION);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            Bar bar = new Bar(slots.getLong(base + START), slots.getInt(base + OPEN), slots.getInt(base + HIGH),
+                    slots.getInt(base + LOW), slots.getInt(base + CLOSE), slots.getLong(base + VOLUME),
+                    slots.getLong(base + NOTIONAL), slots.getInt(base + TRADE_COUNT));
+            VarHandle.loadLoadFence();
+            if ((long) LONG.getOpaque(slots, base + VERSION) == before)
+                return bar;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class BookPresence {
+    private final Map<Security, Integer> booksBySecurity = new ConcurrentHashMap<>();
+
+    void entered(Security security) {
+        if (security != null)
+            booksBySecurity.merge(security, 1, Integer::sum);
+    }
+
+    void left(Security security) {
+        if (security != null)
+            booksBySecurity.computeIfPresent(security, (key, books) -> books == 1 ? null : books - 1);
+    }
+
+    List<Security> securities() {
+        return new ArrayList<>(booksBySecurity.keySet());
+    }
+}
@@ -5,29 +5,86 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
-@Builder
 public class Broker {
     @Getter
     @EqualsAndHashCode.Include
-    private long brokerId;
-    @Getter
-    private String name;
+    private final long brokerId;
     @Getter
-    private long credit;
+    private final String name;
+    private final AtomicLong credit;
+    private final AtomicLong reservedCredit = new AtomicLong();
+    @ToString.Exclude
+    private final BookPresence bookPresence = new BookPresence();
+
+    @Builder
+    private Broker(long brokerId, String name, long credit) {
+        this.brokerId = brokerId;
+        this.name = name;
+        this.credit = new AtomicLong(credit);
+    }
+
+    public long getCredit() {
+        return credit.get();
+    }
 
     public void increaseCreditBy(long amount) {
         assert amount >= 0;
-        credit += amount;
+        credit.addAndGet(amount);
     }
 
     public void decreaseCreditBy(long amount) {
         assert amount >= 0;
-        credit -= amount;
+        credit.addAndGet(-amount);
+    }
+
+    public long getReservedCredit() {
+        return reservedCredit.get();
+    }
+
+    public boolean reserveCredit(long amount) {
+        assert amount >= 0;
+        if (CreditDecisions.isReplaying()) {
+            if (!CreditDecisions.decide(false))
+                return false;
+            credit.addAndGet(-amount);
+            reservedCredit.addAndGet(amount);
+            return true;
+        }
+        long current;
+        do {
+            current = credit.get();
+            if (current < amount)
+                return CreditDecisions.decide(false);
+        } while (!credit.compareAndSet(current, current - amount));
+        reservedCredit.addAndGet(amount);
+        return CreditDecisions.decide(true);
+    }
+
+    public void commitReservedCredit(long amount) {
+        assert amount >= 0;
+        reservedCredit.addAndGet(-amount);
+    }
+
+    public void releaseReservedCredit(long amount) {
+        assert amount >= 0;
+        reservedCredit.addAndGet(-amount);
+        credit.addAndGet(amount);
     }
 
     public boolean hasEnoughCredit(long amount) {
-        return credit >= amount;
+        return CreditDecisions.decide(credit.get() >= amount);
+    }
+
+    public List<Security> securitiesWithOrders() {
+        return bookPresence.securities();
+    }
+
+    BookPresence bookPresence() {
+        return bookPresence;
     }
 }
@@ -0,0 +1,67 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.BitSet;
+
+public final class CreditDecisions {
+    public static final CreditDecisions NONE = new CreditDecisions(new BitSet(), 0, false);
+    private static final ThreadLocal<CreditDecisions> active = new ThreadLocal<>();
+
+    private final BitSet outcomes;
+    private final boolean replaying;
+    private int count;
+    private int position;
+
+    private CreditDecisions(BitSet outcomes, int count, boolean replaying) {
+        this.outcomes = outcomes;
+        this.count = count;
+        this.replaying = replaying;
+    }
+
+    public static CreditDecisions recording() {
+        return new CreditDecisions(new BitSet(), 0, false);
+    }
+
+    public static CreditDecisions replaying(BitSet outcomes, int count) {
+        return new CreditDecisions(outcomes, count, true);
+    }
+
+    public static CreditDecisions active() {
+        return active.get();
+    }
+
+    public void activate() {
+        active.set(this);
+    }
+
+    public static void deactivate() {
+        active.remove();
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public BitSet outcomes() {
+        return outcomes;
+    }
+
+    static boolean decide(boolean liveOutcome) {
+        CreditDecisions decisions = active.get();
+        if (decisions == null)
+            return liveOutcome;
+        return decisions.next(liveOutcome);
+    }
+
+    static boolean isReplaying() {
+        CreditDecisions decisions = active.get();
+        return decisions != null && decisions.replaying && decisions.position < decisions.count;
+    }
+
+    private boolean next(boolean liveOutcome) {
+        if (!replaying) {
+            outcomes.set(count++, liveOutcome);
+            return liveOutcome;
+        }
+        return position < count ? outcomes.get(position++) : liveOutcome;
+    }
+}
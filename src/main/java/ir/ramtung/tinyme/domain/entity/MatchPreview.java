@@ -0,0 +1,8 @@
+package ir.ramtung.tinyme.domain.entity;
+
+public record MatchPreview(
+        int executedQuantity,
+        int remainingQuantity,
+        long tradedValue,
+        long tradedValueWithSameBroker) {
+}
@@ -30,6 +30,9 @@ public class Order {
     protected boolean isActive = false;
     @Builder.Default
     protected  int stopPrice  = 0;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    protected long heldCredit;
 
     public Order(EnterOrderRq enterOrderRq,Security security,Broker broker,Shareholder shareholder) {
         this.orderId = enterOrderRq.getOrderId();
@@ -60,6 +63,11 @@ public class Order {
         this.isActive = isActive;
     }
 
+    private Order(long orderId, Security security, Side side, int quantity, int price, Broker broker, Shareholder shareholder, LocalDateTime entryTime, OrderStatus status,int minimumExecutionQuantity,boolean isActive, int stopPrice, long heldCredit) {
+        this(orderId, security, side, quantity, price, broker, shareholder, entryTime, status, minimumExecutionQuantity, isActive, stopPrice);
+        this.heldCredit = heldCredit;
+    }
+
     public Order(long orderId, Security security, Side side, int quantity, int price, Broker broker, Shareholder shareholder, LocalDateTime entryTime, OrderStatus status) {
         this.orderId = orderId;
         this.security = security;
@@ -156,6 +164,21 @@ public class Order {
 
     }
 
+    public void holdCredit(long amount) {
+        heldCredit += amount;
+    }
+
+    public void useHeldCredit(long amount) {
+        assert amount <= heldCredit;
+        heldCredit -= amount;
+    }
+
+    public long releaseHeldCredit() {
+        long released = heldCredit;
+        heldCredit = 0;
+        return released;
+    }
+
     public long getValue() {
         return (long)price * quantity;
     }
@@ -1,126 +1,469 @@
 package ir.ramtung.tinyme.domain.entity;
 
-import lombok.Getter;
-import java.util.HashMap;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.LongStream;
+import java.util.function.IntConsumer;
 
-@Getter
 public class OrderBook {
-    private final LinkedList<Order> buyQueue;
-    private final LinkedList<Order> sellQueue;
+    private final TreeMap<Integer, PriceLevel> buyLevels;
+    private final TreeMap<Integer, PriceLevel> sellLevels;
+    private final PriceLevel deferredBuyQueue;
+    private final PriceLevel deferredSellQueue;
+    private final OrderIndex buyIndex;
+    private final OrderIndex sellIndex;
+    private final HashMap<Shareholder, SellQuantity> sellQuantityByShareholder;
+    private final OwnerIndex ownerIndex;
+    private long version;
+    private long openingPriceVersion = -1;
+    private long openingPriceLastTradeValue;
+    private long cachedOpeningPrice;
+    private long cachedTradableQuantity;
+    private int auctionTickSize;
+    private AuctionDepth auctionDepth;
+    private HashSet<Integer> changedBuyPrices;
+    private HashSet<Integer> changedSellPrices;
+    private TopOfBook topOfBook = TopOfBook.EMPTY;
+    private TopOfBook reportedTopOfBook = TopOfBook.EMPTY;
+    private boolean topOfBookStale;
     public OrderBook() {
-        buyQueue = new LinkedList<>();
-        sellQueue = new LinkedList<>();
+        buyLevels = new TreeMap<>(Comparator.reverseOrder());
+        sellLevels = new TreeMap<>();
+        deferredBuyQueue = new PriceLevel(0);
+        deferredSellQueue = new PriceLevel(0);
+        buyIndex = new OrderIndex();
+        sellIndex = new OrderIndex();
+        sellQuantityByShareholder = new HashMap<>();
+        ownerIndex = new OwnerIndex();
     }
     public void enqueue(Order order) {
-        List<Order> queue = getQueue(order.getSide());
-        ListIterator<Order> it = queue.listIterator();
-        while (it.hasNext()) {
-            if (order.queuesBefore(it.next())) {
-                it.previous();
-                break;
+        order.queue();
+        index(order, getOrCreateLevel(order).addLast(order));
+    }
+    public void bulkLoad(List<Order> orders) {
+        for (Side side : Side.values()) {
+            TreeMap<Integer, PriceLevel> levels = getLevels(side);
+            HashMap<Integer, PriceLevel> buckets = new HashMap<>(levels);
+            int count = 0;
+            for (Order order : orders)
+                if (order.getSide() == side)
+                    count++;
+            getIndex(side).ensureCapacity(getIndex(side).size() + count);
+            PriceLevel level = null;
+            for (Order order : orders) {
+                if (order.getSide() != side)
+                    continue;
+                if (level == null || level.getPrice() != order.getPrice())
+                    level = buckets.computeIfAbsent(order.getPrice(), PriceLevel::new);
+                index(order, level.addLast(order));
             }
+            levels.putAll(buckets);
+            levels.values().removeIf(PriceLevel::isEmpty);
         }
-        order.queue();
-        it.add(order);
+        topOfBookStale = true;
+    }
+    private TreeMap<Integer, PriceLevel> getLevels(Side side) {
+        return side == Side.BUY ? buyLevels : sellLevels;
+    }
+    private PriceLevel getDeferredQueue(Side side) {
+        return side == Side.BUY ? deferredBuyQueue : deferredSellQueue;
+    }
+    private OrderIndex getIndex(Side side) {
+        return side == Side.BUY ? buyIndex : sellIndex;
+    }
+    private PriceLevel getOrCreateLevel(Order order) {
+        return getLevels(order.getSide()).computeIfAbsent(order.getPrice(), PriceLevel::new);
+    }
+    private void index(Order order, PriceLevel.Node node) {
+        version++;
+        levelChanged(order.getSide(), node.getLevel());
+        depthChanged(order.getSide(), node.getLevel(), node.getQuantity());
+        PriceLevel.Node replaced = getIndex(order.getSide()).put(order.getOrderId(), node);
+        if (replaced != null)
+            unlink(order.getSide(), replaced);
+        ownerIndex.add(order);
+        if (order.getSide() == Side.SELL)
+            adjustSellQuantity(order.getShareholder(), node.getOrderTotalQuantity());
     }
-    private LinkedList<Order> getQueue(Side side) {
-        return side == Side.BUY ? buyQueue : sellQueue;
+    private void unlink(Side side, PriceLevel.Node node) {
+        version++;
+        if (side == Side.SELL)
+            adjustSellQuantity(node.getOrder().getShareholder(), -node.getOrderTotalQuantity());
+        ownerIndex.remove(node.getOrder());
+        PriceLevel level = node.getLevel();
+        levelChanged(side, level);
+        depthChanged(side, level, -node.getQuantity());
+        level.unlink(node);
+        if (level.isEmpty() && level != getDeferredQueue(side))
+            getLevels(side).remove(level.getPrice());
+    }
+    public OrderQueue getBuyQueue() {
+        return getQueue(Side.BUY);
+    }
+    public OrderQueue getSellQueue() {
+        return getQueue(Side.SELL);
+    }
+    private OrderQueue getQueue(Side side) {
+        return new OrderQueue(getLevels(side).values(), getDeferredQueue(side), getIndex(side));
+    }
+    public Order getFirst(Side side) {
+        var levels = getLevels(side);
+        if (levels.isEmpty())
+            return getDeferredQueue(side).getFirst();
+        return levels.get(levels.firstKey()).getFirst();
     }
     public Order findByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        for (Order order : queue) {
-            if (order.getOrderId() == orderId)
-                return order;
-        }
-        return null;
+        PriceLevel.Node node = getIndex(side).get(orderId);
+        return node == null ? null : node.getOrder();
     }
     public boolean removeByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        var it = queue.listIterator();
-        while (it.hasNext()) {
-            if (it.next().getOrderId() == orderId) {
-                it.remove();
-                return true;
-            }
+        PriceLevel.Node node = getIndex(side).remove(orderId);
+        if (node == null)
+            return false;
+        unlink(side, node);
+        return true;
+    }
+    public List<Order> removeOrders(Broker broker, Shareholder shareholder, Side side) {
+        List<Order> removed;
+        if (broker == null && shareholder == null) {
+            removed = new ArrayList<>();
+            for (Side each : Side.values())
+                if (side == null || side == each)
+                    removed.addAll(getQueue(each));
+        } else {
+            removed = ownerIndex.select(broker, shareholder, side);
         }
-        return false;
+        for (Order order : removed)
+            removeByOrderId(order.getSide(), order.getOrderId());
+        return removed;
+    }
+    public void decreaseQuantity(Order order, int amount) {
+        order.decreaseQuantity(amount);
+        refreshQuantity(order);
+    }
+    public void refreshQuantity(Order order) {
+        PriceLevel.Node node = getIndex(order.getSide()).get(order.getOrderId());
+        if (node == null || node.getOrder() != order)
+            return;
+        version++;
+        levelChanged(order.getSide(), node.getLevel());
+        int previousTotalQuantity = node.getOrderTotalQuantity();
+        int previousQuantity = node.getQuantity();
+        node.getLevel().refresh(node);
+        depthChanged(order.getSide(), node.getLevel(), node.getQuantity() - previousQuantity);
+        if (order.getSide() == Side.SELL)
+            adjustSellQuantity(order.getShareholder(), node.getOrderTotalQuantity() - previousTotalQuantity);
+    }
+    public void trackLevelChanges() {
+        if (changedBuyPrices != null)
+            return;
+        changedBuyPrices = new HashSet<>(buyLevels.keySet());
+        changedSellPrices = new HashSet<>(sellLevels.keySet());
+    }
+    private void levelChanged(Side side, PriceLevel level) {
+        if (level == getDeferredQueue(side))
+            return;
+        if (!topOfBookStale && isAtOrBetterThanBest(side, level.getPrice()))
+            topOfBookStale = true;
+        if (changedBuyPrices != null)
+            (side == Side.BUY ? changedBuyPrices : changedSellPrices).add(level.getPrice());
+    }
+    private void depthChanged(Side side, PriceLevel level, long quantity) {
+        if (auctionDepth == null || level == getDeferredQueue(side) || quantity == 0)
+            return;
+        if (!auctionDepth.add(side, level.getPrice(), quantity))
+            auctionDepth = null;
+    }
+    private boolean isAtOrBetterThanBest(Side side, int price) {
+        TreeMap<Integer, PriceLevel> levels = getLevels(side);
+        if (levels.isEmpty())
+            return true;
+        int best = levels.firstKey();
+        return side == Side.BUY ? price >= best : price <= best;
+    }
+    public TopOfBook getTopOfBook() {
+        if (topOfBookStale) {
+            Map.Entry<Integer, PriceLevel> bid = buyLevels.firstEntry();
+            Map.Entry<Integer, PriceLevel> ask = sellLevels.firstEntry();
+            TopOfBook current = new TopOfBook(
+                    bid == null ? 0 : bid.getKey(), bid == null ? 0 : bid.getValue().getTotalQuantity(), bid == null ? 0 : bid.getValue().size(),
+                    ask == null ? 0 : ask.getKey(), ask == null ? 0 : ask.getValue().getTotalQuantity(), ask == null ? 0 : ask.getValue().size());
+            if (!current.equals(topOfBook))
+                topOfBook = current;
+            topOfBookStale = false;
+        }
+        return topOfBook;
+    }
+    public TopOfBook takeTopOfBookChange() {
+        TopOfBook current = getTopOfBook();
+        if (current == reportedTopOfBook)
+            return null;
+        reportedTopOfBook = current;
+        return current;
+    }
+    public void drainChangedPrices(Side side, IntConsumer consumer) {
+        HashSet<Integer> changed = side == Side.BUY ? changedBuyPrices : changedSellPrices;
+        if (changed == null)
+            return;
+        for (int price : changed)
+            consumer.accept(price);
+        changed.clear();
+    }
+    public PriceLevel getLevel(Side side, int price) {
+        return getLevels(side).get(price);
+    }
+    private void adjustSellQuantity(Shareholder shareholder, int delta) {
+        sellQuantityByShareholder.computeIfAbsent(shareholder, key -> new SellQuantity()).value += delta;
     }
     public Order matchWithFirst(Order newOrder) {
-        var queue = getQueue(newOrder.getSide().opposite());
-        if (newOrder.matches(queue.getFirst()))
-            return queue.getFirst();
+        Order first = getFirst(newOrder.getSide().opposite());
+        if (newOrder.matches(first))
+            return first;
         else
             return null;
     }
     public void putBack(Order order) {
-        LinkedList<Order> queue = getQueue(order.getSide());
         order.queue();
-        queue.addFirst(order);
+        index(order, getOrCreateLevel(order).addFirst(order));
     }
     public void pushBack(Order order) {
-        LinkedList<Order> queue = getQueue(order.getSide());
         order.queue();
-        queue.add(order);
+        index(order, getDeferredQueue(order.getSide()).addLast(order));
+    }
+    public void requeueDeferredOrders() {
+        for (Side side : Side.values()) {
+            var deferredQueue = getDeferredQueue(side);
+            while (!deferredQueue.isEmpty()) {
+                Order order = deferredQueue.getFirst();
+                removeByOrderId(side, order.getOrderId());
+                enqueue(order);
+            }
+        }
     }
     public void restoreOrder(Order order) {
         removeByOrderId(order.getSide(), order.getOrderId());
         putBack(order);
     }
     public boolean hasOrderOfType(Side side) {
-        return !getQueue(side).isEmpty();
+        return !getIndex(side).isEmpty();
     }
     public void removeFirst(Side side) {
-        getQueue(side).removeFirst();
+        removeByOrderId(side, getFirst(side).getOrderId());
+    }
+    public MatchPreview previewMatch(Order newOrder) {
+        int remaining = newOrder.getQuantity();
+        long tradedValue = 0;
+        long tradedValueWithSameBroker = 0;
+        for (PriceLevel level : getLevels(newOrder.getSide().opposite()).values()) {
+            if (remaining == 0 || !newOrder.matches(level.getFirst()))
+                break;
+            LinkedList<IcebergOrder> replenished = null;
+            LinkedList<Integer> hiddenQuantities = null;
+            Iterator<Order> it = level.iterator();
+            while (remaining > 0 && (it.hasNext() || (replenished != null && !replenished.isEmpty()))) {
+                Order matchingOrder;
+                int displayed;
+                int hidden;
+                if (it.hasNext()) {
+                    matchingOrder = it.next();
+                    displayed = matchingOrder.getQuantity();
+                    hidden = matchingOrder.getTotalQuantity() - displayed;
+                } else {
+                    IcebergOrder icebergOrder = replenished.removeFirst();
+                    int rest = hiddenQuantities.removeFirst();
+                    matchingOrder = icebergOrder;
+                    displayed = Math.min(rest, icebergOrder.getPeakSize());
+                    hidden = rest - displayed;
+                }
+                int quantity = Math.min(remaining, displayed);
+                long value = (long) level.getPrice() * quantity;
+                remaining -= quantity;
+                tradedValue += value;
+                if (matchingOrder.getBroker() == newOrder.getBroker())
+                    tradedValueWithSameBroker += value;
+                if (quantity == displayed && hidden > 0 && matchingOrder instanceof IcebergOrder icebergOrder) {
+                    if (replenished == null) {
+                        replenished = new LinkedList<>();
+                        hiddenQuantities = new LinkedList<>();
+                    }
+                    replenished.addLast(icebergOrder);
+                    hiddenQuantities.addLast(hidden);
+                }
+            }
+        }
+        return new MatchPreview(newOrder.getQuantity() - remaining, remaining, tradedValue, tradedValueWithSameBroker);
+    }
+    public int size(Side side) {
+        return getIndex(side).size();
     }
     public int totalSellQuantityByShareholder(Shareholder shareholder) {
-        return sellQueue.stream()
-                .filter(order -> order.getShareholder().equals(shareholder))
-                .mapToInt(Order::getTotalQuantity)
-                .sum();
-    }
-    public long findQuantityOfAllTrades(long indicativeOpeningPrice){
-        LinkedList<Order> newSellQueue = sellQueue.stream()
-                .filter(order -> order.getPrice() <= indicativeOpeningPrice)
-                .collect(Collectors.toCollection(LinkedList::new));
-        LinkedList<Order> newBuyQueue = buyQueue.stream()
-                .filter(order -> order.getPrice() >= indicativeOpeningPrice)
-                .collect(Collectors.toCollection(LinkedList::new));
-
-        long sumSellQueue = newSellQueue.stream().mapToLong(Order::getQuantity).sum();
-        long sumBuyQueue = newBuyQueue.stream().mapToLong(Order::getQuantity).sum();
-        return Math.min(sumSellQueue, sumBuyQueue);
+        SellQuantity sellQuantity = sellQuantityByShareholder.get(shareholder);
+        int total = sellQuantity == null ? 0 : sellQuantity.value;
+        assert total == scanSellQuantityByShareholder(shareholder)
+                : "Sell quantity ledger is inconsistent for shareholder " + shareholder.getShareholderId();
+        return total;
+    }
+    int scanSellQuantityByShareholder(Shareholder shareholder) {
+        int total = 0;
+        for (Order order : getSellQueue()) {
+            if (order.getShareholder().equals(shareholder))
+                total += order.getTotalQuantity();
+        }
+        return total;
     }
     public Integer findMaximumPriceOfSellOrder(){
-        return sellQueue.stream().mapToInt(Order::getPrice).max().orElse(0);
+        return sellLevels.isEmpty() ? 0 : sellLevels.lastKey();
     }
     public long findMinimumPriceOfBuyOrder(){
-        return buyQueue.stream().mapToLong(Order::getPrice).min().orElse(0);
+        return buyLevels.isEmpty() ? 0 : buyLevels.lastKey();
     }
     public HashMap<String, Long> calcCurrentOpeningPriceAndMaxQuantity(long lastTradeValue){
-        Integer maxOfInterval = findMaximumPriceOfSellOrder();
+        if (openingPriceVersion != version || openingPriceLastTradeValue != lastTradeValue) {
+            if (getAuctionDepth() != null)
+                searchOpeningPrice(lastTradeValue);
+            else
+                sweepOpeningPrice(lastTradeValue);
+            assert openingPriceMatchesSweep(lastTradeValue) : "Auction depth index is inconsistent with the order book";
+            openingPriceVersion = version;
+            openingPriceLastTradeValue = lastTradeValue;
+        }
+        HashMap<String, Long> result = new HashMap<String, Long>();
+        result.put("price", cachedOpeningPrice);
+        result.put("quantity", cachedTradableQuantity);
+        return result;
+    }
+    public void openAuction(int tickSize) {
+        auctionTickSize = tickSize;
+    }
+    public void closeAuction() {
+        auctionTickSize = 0;
+        auctionDepth = null;
+    }
+    public boolean hasAuctionDepth() {
+        return auctionDepth != null;
+    }
+    private AuctionDepth getAuctionDepth() {
+        if (auctionDepth != null || auctionTickSize <= 0 || (buyLevels.isEmpty() && sellLevels.isEmpty()))
+            return auctionDepth;
+        int lowestPrice = Integer.MAX_VALUE;
+        int highestPrice = Integer.MIN_VALUE;
+        if (!buyLevels.isEmpty()) {
+            lowestPrice = buyLevels.lastKey();
+            highestPrice = buyLevels.firstKey();
+        }
+        if (!sellLevels.isEmpty()) {
+            lowestPrice = Math.min(lowestPrice, sellLevels.firstKey());
+            highestPrice = Math.max(highestPrice, sellLevels.lastKey());
+        }
+        AuctionDepth depth = AuctionDepth.covering(auctionTickSize, lowestPrice, highestPrice);
+        if (depth == null)
+            return null;
+        for (PriceLevel level : buyLevels.values())
+            if (!depth.add(Side.BUY, level.getPrice(), level.getTotalQuantity()))
+                return null;
+        for (PriceLevel level : sellLevels.values())
+            if (!depth.add(Side.SELL, level.getPrice(), level.getTotalQuantity()))
+                return null;
+        auctionDepth = depth;
+        return auctionDepth;
+    }
+    private void searchOpeningPrice(long lastTradeValue) {
+        int minOfInterval = (int) findMinimumPriceOfBuyOrder();
+        int maxOfInterval = findMaximumPriceOfSellOrder();
+        if (minOfInterval > maxOfInterval) {
+            cachedOpeningPrice = 0;
+            cachedTradableQuantity = 0;
+            return;
+        }
+        int crossing = auctionDepth.firstCrossingPrice();
+        long belowCrossing = crossing - 1 >= minOfInterval && crossing - 1 <= maxOfInterval
+                ? auctionDepth.sellsAtOrBelow(crossing - 1) : -1;
+        long atCrossing = crossing >= minOfInterval && crossing <= maxOfInterval
+                ? auctionDepth.buysAtOrAbove(crossing) : -1;
+        long maxQuantity;
+        int lowest;
+        int highest;
+        if (crossing <= minOfInterval) {
+            maxQuantity = auctionDepth.buysAtOrAbove(minOfInterval);
+            lowest = minOfInterval;
+            highest = lastPriceWithSameBuyDepth(minOfInterval, maxOfInterval);
+        } else if (crossing > maxOfInterval) {
+            maxQuantity = auctionDepth.sellsAtOrBelow(maxOfInterval);
+            lowest = firstPriceWithSameSellDepth(maxOfInterval, minOfInterval);
+            highest = maxOfInterval;
+        } else {
+            maxQuantity = Math.max(belowCrossing, atCrossing);
+            lowest = belowCrossing == maxQuantity ? firstPriceWithSameSellDepth(crossing - 1, minOfInterval) : crossing;
+            highest = atCrossing == maxQuantity ? lastPriceWithSameBuyDepth(crossing, maxOfInterval) : crossing - 1;
+        }
+        cachedOpeningPrice = Math.max(lowest, Math.min(highest, lastTradeValue));
+        cachedTradableQuantity = maxQuantity;
+    }
+    private int firstPriceWithSameSellDepth(int price, int lowerBound) {
+        return Math.max(lowerBound, auctionDepth.highestSellAtOrBelow(price));
+    }
+    private int lastPriceWithSameBuyDepth(int price, int upperBound) {
+        int nextBuy = auctionDepth.lowestBuyAtOrAbove(price);
+        return nextBuy < 0 ? upperBound : Math.min(upperBound, nextBuy);
+    }
+    private boolean openingPriceMatchesSweep(long lastTradeValue) {
+        long openingPrice = cachedOpeningPrice;
+        long tradableQuantity = cachedTradableQuantity;
+        sweepOpeningPrice(lastTradeValue);
+        boolean matches = openingPrice == cachedOpeningPrice && tradableQuantity == cachedTradableQuantity;
+        cachedOpeningPrice = openingPrice;
+        cachedTradableQuantity = tradableQuantity;
+        return matches;
+    }
+    private void sweepOpeningPrice(long lastTradeValue) {
         long minOfInterval = findMinimumPriceOfBuyOrder();
+        long maxOfInterval = findMaximumPriceOfSellOrder();
 
-        List<Map.Entry<Long, Long>> pairsOfIOPAndQuantity = LongStream.rangeClosed(minOfInterval, maxOfInterval)
-                .mapToObj(num -> Map.entry(findQuantityOfAllTrades(num), num))
-                .toList();
+        Iterator<PriceLevel> ascendingSellLevels = sellLevels.values().iterator();
+        Iterator<PriceLevel> ascendingBuyLevels = buyLevels.descendingMap().values().iterator();
+        PriceLevel nextSellLevel = ascendingSellLevels.hasNext() ? ascendingSellLevels.next() : null;
+        PriceLevel nextBuyLevel = ascendingBuyLevels.hasNext() ? ascendingBuyLevels.next() : null;
+        long sellDepth = 0;
+        long buyDepth = 0;
+        for (PriceLevel level : buyLevels.values())
+            buyDepth += level.getTotalQuantity();
 
-        Optional<Map.Entry<Long, Long>> priceAndMaxQuantityPair = pairsOfIOPAndQuantity.stream()
-                .max(Map.Entry.<Long, Long>comparingByKey().reversed()
-                        .thenComparingLong(entry -> Math.abs(entry.getValue() - lastTradeValue)).reversed()
-                        .thenComparingLong(entry -> entry.getValue()));
+        long openingPrice = 0;
+        long maxQuantity = 0;
+        boolean found = false;
+        long intervalStart = minOfInterval;
+        while (intervalStart <= maxOfInterval) {
+            while (nextSellLevel != null && nextSellLevel.getPrice() <= intervalStart) {
+                sellDepth += nextSellLevel.getTotalQuantity();
+                nextSellLevel = ascendingSellLevels.hasNext() ? ascendingSellLevels.next() : null;
+            }
+            while (nextBuyLevel != null && nextBuyLevel.getPrice() < intervalStart) {
+                buyDepth -= nextBuyLevel.getTotalQuantity();
+                nextBuyLevel = ascendingBuyLevels.hasNext() ? ascendingBuyLevels.next() : null;
+            }
+            long intervalEnd = maxOfInterval;
+            if (nextSellLevel != null)
+                intervalEnd = Math.min(intervalEnd, nextSellLevel.getPrice() - 1);
+            if (nextBuyLevel != null)
+                intervalEnd = Math.min(intervalEnd, nextBuyLevel.getPrice());
 
-        HashMap<String, Long> result = new HashMap<String, Long>();
-        if(priceAndMaxQuantityPair.isPresent()) {
-            result.put("price", (Long) priceAndMaxQuantityPair.get().getValue());
-            result.put("quantity", (Long) priceAndMaxQuantityPair.get().getKey());
-        }
-        else{
-            result.put("price", 0L);
-            result.put("quantity", 0L);
+            long quantity = Math.min(sellDepth, buyDepth);
+            long price = Math.max(intervalStart, Math.min(intervalEnd, lastTradeValue));
+            if (!found || isPreferredOpeningPrice(price, quantity, openingPrice, maxQuantity, lastTradeValue)) {
+                openingPrice = price;
+                maxQuantity = quantity;
+                found = true;
+            }
+            intervalStart = intervalEnd + 1;
         }
-        return result;
+        cachedOpeningPrice = openingPrice;
+        cachedTradableQuantity = maxQuantity;
+    }
+    private static boolean isPreferredOpeningPrice(long price, long quantity, long currentPrice, long currentQuantity, long lastTradeValue) {
+        if (quantity != currentQuantity)
+            return quantity > currentQuantity;
+        return Math.abs(price - lastTradeValue) < Math.abs(currentPrice - lastTradeValue);
+    }
+
+    private static class SellQuantity {
+        private int value;
     }
 }
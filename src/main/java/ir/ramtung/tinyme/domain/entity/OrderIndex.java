@@ -0,0 +1,99 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.Arrays;
+
+class OrderIndex {
+    private static final int INITIAL_CAPACITY = 16;
+    private long[] keys;
+    private PriceLevel.Node[] values;
+    private int size;
+
+    OrderIndex() {
+        keys = new long[INITIAL_CAPACITY];
+        values = new PriceLevel.Node[INITIAL_CAPACITY];
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != null && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    PriceLevel.Node get(long key) {
+        return values[slotOf(key)];
+    }
+
+    PriceLevel.Node put(long key, PriceLevel.Node value) {
+        int slot = slotOf(key);
+        PriceLevel.Node previous = values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        if (previous == null && ++size * 2 > keys.length)
+            resize(keys.length * 2);
+        return previous;
+    }
+
+    PriceLevel.Node remove(long key) {
+        int mask = keys.length - 1;
+        int slot = slotOf(key);
+        PriceLevel.Node removed = values[slot];
+        if (removed == null)
+            return null;
+        values[slot] = null;
+        size--;
+        int next = (slot + 1) & mask;
+        while (values[next] != null) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                values[next] = null;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return removed;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    void ensureCapacity(int expectedSize) {
+        int capacity = keys.length;
+        while (expectedSize * 2L > capacity)
+            capacity *= 2;
+        if (capacity != keys.length)
+            resize(capacity);
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        PriceLevel.Node[] oldValues = values;
+        keys = new long[capacity];
+        values = new PriceLevel.Node[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Read-only view of one side of an order book in priority order; it reflects later changes to the book.
+public class OrderQueue extends AbstractList<Order> {
+    private final Collection<PriceLevel> levels;
+    private final PriceLevel deferredQueue;
+    private final OrderIndex index;
+
+    OrderQueue(Collection<PriceLevel> levels, PriceLevel deferredQueue, OrderIndex index) {
+        this.levels = levels;
+        this.deferredQueue = deferredQueue;
+        this.index = index;
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public Order get(int position) {
+        if (position < 0 || position >= size())
+            throw new IndexOutOfBoundsException(position);
+        Iterator<Order> orders = iterator();
+        for (int skipped = 0; skipped < position; skipped++)
+            orders.next();
+        return orders.next();
+    }
+
+    public Order getFirst() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+        return iterator().next();
+    }
+
+    public Order getLast() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+        return get(size() - 1);
+    }
+
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<>() {
+            private final Iterator<PriceLevel> remainingLevels = levels.iterator();
+            private boolean deferredReached;
+            private Iterator<Order> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext()) {
+                    if (remainingLevels.hasNext())
+                        current = remainingLevels.next().iterator();
+                    else if (!deferredReached) {
+                        deferredReached = true;
+                        current = deferredQueue.iterator();
+                    } else
+                        return false;
+                }
+                return true;
+            }
+
+            @Override
+            public Order next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+    }
+}
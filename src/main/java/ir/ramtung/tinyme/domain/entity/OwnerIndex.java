@@ -0,0 +1,53 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.*;
+
+class OwnerIndex {
+    private final HashMap<Broker, Set<Order>> ordersByBroker = new HashMap<>();
+    private final HashMap<Shareholder, Set<Order>> ordersByShareholder = new HashMap<>();
+
+    private static Set<Order> newOrderSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    void add(Order order) {
+        Set<Order> brokerOrders = ordersByBroker.computeIfAbsent(order.getBroker(), key -> newOrderSet());
+        if (brokerOrders.add(order) && brokerOrders.size() == 1 && order.getBroker() != null)
+            order.getBroker().bookPresence().entered(order.getSecurity());
+        Set<Order> shareholderOrders = ordersByShareholder.computeIfAbsent(order.getShareholder(), key -> newOrderSet());
+        if (shareholderOrders.add(order) && shareholderOrders.size() == 1 && order.getShareholder() != null)
+            order.getShareholder().bookPresence().entered(order.getSecurity());
+    }
+
+    void remove(Order order) {
+        Set<Order> brokerOrders = ordersByBroker.get(order.getBroker());
+        if (brokerOrders != null && brokerOrders.remove(order) && brokerOrders.isEmpty() && order.getBroker() != null)
+            order.getBroker().bookPresence().left(order.getSecurity());
+        Set<Order> shareholderOrders = ordersByShareholder.get(order.getShareholder());
+        if (shareholderOrders != null && shareholderOrders.remove(order) && shareholderOrders.isEmpty() && order.getShareholder() != null)
+            order.getShareholder().bookPresence().left(order.getSecurity());
+    }
+
+    List<Order> select(Broker broker, Shareholder shareholder, Side side) {
+        Set<Order> candidates = broker == null ? null : ordersByBroker.getOrDefault(broker, Set.of());
+        if (shareholder != null) {
+            Set<Order> shareholderOrders = ordersByShareholder.getOrDefault(shareholder, Set.of());
+            if (candidates == null || shareholderOrders.size() < candidates.size())
+                candidates = shareholderOrders;
+        }
+        if (candidates == null)
+            throw new IllegalArgumentException("Either a broker or a shareholder is needed to select orders");
+        List<Order> selected = new ArrayList<>(candidates.size());
+        for (Order order : candidates) {
+            if (broker != null && !broker.equals(order.getBroker()))
+                continue;
+            if (shareholder != null && !shareholder.equals(order.getShareholder()))
+                continue;
+            if (side != null && order.getSide() != side)
+                continue;
+            selected.add(order);
+        }
+        selected.sort(Comparator.comparingLong(Order::getOrderId));
+        return selected;
+    }
+}
@@ -0,0 +1,138 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class PriceLevel implements Iterable<Order> {
+    @Getter
+    private final int price;
+    private Node head;
+    private Node tail;
+    private int size;
+    private long totalQuantity;
+
+    public PriceLevel(int price) {
+        this.price = price;
+    }
+
+    public Node addLast(Order order) {
+        Node node = new Node(order, this);
+        if (tail == null) {
+            head = tail = node;
+        } else {
+            node.prev = tail;
+            tail.next = node;
+            tail = node;
+        }
+        size++;
+        totalQuantity += node.quantity;
+        return node;
+    }
+
+    public Node addFirst(Order order) {
+        Node node = new Node(order, this);
+        if (head == null) {
+            head = tail = node;
+        } else {
+            node.next = head;
+            head.prev = node;
+            head = node;
+        }
+        size++;
+        totalQuantity += node.quantity;
+        return node;
+    }
+
+    public Order getFirst() {
+        if (head == null)
+            throw new NoSuchElementException();
+        return head.order;
+    }
+
+    public Order removeFirst() {
+        Order first = getFirst();
+        unlink(head);
+        return first;
+    }
+
+    public void unlink(Node node) {
+        if (node.level != this)
+            throw new IllegalArgumentException("Node does not belong to this price level");
+        if (node.prev == null)
+            head = node.next;
+        else
+            node.prev.next = node.next;
+        if (node.next == null)
+            tail = node.prev;
+        else
+            node.next.prev = node.prev;
+        node.prev = node.next = null;
+        node.level = null;
+        size--;
+        totalQuantity -= node.quantity;
+    }
+
+    public void refresh(Node node) {
+        if (node.level != this)
+            throw new IllegalArgumentException("Node does not belong to this price level");
+        int quantity = node.order.getQuantity();
+        totalQuantity += quantity - node.quantity;
+        node.quantity = quantity;
+        node.orderTotalQuantity = node.order.getTotalQuantity();
+    }
+
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<>() {
+            private Node current = head;
+
+            @Override
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            @Override
+            public Order next() {
+                if (current == null)
+                    throw new NoSuchElementException();
+                Order order = current.order;
+                current = current.next;
+                return order;
+            }
+        };
+    }
+
+    public static class Node {
+        @Getter
+        private final Order order;
+        @Getter
+        private PriceLevel level;
+        private Node prev;
+        private Node next;
+        @Getter
+        private int quantity;
+        @Getter
+        private int orderTotalQuantity;
+
+        private Node(Order order, PriceLevel level) {
+            this.order = order;
+            this.level = level;
+            this.quantity = order.getQuantity();
+            this.orderTotalQuantity = order.getTotalQuantity();
+        }
+    }
+}
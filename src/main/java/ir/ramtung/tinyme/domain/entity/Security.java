@@ -8,6 +8,7 @@ import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
 import ir.ramtung.tinyme.messaging.request.MatchingState;
 import ir.ramtung.tinyme.domain.service.Matcher;
 import ir.ramtung.tinyme.messaging.Message;
+import ir.ramtung.tinyme.metrics.jfr.AuctionOpenedEvent;
 import lombok.Builder;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +16,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Map;
 
 import static ir.ramtung.tinyme.domain.entity.Side.BUY;
 
@@ -34,7 +35,7 @@ public class Security {
     private OrderBook orderBook = new OrderBook();
 
     @Builder.Default
-    private LinkedList<Order>  stopOrderList = new LinkedList<>();
+    private StopOrderBook stopOrderBook = new StopOrderBook();
     @Builder.Default
     private HashMap<Long, EnterOrderRq> requestIDs = new HashMap<>();
     @Builder.Default
@@ -47,6 +48,10 @@ public class Security {
         latestPrice = trade.getPrice();
     }
 
+    public void setLatestPrice(int price){
+        latestPrice = price;
+    }
+
     private int calculateNewQuantityOfShareholder(EnterOrderRq enterOrderRq, Order order){
         return orderBook.totalSellQuantityByShareholder(order.getShareholder()) - order.getQuantity() + enterOrderRq.getQuantity();
     }
@@ -117,13 +122,12 @@ public class Security {
     }
 
     private MatchResult handleUnactivatedNewStopLimitOrder(EnterOrderRq enterOrderRq, Order order) {
-        if(buyerBrokerHasNotEnoughCredit(order)){
-            return MatchResult.notEnoughCredit();
-        }
         if(order.getSide() == BUY) {
-            order.getBroker().decreaseCreditBy(order.getValue());
+            if (!order.getBroker().reserveCredit(order.getValue()))
+                return MatchResult.notEnoughCredit();
+            order.getBroker().commitReservedCredit(order.getValue());
         }
-        stopOrderList.add(order);
+        stopOrderBook.add(order);
         requestIDs.put(order.getOrderId(), enterOrderRq);
         return MatchResult.stopLimitAccepted();
     }
@@ -143,7 +147,7 @@ public class Security {
         if(unactivatedStopOrder != null){
             if(matchingState == MatchingState.AUCTION)
                 throw new InvalidRequestException(Message.DELETE_UNACTIVATED_STOP_LIMIT_ORDER_NOT_ALLOWED_IN_AUCTION_MODE);
-            stopOrderList.remove(unactivatedStopOrder);
+            stopOrderBook.remove(unactivatedStopOrder);
             if(unactivatedStopOrder.getSide() == BUY){
                 unactivatedStopOrder.getBroker().increaseCreditBy(unactivatedStopOrder.getValue());
             }
@@ -158,12 +162,29 @@ public class Security {
         }
     }
 
+    public List<Order> cancelOrders(Broker broker, Shareholder shareholder, Side side) {
+        HashMap<Broker, Long> released = new HashMap<>();
+        List<Order> cancelled = cancelOrders(broker, shareholder, side, released);
+        released.forEach(Broker::increaseCreditBy);
+        return cancelled;
+    }
+
+    public List<Order> cancelOrders(Broker broker, Shareholder shareholder, Side side, Map<Broker, Long> released) {
+        List<Order> cancelled = orderBook.removeOrders(broker, shareholder, side);
+        if (matchingState != MatchingState.AUCTION)
+            cancelled.addAll(stopOrderBook.removeOrders(broker, shareholder, side));
+        for (Order order : cancelled)
+            if (order.getSide() == BUY)
+                released.merge(order.getBroker(), order.getValue(), Long::sum);
+        return cancelled;
+    }
+
     public Order findUnactivatedStopOrderById(long orderId) {
-        for (Order order : stopOrderList) {
-            if (order.getOrderId() == orderId)
-                return order;
-        }
-        return null;
+        return stopOrderBook.findByOrderId(orderId);
+    }
+
+    public LinkedList<Order> getStopOrderList() {
+        return stopOrderBook.getOrders();
     }
 
     public MatchResult updateUnactivatedStopLimitOrder(EnterOrderRq updateOrderRq, Matcher matcher) {
@@ -173,15 +194,17 @@ public class Security {
         }
         else{
             if(stopOrder.getSide() == Side.BUY){
-                stopOrder.getBroker().increaseCreditBy(stopOrder.getValue());
                 long valueOfTrade = (long) updateOrderRq.getPrice() *updateOrderRq.getQuantity();
-                if(!stopOrder.getBroker().hasEnoughCredit(valueOfTrade)) {
-                    stopOrder.getBroker().decreaseCreditBy((long) stopOrder.getPrice() *stopOrder.getQuantity());
-                    return MatchResult.notEnoughCredit();
+                long extraCredit = valueOfTrade - stopOrder.getValue();
+                if (extraCredit > 0) {
+                    if (!stopOrder.getBroker().reserveCredit(extraCredit))
+                        return MatchResult.notEnoughCredit();
+                    stopOrder.getBroker().commitReservedCredit(extraCredit);
                 }
-                stopOrder.getBroker().decreaseCreditBy(valueOfTrade);
+                else
+                    stopOrder.getBroker().increaseCreditBy(-extraCredit);
             }
-            stopOrder.updateFromRequest(updateOrderRq);
+            stopOrderBook.update(stopOrder, updateOrderRq);
             return MatchResult.executed(null, List.of());
         }
     }
@@ -211,15 +234,19 @@ public class Security {
                 || updateOrderRq.getPrice() != order.getPrice()
                 || ((order instanceof IcebergOrder icebergOrder) && (icebergOrder.getPeakSize() < updateOrderRq.getPeakSize()));
 
-        if (updateOrderRq.getSide() == BUY) {
-            order.getBroker().increaseCreditBy(order.getValue());
+        long originalValue = order.getValue();
+        long extraCredit = (long) updateOrderRq.getPrice() * updateOrderRq.getQuantity() - originalValue;
+        if (updateOrderRq.getSide() == BUY && extraCredit > 0 && matchingState == MatchingState.CONTINUOUS) {
+            if (!order.getBroker().reserveCredit(extraCredit))
+                return MatchResult.notEnoughCredit();
+            order.getBroker().commitReservedCredit(extraCredit);
         }
         Order originalOrder = order.snapshot();
         order.updateFromRequest(updateOrderRq);
         if (!losesPriority) {
-            if (updateOrderRq.getSide() == BUY) {
-                order.getBroker().decreaseCreditBy(order.getValue());
-            }
+            orderBook.refreshQuantity(order);
+            if (updateOrderRq.getSide() == BUY)
+                order.getBroker().increaseCreditBy(-extraCredit);
             return MatchResult.executed(null, List.of());
         }
         else
@@ -228,16 +255,20 @@ public class Security {
         orderBook.removeByOrderId(updateOrderRq.getSide(), updateOrderRq.getOrderId());
 
         if(matchingState == MatchingState.CONTINUOUS) {
+            if (updateOrderRq.getSide() == BUY)
+                order.holdCredit(originalValue + Math.max(extraCredit, 0));
             MatchResult matchResult = matcher.execute(order);
+            long unusedCredit = order.releaseHeldCredit();
             if (matchResult.outcome() != MatchingOutcome.EXECUTED) {
                 orderBook.enqueue(originalOrder);
-                if (updateOrderRq.getSide() == BUY) {
-                    originalOrder.getBroker().decreaseCreditBy(originalOrder.getValue());
-                }
+                unusedCredit -= updateOrderRq.getSide() == BUY ? originalValue : 0;
             }
+            order.getBroker().increaseCreditBy(unusedCredit);
             return matchResult;
         }
         else{
+            if (updateOrderRq.getSide() == BUY)
+                order.getBroker().increaseCreditBy(originalValue);
             orderBook.enqueue(order);
             HashMap<String, Long> openingPriceAndQuantity = orderBook.calcCurrentOpeningPriceAndMaxQuantity(latestPrice);
             return MatchResult.queuedForAuction(openingPriceAndQuantity.get("price").intValue());
@@ -258,11 +289,6 @@ public class Security {
         }
     }
 
-    private void deleteActivatedOrder(){
-        Stream<Order> mustBeDelete =  stopOrderList.stream().filter(Order::isActive);
-        stopOrderList.removeAll(mustBeDelete.toList());
-    }
-
     private boolean mustBeActivated(Order order){
         if(!order.isActive() &&
                 ((order.getStopPrice() <= latestPrice && order.getSide() == BUY)
@@ -277,25 +303,11 @@ public class Security {
 
     public LinkedList<OrderActivatedEvent> activateStopOrders(){
         LinkedList<OrderActivatedEvent> activatedOrdersRecord = new LinkedList<>();
-        LinkedList<Order> sortedActiveOrders = new LinkedList<>();
-        for(Order order : stopOrderList){
-            if (mustBeActivated(order)){
-                sortedActiveOrders.add(order);
-                order.isActive = true;
-                activatedOrdersRecord.add(new OrderActivatedEvent(requestIDs.get(order.getOrderId()).getRequestId(),order.getOrderId()));
-            }
-
-        }
-        if (!sortedActiveOrders.isEmpty()) {
-            Side side = sortedActiveOrders.get(0).getSide();
-            if (side == BUY)
-                sortedActiveOrders.sort(Order.buyPriceComparator);
-            else
-                sortedActiveOrders.sort(Order.sellPriceComparator);
-
-            activeStopOrderList.addAll(sortedActiveOrders);
+        for (Order order : stopOrderBook.removeTriggered(latestPrice)) {
+            order.isActive = true;
+            activatedOrdersRecord.add(new OrderActivatedEvent(requestIDs.get(order.getOrderId()).getRequestId(),order.getOrderId()));
+            activeStopOrderList.add(order);
         }
-        deleteActivatedOrder();
         return activatedOrdersRecord;
     }
 
@@ -319,11 +331,27 @@ public class Security {
 
     public void changeSecurityStatusTo(MatchingState newMatchingState){
         matchingState = newMatchingState;
+        if (matchingState == MatchingState.AUCTION)
+            orderBook.openAuction(tickSize);
+        else
+            orderBook.closeAuction();
     }
 
     public MatchResult executeOpeningProcess(Matcher matcher){
+        AuctionOpenedEvent opened = new AuctionOpenedEvent();
+        opened.begin();
+        long openingPriceStart = System.nanoTime();
         int updatedOpeningPrice = orderBook.calcCurrentOpeningPriceAndMaxQuantity(latestPrice).get("price").intValue();
+        long openingPriceNanos = System.nanoTime() - openingPriceStart;
         MatchResult matchResult = matcher.auctionMatch(orderBook,updatedOpeningPrice);
+        if (opened.shouldCommit()) {
+            opened.securityIsin = isin;
+            opened.openingPrice = updatedOpeningPrice;
+            opened.openingPriceNanos = openingPriceNanos;
+            opened.tradeCount = matchResult.trades().size();
+            opened.tradedQuantity = matchResult.trades().stream().mapToLong(Trade::getQuantity).sum();
+            opened.commit();
+        }
         return matchResult;
     }
 
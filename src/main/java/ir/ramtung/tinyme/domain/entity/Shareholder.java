@@ -5,8 +5,9 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -19,11 +20,14 @@ public class Shareholder {
     private String name;
     @Getter
     @Builder.Default
-    private Map<Security, Integer> positions = new HashMap<>();
+    private Map<Security, Integer> positions = new ConcurrentHashMap<>();
+    @ToString.Exclude
+    @Builder.Default
+    private final BookPresence bookPresence = new BookPresence();
 
     public void incPosition(Security security, int amount) {
         assert amount >= 0;
-        positions.put(security, positions.getOrDefault(security, 0) + amount);
+        positions.merge(security, amount, Integer::sum);
     }
 
     public void decPosition(Security security, int amount) {
@@ -36,4 +40,12 @@ public class Shareholder {
     public boolean hasEnoughPositionsOn(Security security, int position) {
         return positions.getOrDefault(security, 0) >= position;
     }
+
+    public List<Security> securitiesWithOrders() {
+        return bookPresence.securities();
+    }
+
+    BookPresence bookPresence() {
+        return bookPresence;
+    }
 }
@@ -0,0 +1,102 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+
+import java.util.*;
+
+public class StopOrderBook {
+    private final TreeSet<Order> buyStopOrders;
+    private final TreeSet<Order> sellStopOrders;
+    private final HashMap<Long, Order> orderById;
+    private final OwnerIndex ownerIndex;
+
+    public StopOrderBook() {
+        buyStopOrders = new TreeSet<>(Order.buyPriceComparator.thenComparingLong(Order::getOrderId));
+        sellStopOrders = new TreeSet<>(Order.sellPriceComparator.thenComparingLong(Order::getOrderId));
+        orderById = new HashMap<>();
+        ownerIndex = new OwnerIndex();
+    }
+
+    private TreeSet<Order> getStopOrders(Side side) {
+        return side == Side.BUY ? buyStopOrders : sellStopOrders;
+    }
+
+    public void add(Order order) {
+        getStopOrders(order.getSide()).add(order);
+        orderById.put(order.getOrderId(), order);
+        ownerIndex.add(order);
+    }
+
+    public Order findByOrderId(long orderId) {
+        return orderById.get(orderId);
+    }
+
+    public boolean remove(Order order) {
+        if (orderById.remove(order.getOrderId()) == null)
+            return false;
+        getStopOrders(order.getSide()).remove(order);
+        ownerIndex.remove(order);
+        return true;
+    }
+
+    public List<Order> removeOrders(Broker broker, Shareholder shareholder, Side side) {
+        List<Order> removed;
+        if (broker == null && shareholder == null) {
+            removed = new ArrayList<>();
+            for (Side each : Side.values())
+                if (side == null || side == each)
+                    removed.addAll(getStopOrders(each));
+        } else {
+            removed = ownerIndex.select(broker, shareholder, side);
+        }
+        for (Order order : removed)
+            remove(order);
+        return removed;
+    }
+
+    public void update(Order order, EnterOrderRq updateOrderRq) {
+        TreeSet<Order> stopOrders = getStopOrders(order.getSide());
+        stopOrders.remove(order);
+        order.updateFromRequest(updateOrderRq);
+        stopOrders.add(order);
+    }
+
+    public List<Order> removeTriggered(int latestPrice) {
+        List<Order> triggered = new LinkedList<>();
+        Iterator<Order> buyIt = buyStopOrders.iterator();
+        while (buyIt.hasNext()) {
+            Order order = buyIt.next();
+            if (order.getStopPrice() > latestPrice)
+                break;
+            buyIt.remove();
+            orderById.remove(order.getOrderId());
+            ownerIndex.remove(order);
+            triggered.add(order);
+        }
+        Iterator<Order> sellIt = sellStopOrders.iterator();
+        while (sellIt.hasNext()) {
+            Order order = sellIt.next();
+            if (order.getStopPrice() < latestPrice)
+                break;
+            sellIt.remove();
+            orderById.remove(order.getOrderId());
+            ownerIndex.remove(order);
+            triggered.add(order);
+        }
+        return triggered;
+    }
+
+    public LinkedList<Order> getOrders() {
+        LinkedList<Order> orders = new LinkedList<>(buyStopOrders);
+        orders.addAll(sellStopOrders);
+        return orders;
+    }
+
+    public int size() {
+        return orderById.size();
+    }
+
+    public boolean isEmpty() {
+        return orderById.isEmpty();
+    }
+}
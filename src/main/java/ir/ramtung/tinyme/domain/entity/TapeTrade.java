@@ -0,0 +1,10 @@
+package ir.ramtung.tinyme.domain.entity;
+
+public record TapeTrade(
+    long sequence,
+    long timeMillis,
+    int price,
+    int quantity,
+    long buyOrderId,
+    long sellOrderId) {
+}
@@ -0,0 +1,20 @@
+package ir.ramtung.tinyme.domain.entity;
+
+public record TopOfBook(
+    int bidPrice,
+    long bidQuantity,
+    int bidOrders,
+    int askPrice,
+    long askQuantity,
+    int askOrders) {
+
+    public static final TopOfBook EMPTY = new TopOfBook(0, 0, 0, 0, 0, 0);
+
+    public boolean hasBid() {
+        return bidOrders > 0;
+    }
+
+    public boolean hasAsk() {
+        return askOrders > 0;
+    }
+}
@@ -0,0 +1,114 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.Arrays;
+
+public class TradeBuffer {
+    private int[] prices;
+    private int[] quantities;
+    private long[] buyOrderIds;
+    private long[] sellOrderIds;
+    private Shareholder[] buyShareholders;
+    private Shareholder[] sellShareholders;
+    private Order[] matchingOrders;
+    private int[] matchingTotalQuantities;
+    private int size;
+
+    public TradeBuffer(int capacity) {
+        prices = new int[capacity];
+        quantities = new int[capacity];
+        buyOrderIds = new long[capacity];
+        sellOrderIds = new long[capacity];
+        buyShareholders = new Shareholder[capacity];
+        sellShareholders = new Shareholder[capacity];
+        matchingOrders = new Order[capacity];
+        matchingTotalQuantities = new int[capacity];
+    }
+
+    public void add(int price, int quantity, Order newOrder, Order matchingOrder) {
+        if (size == prices.length)
+            grow();
+        Order buy = newOrder.getSide() == Side.BUY ? newOrder : matchingOrder;
+        Order sell = newOrder.getSide() == Side.BUY ? matchingOrder : newOrder;
+        prices[size] = price;
+        quantities[size] = quantity;
+        buyOrderIds[size] = buy.getOrderId();
+        sellOrderIds[size] = sell.getOrderId();
+        buyShareholders[size] = buy.getShareholder();
+        sellShareholders[size] = sell.getShareholder();
+        matchingOrders[size] = matchingOrder;
+        matchingTotalQuantities[size] = matchingOrder.getTotalQuantity();
+        size++;
+    }
+
+    private void grow() {
+        int capacity = Math.max(1, prices.length * 2);
+        prices = Arrays.copyOf(prices, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        buyOrderIds = Arrays.copyOf(buyOrderIds, capacity);
+        sellOrderIds = Arrays.copyOf(sellOrderIds, capacity);
+        buyShareholders = Arrays.copyOf(buyShareholders, capacity);
+        sellShareholders = Arrays.copyOf(sellShareholders, capacity);
+        matchingOrders = Arrays.copyOf(matchingOrders, capacity);
+        matchingTotalQuantities = Arrays.copyOf(matchingTotalQuantities, capacity);
+    }
+
+    public void clear() {
+        Arrays.fill(buyShareholders, 0, size, null);
+        Arrays.fill(sellShareholders, 0, size, null);
+        Arrays.fill(matchingOrders, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getPrice(int index) {
+        return prices[index];
+    }
+
+    public int getQuantity(int index) {
+        return quantities[index];
+    }
+
+    public long getTradedValue(int index) {
+        return (long) prices[index] * quantities[index];
+    }
+
+    public long getTotalTradedValue() {
+        long value = 0;
+        for (int i = 0; i < size; i++)
+            value += getTradedValue(i);
+        return value;
+    }
+
+    public Broker getMatchingBroker(int index) {
+        return matchingOrders[index].getBroker();
+    }
+
+    // Puts the matched orders back at the front of their levels as they were before each fill, newest fill first.
+    public void restoreMatchedOrders(OrderBook orderBook) {
+        for (int i = size - 1; i >= 0; i--)
+            orderBook.restoreOrder(matchingOrders[i].snapshotWithQuantity(matchingTotalQuantities[i]));
+    }
+
+    public long getBuyOrderId(int index) {
+        return buyOrderIds[index];
+    }
+
+    public long getSellOrderId(int index) {
+        return sellOrderIds[index];
+    }
+
+    public Shareholder getBuyShareholder(int index) {
+        return buyShareholders[index];
+    }
+
+    public Shareholder getSellShareholder(int index) {
+        return sellShareholders[index];
+    }
+}
@@ -0,0 +1,80 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TradeRing {
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int SLOT_SIZE = 48;
+    private static final int VERSION = 0;
+    private static final int SEQUENCE = 8;
+    private static final int TIME = 16;
+    private static final int BUY_ORDER_ID = 24;
+    private static final int SELL_ORDER_ID = 32;
+    private static final int PRICE = 40;
+    private static final int QUANTITY = 44;
+
+    private final ByteBuffer slots;
+    private final int capacity;
+    private volatile long written;
+
+    public TradeRing(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long written() {
+        return written;
+    }
+
+    public void add(long timeMillis, int price, int quantity, long buyOrderId, long sellOrderId) {
+        long sequence = written;
+        int base = (int) (sequence % capacity) * SLOT_SIZE;
+        long version = (long) LONG.get(slots, base + VERSION);
+        LONG.setOpaque(slots, base + VERSION, version + 1);
+        VarHandle.storeStoreFence();
+        slots.putLong(base + SEQUENCE, sequence);
+        slots.putLong(base + TIME, timeMillis);
+        slots.putLong(base + BUY_ORDER_ID, buyOrderId);
+        slots.putLong(base + SELL_ORDER_ID, sellOrderId);
+        slots.putInt(base + PRICE, price);
+        slots.putInt(base + QUANTITY, quantity);
+        LONG.setRelease(slots, base + VERSION, version + 2);
+        written = sequence + 1;
+    }
+
+    public List<TapeTrade> recent(int limit) {
+        long end = written;
+        long start = Math.max(0, Math.max(end - capacity, end - limit));
+        List<TapeTrade> trades = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            TapeTrade trade = read(sequence);
+            if (trade != null)
+                trades.add(trade);
+        }
+        return trades;
+    }
+
+    private TapeTrade read(long sequence) {
+        int base = (int) (sequence % capacity) * SLOT_SIZE;
+        long before = (long) LONG.getAcquire(slots, base + VERSION);
+        if ((before & 1) != 0)
+            return null;
+        TapeTrade trade = new TapeTrade(slots.getLong(base + SEQUENCE), slots.getLong(base + TIME),
+                slots.getInt(base + PRICE), slots.getInt(base + QUANTITY),
+                slots.getLong(base + BUY_ORDER_ID), slots.getLong(base + SELL_ORDER_ID));
+        VarHandle.loadLoadFence();
+        long after = (long) LONG.getOpaque(slots, base + VERSION);
+        return before == after && trade.sequence() == sequence ? trade : null;
+    }
+}
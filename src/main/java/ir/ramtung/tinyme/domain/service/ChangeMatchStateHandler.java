@@ -1,10 +1,12 @@
 package ir.ramtung.tinyme.domain.service;
 
+import ir.ramtung.tinyme.domain.entity.CreditDecisions;
 import ir.ramtung.tinyme.domain.entity.MatchResult;
 import ir.ramtung.tinyme.domain.entity.OrderBook;
 import ir.ramtung.tinyme.domain.entity.Security;
 import ir.ramtung.tinyme.domain.entity.Trade;
 import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.MarketDataPublisher;
 import ir.ramtung.tinyme.messaging.event.OpeningPriceEvent;
 import ir.ramtung.tinyme.messaging.event.OrderActivatedEvent;
 import ir.ramtung.tinyme.messaging.event.SecurityStateChangedEvent;
@@ -12,7 +14,10 @@ import ir.ramtung.tinyme.messaging.event.TradeEvent;
 import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
 import ir.ramtung.tinyme.messaging.request.MatchingState;
+import ir.ramtung.tinyme.metrics.jfr.BookSizeEvent;
+import ir.ramtung.tinyme.metrics.jfr.StopOrderCascadeEvent;
 import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.RequestJournal;
 import ir.ramtung.tinyme.repository.SecurityRepository;
 import ir.ramtung.tinyme.repository.ShareholderRepository;
 import org.springframework.stereotype.Service;
@@ -34,24 +39,41 @@ public class ChangeMatchStateHandler {
 
     MatchOutcomePublisher matchOutcomePublisher;
 
+    RequestJournal requestJournal;
+
+    MarketDataPublisher marketDataPublisher;
 
     private void handleActivatedStopOrders(Security security) {
-        security.activateStopOrders();
+        StopOrderCascadeEvent cascade = new StopOrderCascadeEvent();
+        cascade.begin();
+        cascade.activated(security.activateStopOrders().size());
         while(security.hasAnyActiveStopOrder()){
             MatchResult matchResult = security.matchSingleStopOrder(matcher);
             EnterOrderRq stopOrderEnterOrderRq = security.getLastProcessedReqID();
             matchOutcomePublisher.publishAfterActivationResults(matchResult,stopOrderEnterOrderRq);
         }
+        cascade.end(security.getIsin());
     }
-    public ChangeMatchStateHandler(SecurityRepository securityRepository, BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, EventPublisher eventPublisher, Matcher matcher, MatchOutcomePublisher matchOutcomePublisher) {
+    public ChangeMatchStateHandler(SecurityRepository securityRepository, BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, EventPublisher eventPublisher, Matcher matcher, MatchOutcomePublisher matchOutcomePublisher, RequestJournal requestJournal, MarketDataPublisher marketDataPublisher) {
         this.securityRepository = securityRepository;
         this.brokerRepository = brokerRepository;
         this.shareholderRepository = shareholderRepository;
         this.eventPublisher = eventPublisher;
         this.matcher = matcher;
         this.matchOutcomePublisher = matchOutcomePublisher;
+        this.requestJournal = requestJournal;
+        this.marketDataPublisher = marketDataPublisher;
     }
     public void handleChangeMatchingState(ChangeMatchingStateRq changeMatchingStateRq){
+        CreditDecisions creditDecisions = requestJournal.recordCreditDecisions();
+        try {
+            changeMatchingState(changeMatchingStateRq);
+        } finally {
+            requestJournal.append(changeMatchingStateRq, creditDecisions);
+        }
+    }
+
+    private void changeMatchingState(ChangeMatchingStateRq changeMatchingStateRq){
         Security security = securityRepository.findSecurityByIsin(changeMatchingStateRq.getSecurityIsin());
         OrderBook orderBook = security.getOrderBook();
         if(security.isInAuctionMatchingState()){
@@ -66,6 +88,8 @@ public class ChangeMatchStateHandler {
             }
         }
         security.changeSecurityStatusTo(changeMatchingStateRq.getTargetState());
+        marketDataPublisher.onBookChanged(security);
+        BookSizeEvent.emit(security);
         eventPublisher.publish(new SecurityStateChangedEvent(LocalDateTime.now(),security.getIsin(),changeMatchingStateRq.getTargetState()));
     }
 
@@ -24,23 +24,59 @@ public class CreditControl implements MatchingControl {
     }
 
     @Override
-    public MatchingOutcome canAcceptMatching(Order order, MatchResult result) {
-        if (result.remainder().getQuantity() > 0) {
-            if (order.getSide() == Side.BUY) {
-                if (!order.getBroker().hasEnoughCredit(order.getValue()))
-                    return MatchingOutcome.NOT_ENOUGH_CREDIT;
-            }
+    public void fillAccepted(Order newOrder, Order matchingOrder, int price, int quantity) {
+        long value = (long) price * quantity;
+        if (newOrder.getSide() == Side.BUY) {
+            newOrder.getBroker().decreaseCreditBy(value);
+            matchingOrder.getBroker().increaseCreditBy(value);
+        } else {
+            newOrder.getBroker().increaseCreditBy(value);
         }
+    }
+
+    @Override
+    public MatchingOutcome canAcceptPreview(Order order, MatchPreview preview) {
+        if (needsReservation(order, preview) && !order.getBroker().reserveCredit(toReserve(order, preview)))
+            return MatchingOutcome.NOT_ENOUGH_CREDIT;
         return MatchingOutcome.NO_PROBLEM;
     }
 
     @Override
-    public void matchingAccepted(Order order, MatchResult result) {
-        if (order.getSide() == Side.BUY) {
-            order.getBroker().decreaseCreditBy(order.getValue());
+    public void previewCommitted(Order order, MatchPreview preview) {
+        if (needsReservation(order, preview)) {
+            long held = heldPart(order, preview);
+            order.getBroker().commitReservedCredit(toReserve(order, preview));
+            order.getBroker().increaseCreditBy(reservedForTrades(preview));
+            order.useHeldCredit(held);
         }
     }
 
+    @Override
+    public void previewReleased(Order order, MatchPreview preview) {
+        if (needsReservation(order, preview))
+            order.getBroker().releaseReservedCredit(toReserve(order, preview));
+    }
+
+    private static boolean needsReservation(Order order, MatchPreview preview) {
+        return order.getSide() == Side.BUY && preview.remainingQuantity() > 0;
+    }
+
+    private static long heldPart(Order order, MatchPreview preview) {
+        return Math.min(order.getHeldCredit(), reservedForTrades(preview) + reservedForRemainder(order, preview));
+    }
+
+    private static long toReserve(Order order, MatchPreview preview) {
+        return reservedForTrades(preview) + reservedForRemainder(order, preview) - heldPart(order, preview);
+    }
+
+    private static long reservedForTrades(MatchPreview preview) {
+        return preview.tradedValue() - preview.tradedValueWithSameBroker();
+    }
+
+    private static long reservedForRemainder(Order order, MatchPreview preview) {
+        return (long) order.getPrice() * preview.remainingQuantity();
+    }
+
     @Override
     public void rollbackTrades(Order newOrder, LinkedList<Trade> trades) {
         if (newOrder.getSide() == Side.BUY) {
@@ -59,6 +95,16 @@ public class CreditControl implements MatchingControl {
             }
         }
     }
-}
-
 
+    @Override
+    public void rollbackFills(Order newOrder, TradeBuffer fills) {
+        if (newOrder.getSide() == Side.BUY) {
+            newOrder.getBroker().increaseCreditBy(fills.getTotalTradedValue());
+            for (int i = 0; i < fills.size(); i++)
+                fills.getMatchingBroker(i).decreaseCreditBy(fills.getTradedValue(i));
+        } else {
+            newOrder.getBroker().decreaseCreditBy(fills.getTotalTradedValue());
+        }
+        fills.restoreMatchedOrders(newOrder.getSecurity().getOrderBook());
+    }
+}
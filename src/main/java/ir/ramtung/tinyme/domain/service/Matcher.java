@@ -1,11 +1,15 @@
 package ir.ramtung.tinyme.domain.service;
 
 import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.metrics.LatencyRecorder;
+import ir.ramtung.tinyme.metrics.Stage;
+import ir.ramtung.tinyme.metrics.jfr.MatchExecutedEvent;
+import ir.ramtung.tinyme.metrics.jfr.MatchRollbackEvent;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.List;
 
 import static java.lang.Math.abs;
 
@@ -14,32 +18,41 @@ public class Matcher {
 
     @Autowired
     private MatchingControlList controls;
+    @Autowired(required = false)
+    private LatencyRecorder latencyRecorder = LatencyRecorder.DISABLED;
+    @Autowired(required = false)
+    private TradeTape tradeTape = TradeTape.DISABLED;
+    private final TradeList tradeList = new TradeList();
+    private final BufferedTrades bufferedTrades = new BufferedTrades();
+
     public MatchResult match(Order newOrder) {
+        LinkedList<Trade> trades = new LinkedList<>();
+        MatchingOutcome outcome = match(newOrder, trades, tradeList);
+        return outcome == MatchingOutcome.EXECUTED ? MatchResult.executed(newOrder, trades) : new MatchResult(outcome, newOrder, null);
+    }
 
+    public void match(Order newOrder, TradeBuffer tradeBuffer) {
+        match(newOrder, tradeBuffer, bufferedTrades);
+    }
+
+    private <T> MatchingOutcome match(Order newOrder, T trades, TradeSink<T> sink) {
         OrderBook orderBook = newOrder.getSecurity().getOrderBook();
-        LinkedList<Trade> trades = new LinkedList<>();
 
         while (orderBook.hasOrderOfType(newOrder.getSide().opposite()) && newOrder.getQuantity() > 0) {
             Order matchingOrder = orderBook.matchWithFirst(newOrder);
             if (matchingOrder == null)
                 break;
 
-            Trade trade = new Trade(newOrder.getSecurity(), matchingOrder.getPrice(), Math.min(newOrder.getQuantity(), matchingOrder.getQuantity()), newOrder, matchingOrder);
-
-            MatchingOutcome matchingOutcome = controls.canTrade(newOrder,trade);
-
-            if(matchingOutcome != MatchingOutcome.NO_PROBLEM){
-                rollbackTrades(newOrder, trades);
-                return new MatchResult(matchingOutcome, newOrder, null);
+            int quantity = Math.min(newOrder.getQuantity(), matchingOrder.getQuantity());
+            MatchingOutcome matchingOutcome = sink.add(trades, newOrder, matchingOrder, quantity);
+            if (matchingOutcome != MatchingOutcome.NO_PROBLEM) {
+                sink.rollback(trades, newOrder);
+                MatchRollbackEvent.emit(newOrder, matchingOutcome, sink.size(trades));
+                return matchingOutcome;
             }
-
-//            trade.increaseSellersCredit()
-            trades.add(trade);
-            controls.tradeAccepted(newOrder,trade);
-            applyChangesOfMatching(newOrder ,matchingOrder ,orderBook);
-
+            applyChangesOfMatching(newOrder, matchingOrder, orderBook);
         }
-        return MatchResult.executed(newOrder, trades);
+        return MatchingOutcome.EXECUTED;
     }
 
     void applyChangesOfMatching(Order newOrder ,Order matchingOrder ,OrderBook orderBook){
@@ -53,69 +66,192 @@ public class Matcher {
                     orderBook.enqueue(icebergOrder);
             }
         } else {
-            matchingOrder.decreaseQuantity(newOrder.getQuantity());
+            orderBook.decreaseQuantity(matchingOrder, newOrder.getQuantity());
             newOrder.makeQuantityZero();
         }
     }
 
-    private void rollbackTrades(Order newOrder, LinkedList<Trade> trades) {
-        if (newOrder.getSide() == Side.BUY) {
-            newOrder.getBroker().increaseCreditBy(trades.stream().mapToLong(Trade::getTradedValue).sum());
-            trades.forEach(trade -> trade.getSell().getBroker().decreaseCreditBy(trade.getTradedValue()));
-            ListIterator<Trade> it = trades.listIterator(trades.size());
-            while (it.hasPrevious()) {
-                newOrder.getSecurity().getOrderBook().restoreOrder(it.previous().getSell());
-            }
-        }
-        else{
-            newOrder.getBroker().decreaseCreditBy(trades.stream().mapToLong(Trade::getTradedValue).sum());
-            ListIterator<Trade> it = trades.listIterator(trades.size());
-            while (it.hasPrevious()) {
-                newOrder.getSecurity().getOrderBook().restoreOrder(it.previous().getBuy());
-            }
-        }
+    public boolean matchedLessThanMEQ(Order order, Order originalOrder){
+        return matchedLessThanMEQ(order, originalOrder.getQuantity());
     }
 
-    public boolean matchedLessThanMEQ(Order order, Order originalOrder){
-        return abs(order.getQuantity()- originalOrder.getQuantity()) < order.getMinimumExecutionQuantity();
+    private static boolean matchedLessThanMEQ(Order order, int originalQuantity) {
+        return abs(order.getQuantity() - originalQuantity) < order.getMinimumExecutionQuantity();
     }
+
     public MatchResult execute(Order order) {
-        Order originalOrder = order.snapshot();
+        long start = latencyRecorder.start(Stage.MATCHING);
+        MatchExecutedEvent matchEvent = new MatchExecutedEvent();
+        matchEvent.begin();
+        try {
+            LinkedList<Trade> trades = new LinkedList<>();
+            MatchingOutcome outcome = executeMatch(order, trades, tradeList);
+            MatchResult result;
+            if (outcome == MatchingOutcome.EXECUTED)
+                result = MatchResult.executed(order, trades);
+            else if (outcome == MatchingOutcome.MINIMUM_EXECUTION_QUANTITY_NOT_PASSED)
+                result = MatchResult.minimumExecutionQuantityNotPassed();
+            else
+                result = new MatchResult(outcome, order, null);
+            matchEvent.end(order, result);
+            return result;
+        } finally {
+            latencyRecorder.stop(Stage.MATCHING, start);
+        }
+    }
+
+    // Same execution as execute(Order) for callers that consume fills from a reused TradeBuffer (benchmarks, embedders).
+    // The request path keeps using execute(Order) because event publishing needs Trade objects.
+    public MatchingOutcome execute(Order order, TradeBuffer tradeBuffer) {
+        long start = latencyRecorder.start(Stage.MATCHING);
+        MatchExecutedEvent matchEvent = new MatchExecutedEvent();
+        matchEvent.begin();
+        try {
+            tradeBuffer.clear();
+            MatchingOutcome outcome = executeMatch(order, tradeBuffer, bufferedTrades);
+            matchEvent.end(order, outcome, tradeBuffer);
+            return outcome;
+        } finally {
+            latencyRecorder.stop(Stage.MATCHING, start);
+        }
+    }
+
+    private <T> MatchingOutcome executeMatch(Order order, T trades, TradeSink<T> sink) {
+        int originalQuantity = order.getQuantity();
         MatchingOutcome outcome = controls.canStartMatching(order);
         if (outcome != MatchingOutcome.NO_PROBLEM)
-            return new MatchResult(outcome, order,null);
+            return outcome;
 
-        MatchResult result = match(order);
-        if (result.outcome() != MatchingOutcome.EXECUTED)
-            return result;
+        MatchPreview preview = order.getSecurity().getOrderBook().previewMatch(order);
+        if (preview.executedQuantity() < order.getMinimumExecutionQuantity())
+            return MatchingOutcome.MINIMUM_EXECUTION_QUANTITY_NOT_PASSED;
+        outcome = controls.canAcceptPreview(order, preview);
+        if (outcome != MatchingOutcome.NO_PROBLEM)
+            return outcome;
 
-        if (matchedLessThanMEQ(order,originalOrder)){
-            rollbackTrades(order, result.trades());
-            return MatchResult.minimumExecutionQuantityNotPassed();
+        outcome = match(order, trades, sink);
+        if (outcome != MatchingOutcome.EXECUTED) {
+            controls.previewReleased(order, preview);
+            return outcome;
         }
+        assert order.getQuantity() == preview.remainingQuantity() : "Match preview diverged from the executed match";
 
-        outcome = controls.canAcceptMatching(order, result);
+        if (matchedLessThanMEQ(order, originalQuantity))
+            outcome = MatchingOutcome.MINIMUM_EXECUTION_QUANTITY_NOT_PASSED;
+        else
+            outcome = sink.canAccept(trades, order);
         if (outcome != MatchingOutcome.NO_PROBLEM) {
-            controls.rollbackTrades(order, result.trades());
-            return new MatchResult(outcome, order,null);
+            sink.rollback(trades, order);
+            controls.previewReleased(order, preview);
+            MatchRollbackEvent.emit(order, outcome, sink.size(trades));
+            return outcome;
+        }
+
+        controls.previewCommitted(order, preview);
+        if (order.getQuantity() > 0)
+            enqueueRemainder(order);
+        sink.settle(trades, order);
+        return MatchingOutcome.EXECUTED;
+    }
+
+    // Where one execution keeps its fills: Trade objects for the request path, a reused TradeBuffer for callers
+    // that must not allocate per fill. Both run the same checks; only the bookkeeping of the fills differs.
+    private interface TradeSink<T> {
+        MatchingOutcome add(T trades, Order newOrder, Order matchingOrder, int quantity);
+        int size(T trades);
+        MatchingOutcome canAccept(T trades, Order order);
+        void rollback(T trades, Order order);
+        void settle(T trades, Order order);
+    }
+
+    private class TradeList implements TradeSink<LinkedList<Trade>> {
+        @Override
+        public MatchingOutcome add(LinkedList<Trade> trades, Order newOrder, Order matchingOrder, int quantity) {
+            Trade trade = new Trade(newOrder.getSecurity(), matchingOrder.getPrice(), quantity, newOrder, matchingOrder);
+            MatchingOutcome outcome = controls.canTrade(newOrder, trade);
+            if (outcome == MatchingOutcome.NO_PROBLEM) {
+                trades.add(trade);
+                controls.tradeAccepted(newOrder, trade);
+            }
+            return outcome;
+        }
+
+        @Override
+        public int size(LinkedList<Trade> trades) {
+            return trades.size();
+        }
+
+        @Override
+        public MatchingOutcome canAccept(LinkedList<Trade> trades, Order order) {
+            return controls.canAcceptMatching(order, MatchResult.executed(order, trades));
+        }
+
+        @Override
+        public void rollback(LinkedList<Trade> trades, Order order) {
+            controls.rollbackTrades(order, trades);
+        }
+
+        @Override
+        public void settle(LinkedList<Trade> trades, Order order) {
+            changeShareholdersPosition(trades);
+            recordOnTape(trades);
+            if (!trades.isEmpty())
+                order.getSecurity().setLatestPrice(trades.getLast());
+        }
+    }
+
+    private class BufferedTrades implements TradeSink<TradeBuffer> {
+        @Override
+        public MatchingOutcome add(TradeBuffer trades, Order newOrder, Order matchingOrder, int quantity) {
+            trades.add(matchingOrder.getPrice(), quantity, newOrder, matchingOrder);
+            controls.fillAccepted(newOrder, matchingOrder, matchingOrder.getPrice(), quantity);
+            return MatchingOutcome.NO_PROBLEM;
+        }
+
+        @Override
+        public int size(TradeBuffer trades) {
+            return trades.size();
+        }
+
+        @Override
+        public MatchingOutcome canAccept(TradeBuffer trades, Order order) {
+            return controls.canAcceptFills(order, trades);
         }
 
-        if (result.remainder().getQuantity() > 0) {
-            if (order.getSide() == Side.BUY){
-                order.getBroker().decreaseCreditBy(order.getValue());
+        @Override
+        public void rollback(TradeBuffer trades, Order order) {
+            controls.rollbackFills(order, trades);
+        }
+
+        @Override
+        public void settle(TradeBuffer trades, Order order) {
+            Security security = order.getSecurity();
+            for (int i = 0; i < trades.size(); i++) {
+                trades.getBuyShareholder(i).incPosition(security, trades.getQuantity(i));
+                trades.getSellShareholder(i).decPosition(security, trades.getQuantity(i));
+                tradeTape.record(security.getIsin(), trades.getPrice(i), trades.getQuantity(i),
+                        trades.getBuyOrderId(i), trades.getSellOrderId(i));
             }
-            order.getSecurity().getOrderBook().enqueue(result.remainder());
-            order.resetMinimumExecutionQuantity();
+            if (!trades.isEmpty())
+                security.setLatestPrice(trades.getPrice(trades.size() - 1));
+        }
+    }
+
+    private void enqueueRemainder(Order order) {
+        order.getSecurity().getOrderBook().enqueue(order);
+        order.resetMinimumExecutionQuantity();
+    }
+
+    private void recordOnTape(List<Trade> trades) {
+        if (tradeTape.isEnabled()) {
+            for (Trade trade : trades)
+                tradeTape.record(trade);
         }
-        changeShareholdersPosition(result);
-        if (!result.trades().isEmpty())
-            order.getSecurity().setLatestPrice(result.trades().getLast());
-        return result;
     }
 
-    private void changeShareholdersPosition(MatchResult result){
-        if (!result.trades().isEmpty()) {
-            for (Trade trade : result.trades()) {
+    private void changeShareholdersPosition(List<Trade> trades){
+        if (!trades.isEmpty()) {
+            for (Trade trade : trades) {
                 trade.getBuy().getShareholder().incPosition(trade.getSecurity(), trade.getQuantity());
                 trade.getSell().getShareholder().decPosition(trade.getSecurity(), trade.getQuantity());
             }
@@ -125,7 +261,7 @@ public class Matcher {
         LinkedList<Trade> trades = new LinkedList<>();
         MatchResult matchResults;
         while (orderBook.hasOrderOfType(Side.BUY) &&  orderBook.hasOrderOfType(Side.SELL)) {
-            Order buyOrder = orderBook.getBuyQueue().getFirst();
+            Order buyOrder = orderBook.getFirst(Side.BUY);
             Order sellOrder = orderBook.matchWithFirst(buyOrder);
             if (sellOrder == null)
                 break;
@@ -140,8 +276,10 @@ public class Matcher {
             }
             applyChangesOfAuctionMatching(buyOrder ,sellOrder ,orderBook);
         }
+        orderBook.requeueDeferredOrders();
         MatchResult result = MatchResult.executed(null, trades);
-        changeShareholdersPosition(result);
+        changeShareholdersPosition(result.trades());
+        recordOnTape(result.trades());
         return  result;
     }
 
@@ -153,11 +291,11 @@ public class Matcher {
             handleAddingIcebergOrderToOrderBook(orderBook , buyOrder);
         }
         else if (buyOrder.getQuantity() > sellOrder.getQuantity()) {
-            buyOrder.decreaseQuantity(sellOrder.getQuantity());
+            orderBook.decreaseQuantity(buyOrder, sellOrder.getQuantity());
             orderBook.removeFirst(sellOrder.getSide());
             handleAddingIcebergOrderToOrderBook(orderBook , sellOrder);
         } else {
-            sellOrder.decreaseQuantity(buyOrder.getQuantity());
+            orderBook.decreaseQuantity(sellOrder, buyOrder.getQuantity());
             orderBook.removeFirst(buyOrder.getSide());
             handleAddingIcebergOrderToOrderBook(orderBook , buyOrder);
         }
@@ -1,20 +1,28 @@
 package ir.ramtung.tinyme.domain.service;
 
+import ir.ramtung.tinyme.domain.entity.MatchPreview;
 import ir.ramtung.tinyme.domain.entity.MatchResult;
 import ir.ramtung.tinyme.domain.entity.MatchingOutcome;
 import ir.ramtung.tinyme.domain.entity.Order;
 import ir.ramtung.tinyme.domain.entity.Trade;
+import ir.ramtung.tinyme.domain.entity.TradeBuffer;
 
 import java.util.LinkedList;
 
 public interface MatchingControl {
     default MatchingOutcome canStartMatching(Order order) { return MatchingOutcome.NO_PROBLEM; }
     default void matchingStarted(Order order) {}
+    default MatchingOutcome canAcceptPreview(Order order, MatchPreview preview) { return MatchingOutcome.NO_PROBLEM; }
+    default void previewCommitted(Order order, MatchPreview preview) {}
+    default void previewReleased(Order order, MatchPreview preview) {}
     default MatchingOutcome canAcceptMatching(Order order, MatchResult result) { return MatchingOutcome.NO_PROBLEM; }
+    default MatchingOutcome canAcceptFills(Order order, TradeBuffer fills) { return MatchingOutcome.NO_PROBLEM; }
     default void matchingAccepted(Order order, MatchResult result) {}
 
     default MatchingOutcome canTrade(Order newOrder, Trade trade) { return MatchingOutcome.NO_PROBLEM; }
     default void tradeAccepted(Order newOrder, Trade trade) {}
+    default void fillAccepted(Order newOrder, Order matchingOrder, int price, int quantity) {}
 
     default void rollbackTrades(Order newOrder, LinkedList<Trade> trades) {}
+    default void rollbackFills(Order newOrder, TradeBuffer fills) {}
 }
\ No newline at end of file
@@ -1,9 +1,11 @@
 package ir.ramtung.tinyme.domain.service;
 
+import ir.ramtung.tinyme.domain.entity.MatchPreview;
 import ir.ramtung.tinyme.domain.entity.MatchResult;
 import ir.ramtung.tinyme.domain.entity.MatchingOutcome;
 import ir.ramtung.tinyme.domain.entity.Order;
 import ir.ramtung.tinyme.domain.entity.Trade;
+import ir.ramtung.tinyme.domain.entity.TradeBuffer;
 import ir.ramtung.tinyme.domain.service.MatchingControl;
 import org.springframework.stereotype.Component;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,8 +19,8 @@ public class MatchingControlList {
     private List<MatchingControl> controlList;
 
     public MatchingOutcome canStartMatching(Order order) {
-        for (MatchingControl control : controlList) {
-            MatchingOutcome outcome = control.canStartMatching(order);
+        for (int i = 0; i < controlList.size(); i++) {
+            MatchingOutcome outcome = controlList.get(i).canStartMatching(order);
             if (outcome != MatchingOutcome.NO_PROBLEM)
                 return outcome;
         }
@@ -29,6 +31,27 @@ public class MatchingControlList {
             control.matchingStarted(order);
         }
     }
+    public MatchingOutcome canAcceptPreview(Order order, MatchPreview preview) {
+        for (int i = 0; i < controlList.size(); i++) {
+            MatchingOutcome outcome = controlList.get(i).canAcceptPreview(order, preview);
+            if (outcome != MatchingOutcome.NO_PROBLEM) {
+                for (int j = 0; j < i; j++)
+                    controlList.get(j).previewReleased(order, preview);
+                return outcome;
+            }
+        }
+        return MatchingOutcome.NO_PROBLEM;
+    }
+    public void previewCommitted(Order order, MatchPreview preview) {
+        for (int i = 0; i < controlList.size(); i++) {
+            controlList.get(i).previewCommitted(order, preview);
+        }
+    }
+    public void previewReleased(Order order, MatchPreview preview) {
+        for (int i = 0; i < controlList.size(); i++) {
+            controlList.get(i).previewReleased(order, preview);
+        }
+    }
     public MatchingOutcome canAcceptMatching(Order order, MatchResult result) {
         for (MatchingControl control : controlList) {
             MatchingOutcome outcome = control.canAcceptMatching(order, result);
@@ -38,6 +61,14 @@ public class MatchingControlList {
         }
         return MatchingOutcome.NO_PROBLEM;
     }
+    public MatchingOutcome canAcceptFills(Order order, TradeBuffer fills) {
+        for (int i = 0; i < controlList.size(); i++) {
+            MatchingOutcome outcome = controlList.get(i).canAcceptFills(order, fills);
+            if (outcome != MatchingOutcome.NO_PROBLEM)
+                return outcome;
+        }
+        return MatchingOutcome.NO_PROBLEM;
+    }
     public void matchingAccepted(Order order, MatchResult result) {
         for (MatchingControl control : controlList) {
             control.matchingAccepted(order, result);
@@ -52,6 +83,12 @@ public class MatchingControlList {
         }
     }
 
+    public void fillAccepted(Order newOrder, Order matchingOrder, int price, int quantity) {
+        for (int i = 0; i < controlList.size(); i++) {
+            controlList.get(i).fillAccepted(newOrder, matchingOrder, price, quantity);
+        }
+    }
+
     public void rollbackTrades(Order newOrder, LinkedList<Trade> trades) {
         for (MatchingControl control2 : controlList) {
             control2.rollbackTrades(newOrder, trades);
@@ -59,4 +96,10 @@ public class MatchingControlList {
 
     }
 
+    public void rollbackFills(Order newOrder, TradeBuffer fills) {
+        for (int i = 0; i < controlList.size(); i++) {
+            controlList.get(i).rollbackFills(newOrder, fills);
+        }
+    }
+
 }
@@ -3,16 +3,31 @@ package ir.ramtung.tinyme.domain.service;
 import ir.ramtung.tinyme.domain.entity.*;
 import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
 import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.MarketDataPublisher;
 import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.BatchEnterOrderRq;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MarketDepthSnapshotRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
 import ir.ramtung.tinyme.messaging.request.OrderEntryType;
+import ir.ramtung.tinyme.metrics.LatencyRecorder;
+import ir.ramtung.tinyme.metrics.Stage;
+import ir.ramtung.tinyme.metrics.jfr.BookSizeEvent;
+import ir.ramtung.tinyme.metrics.jfr.RequestReceivedEvent;
+import ir.ramtung.tinyme.metrics.jfr.StopOrderCascadeEvent;
+import ir.ramtung.tinyme.metrics.jfr.ValidationFailedEvent;
 import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.RequestJournal;
 import ir.ramtung.tinyme.repository.SecurityRepository;
 import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.function.Predicate;
 
 @Service
 public class OrderHandler {
@@ -26,7 +41,14 @@ public class OrderHandler {
 
     OrderValidator orderValidator;
 
-    public OrderHandler(SecurityRepository securityRepository, BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, EventPublisher eventPublisher, Matcher matcher, MatchOutcomePublisher matchOutcomePublisher, OrderValidator orderValdiator) {
+    RequestJournal requestJournal;
+
+    MarketDataPublisher marketDataPublisher;
+
+    @Autowired(required = false)
+    LatencyRecorder latencyRecorder = LatencyRecorder.DISABLED;
+
+    public OrderHandler(SecurityRepository securityRepository, BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, EventPublisher eventPublisher, Matcher matcher, MatchOutcomePublisher matchOutcomePublisher, OrderValidator orderValdiator, RequestJournal requestJournal, MarketDataPublisher marketDataPublisher) {
         this.securityRepository = securityRepository;
         this.brokerRepository = brokerRepository;
         this.shareholderRepository = shareholderRepository;
@@ -34,55 +56,251 @@ public class OrderHandler {
         this.matcher = matcher;
         this.matchOutcomePublisher = matchOutcomePublisher;
         this.orderValidator = orderValdiator;
+        this.requestJournal = requestJournal;
+        this.marketDataPublisher = marketDataPublisher;
     }
     public void handleEnterOrder(EnterOrderRq enterOrderRq) {
+        RequestReceivedEvent received = RequestReceivedEvent.begin(enterOrderRq);
+        try {
+            orderValidator.validateEnterOrderRqFields(enterOrderRq);
+            processEnterOrder(enterOrderRq);
+        } catch (InvalidRequestException ex) {
+            rejectEnterOrder(enterOrderRq, ex);
+        }
+        received.commit();
+    }
+
+    public void handleValidatedEnterOrder(EnterOrderRq enterOrderRq) {
+        RequestReceivedEvent received = RequestReceivedEvent.begin(enterOrderRq);
+        try {
+            processEnterOrder(enterOrderRq);
+        } catch (InvalidRequestException ex) {
+            rejectEnterOrder(enterOrderRq, ex);
+        }
+        received.commit();
+    }
+
+    private void rejectEnterOrder(EnterOrderRq enterOrderRq, InvalidRequestException ex) {
+        ValidationFailedEvent.emit(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), enterOrderRq.getSecurityIsin(), ex.getReasons());
+        eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), ex.getReasons()));
+    }
+
+    private void processEnterOrder(EnterOrderRq enterOrderRq) throws InvalidRequestException {
+        CreditDecisions creditDecisions = requestJournal.recordCreditDecisions();
         try {
-            orderValidator.validateEnterOrderRq(enterOrderRq);
+            orderValidator.validateEnterOrderRqState(enterOrderRq);
 
             Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
             Broker broker = brokerRepository.findBrokerById(enterOrderRq.getBrokerId());
             Shareholder shareholder = shareholderRepository.findShareholderById(enterOrderRq.getShareholderId());
 
-            MatchResult matchResult;
-
-            if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER) {
-                matchResult = security.newOrder(enterOrderRq, broker, shareholder, matcher);
-            }
-            else {
-                matchResult = security.updateOrder(enterOrderRq, matcher);
-            }
+            MatchResult matchResult = enterOrder(enterOrderRq, security, broker, shareholder);
 
             checkForActivatedStopLimitOrders(security);
             matchOutcomePublisher.publishMatchOutComes(matchResult, enterOrderRq);
+            marketDataPublisher.onBookChanged(security);
+            BookSizeEvent.emit(security);
+        } finally {
+            requestJournal.append(enterOrderRq, creditDecisions);
+        }
+    }
 
+    private MatchResult enterOrder(EnterOrderRq enterOrderRq, Security security, Broker broker, Shareholder shareholder) throws InvalidRequestException {
+        long start = latencyRecorder.start(Stage.ORDER_ENTRY);
+        try {
+            if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER)
+                return security.newOrder(enterOrderRq, broker, shareholder, matcher);
+            return security.updateOrder(enterOrderRq, matcher);
+        } finally {
+            latencyRecorder.stop(Stage.ORDER_ENTRY, start);
+        }
+    }
+
+    public void handleBatchEnterOrder(BatchEnterOrderRq batchEnterOrderRq) {
+        try {
+            orderValidator.validateBatchEnterOrderRq(batchEnterOrderRq);
         } catch (InvalidRequestException ex) {
-            eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), ex.getReasons()));
+            eventPublisher.publish(new OrderRejectedEvent(0, 0, ex.getReasons()));
+            return;
+        }
+        Security security = securityRepository.findSecurityByIsin(batchEnterOrderRq.getSecurityIsin());
+        Broker broker = brokerRepository.findBrokerById(batchEnterOrderRq.getBrokerId());
+        Shareholder shareholder = shareholderRepository.findShareholderById(batchEnterOrderRq.getShareholderId());
+
+        List<EnterOrderRq> orders = batchEnterOrderRq.getOrders();
+        List<EnterOrderRq> validOrders = new ArrayList<>(orders.size());
+        for (EnterOrderRq enterOrderRq : orders) {
+            try {
+                orderValidator.validateBatchEntryFields(batchEnterOrderRq, enterOrderRq, security, broker, shareholder);
+                validOrders.add(enterOrderRq);
+            } catch (InvalidRequestException ex) {
+                rejectEnterOrder(enterOrderRq, ex);
+            }
+        }
+        if (validOrders.isEmpty())
+            return;
+        if (validOrders.size() < orders.size())
+            batchEnterOrderRq = new BatchEnterOrderRq(batchEnterOrderRq.getSecurityIsin(), batchEnterOrderRq.getBrokerId(), batchEnterOrderRq.getShareholderId(), validOrders);
+        processBatchEnterOrder(batchEnterOrderRq, security, broker, shareholder);
+    }
+
+    public void handleValidatedBatchEnterOrder(BatchEnterOrderRq batchEnterOrderRq) {
+        processBatchEnterOrder(batchEnterOrderRq,
+                securityRepository.findSecurityByIsin(batchEnterOrderRq.getSecurityIsin()),
+                brokerRepository.findBrokerById(batchEnterOrderRq.getBrokerId()),
+                shareholderRepository.findShareholderById(batchEnterOrderRq.getShareholderId()));
+    }
+
+    private void processBatchEnterOrder(BatchEnterOrderRq batchEnterOrderRq, Security security, Broker broker, Shareholder shareholder) {
+        CreditDecisions creditDecisions = requestJournal.recordCreditDecisions();
+        try {
+            for (EnterOrderRq enterOrderRq : batchEnterOrderRq.getOrders()) {
+                RequestReceivedEvent received = RequestReceivedEvent.begin(enterOrderRq);
+                try {
+                    orderValidator.validateEnterOrderRqState(enterOrderRq, security);
+                    MatchResult matchResult = enterOrder(enterOrderRq, security, broker, shareholder);
+                    matchOutcomePublisher.publishMatchOutComes(matchResult, enterOrderRq);
+                } catch (InvalidRequestException ex) {
+                    rejectEnterOrder(enterOrderRq, ex);
+                }
+                received.commit();
+            }
+            checkForActivatedStopLimitOrders(security);
+            marketDataPublisher.onBookChanged(security);
+            BookSizeEvent.emit(security);
+        } finally {
+            requestJournal.append(batchEnterOrderRq, creditDecisions);
         }
     }
     private void checkForActivatedStopLimitOrders(Security security) {
-        MatchResult matchResult;
-        security.activateStopOrders();
-        while(security.hasAnyActiveStopOrder()) {
-            matchResult = security.matchSingleStopOrder(matcher);
-            EnterOrderRq stopOrderEnterOrderRq = security.getLastProcessedReqID();
-            matchOutcomePublisher.publishAfterActivationResults(matchResult,stopOrderEnterOrderRq);
-            security.activateStopOrders();
+        long start = latencyRecorder.start(Stage.STOP_CASCADE);
+        StopOrderCascadeEvent cascade = new StopOrderCascadeEvent();
+        cascade.begin();
+        try {
+            MatchResult matchResult;
+            cascade.activated(security.activateStopOrders().size());
+            while(security.hasAnyActiveStopOrder()) {
+                matchResult = security.matchSingleStopOrder(matcher);
+                EnterOrderRq stopOrderEnterOrderRq = security.getLastProcessedReqID();
+                matchOutcomePublisher.publishAfterActivationResults(matchResult,stopOrderEnterOrderRq);
+                cascade.activated(security.activateStopOrders().size());
+            }
+            cascade.end(security.getIsin());
+        } finally {
+            latencyRecorder.stop(Stage.STOP_CASCADE, start);
         }
     }
     public void handleDeleteOrder(DeleteOrderRq deleteOrderRq) {
+        RequestReceivedEvent received = RequestReceivedEvent.begin(deleteOrderRq);
         try {
             orderValidator.validateDeleteOrderRq(deleteOrderRq);
-            Security security = securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin());
-            security.deleteOrder(deleteOrderRq);
-            eventPublisher.publish(new OrderDeletedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId()));
-            if(security.isInAuctionMatchingState()){
-                OrderBook orderBook = security.getOrderBook();
-                HashMap<String, Long> openingPriceAndQuantity = orderBook.calcCurrentOpeningPriceAndMaxQuantity(security.getLatestPrice());
-                eventPublisher.publish(new OpeningPriceEvent(security.getIsin(), openingPriceAndQuantity.get("price"), openingPriceAndQuantity.get("quantity")));
-            }
+            processDeleteOrder(deleteOrderRq);
+        } catch (InvalidRequestException ex) {
+            rejectDeleteOrder(deleteOrderRq, ex);
+        }
+        received.commit();
+    }
+
+    public void handleValidatedDeleteOrder(DeleteOrderRq deleteOrderRq) {
+        RequestReceivedEvent received = RequestReceivedEvent.begin(deleteOrderRq);
+        try {
+            processDeleteOrder(deleteOrderRq);
         } catch (InvalidRequestException ex) {
-            eventPublisher.publish(new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), ex.getReasons()));
+            rejectDeleteOrder(deleteOrderRq, ex);
         }
+        received.commit();
+    }
+
+    private void rejectDeleteOrder(DeleteOrderRq deleteOrderRq, InvalidRequestException ex) {
+        ValidationFailedEvent.emit(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), deleteOrderRq.getSecurityIsin(), ex.getReasons());
+        eventPublisher.publish(new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), ex.getReasons()));
+    }
+
+    public void handleMarketDepthSnapshot(MarketDepthSnapshotRq marketDepthSnapshotRq) {
+        Security security = securityRepository.findSecurityByIsin(marketDepthSnapshotRq.getSecurityIsin());
+        if (security != null)
+            marketDataPublisher.publishSnapshot(security);
+    }
+
+    private void processDeleteOrder(DeleteOrderRq deleteOrderRq) throws InvalidRequestException {
+        requestJournal.append(deleteOrderRq);
+        Security security = securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin());
+        security.deleteOrder(deleteOrderRq);
+        eventPublisher.publish(new OrderDeletedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId()));
+        if(security.isInAuctionMatchingState())
+            publishOpeningPrice(security);
+        marketDataPublisher.onBookChanged(security);
+        BookSizeEvent.emit(security);
+    }
+
+    private void publishOpeningPrice(Security security) {
+        OrderBook orderBook = security.getOrderBook();
+        HashMap<String, Long> openingPriceAndQuantity = orderBook.calcCurrentOpeningPriceAndMaxQuantity(security.getLatestPrice());
+        eventPublisher.publish(new OpeningPriceEvent(security.getIsin(), openingPriceAndQuantity.get("price"), openingPriceAndQuantity.get("quantity")));
+    }
+
+    public void handleMassCancel(MassCancelRq massCancelRq) {
+        if (validateMassCancel(massCancelRq))
+            handleValidatedMassCancel(massCancelRq);
+    }
+
+    public boolean validateMassCancel(MassCancelRq massCancelRq) {
+        try {
+            orderValidator.validateMassCancelRq(massCancelRq);
+            return true;
+        } catch (InvalidRequestException ex) {
+            eventPublisher.publish(new OrderRejectedEvent(massCancelRq.getRequestId(), 0, ex.getReasons()));
+            return false;
+        }
+    }
+
+    public void handleValidatedMassCancel(MassCancelRq massCancelRq) {
+        int cancelled = cancelOrdersOnShard(massCancelRq, isin -> true);
+        eventPublisher.publish(new MassCancelCompletedEvent(massCancelRq.getRequestId(), cancelled));
+    }
+
+    public int cancelOrdersOnShard(MassCancelRq massCancelRq, Predicate<String> ownsSecurity) {
+        Broker broker = massCancelRq.getBrokerId() == null ? null : brokerRepository.findBrokerById(massCancelRq.getBrokerId());
+        Shareholder shareholder = massCancelRq.getShareholderId() == null ? null : shareholderRepository.findShareholderById(massCancelRq.getShareholderId());
+        if ((massCancelRq.getBrokerId() != null && broker == null) || (massCancelRq.getShareholderId() != null && shareholder == null))
+            return 0;
+        HashMap<Broker, Long> released = new HashMap<>();
+        int cancelled = 0;
+        for (Security security : securitiesToCancelIn(massCancelRq, broker, shareholder))
+            if (ownsSecurity.test(security.getIsin()))
+                cancelled += processMassCancel(massCancelRq.forSecurity(security.getIsin()), security, broker, shareholder, released);
+        released.forEach(Broker::increaseCreditBy);
+        return cancelled;
+    }
+
+    private List<Security> securitiesToCancelIn(MassCancelRq massCancelRq, Broker broker, Shareholder shareholder) {
+        if (massCancelRq.getSecurityIsin() != null) {
+            Security security = securityRepository.findSecurityByIsin(massCancelRq.getSecurityIsin());
+            return security == null ? List.of() : List.of(security);
+        }
+        if (broker == null)
+            return shareholder == null ? List.of() : shareholder.securitiesWithOrders();
+        List<Security> securities = broker.securitiesWithOrders();
+        if (shareholder != null) {
+            List<Security> shareholderSecurities = shareholder.securitiesWithOrders();
+            if (shareholderSecurities.size() < securities.size())
+                securities = shareholderSecurities;
+        }
+        return securities;
+    }
+
+    private int processMassCancel(MassCancelRq massCancelRq, Security security, Broker broker, Shareholder shareholder, HashMap<Broker, Long> released) {
+        requestJournal.append(massCancelRq);
+        List<Order> cancelled = security.cancelOrders(broker, shareholder, massCancelRq.getSide(), released);
+        if (cancelled.isEmpty())
+            return 0;
+        for (Order order : cancelled)
+            eventPublisher.publish(new OrderDeletedEvent(massCancelRq.getRequestId(), order.getOrderId()));
+        if (security.isInAuctionMatchingState())
+            publishOpeningPrice(security);
+        marketDataPublisher.onBookChanged(security);
+        BookSizeEvent.emit(security);
+        return cancelled.size();
     }
 
 
@@ -1,19 +1,27 @@
 package ir.ramtung.tinyme.domain.service;
 
+import ir.ramtung.tinyme.domain.entity.Broker;
 import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
 import ir.ramtung.tinyme.messaging.EventPublisher;
 import ir.ramtung.tinyme.messaging.Message;
 import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
+import ir.ramtung.tinyme.messaging.request.BatchEnterOrderRq;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
 import ir.ramtung.tinyme.messaging.request.OrderEntryType;
+import ir.ramtung.tinyme.metrics.LatencyRecorder;
+import ir.ramtung.tinyme.metrics.Stage;
 import ir.ramtung.tinyme.repository.BrokerRepository;
 import ir.ramtung.tinyme.repository.SecurityRepository;
 import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 
 
 @Service
@@ -21,6 +29,8 @@ public class OrderValidator {
     SecurityRepository securityRepository;
     BrokerRepository brokerRepository;
     ShareholderRepository shareholderRepository;
+    @Autowired(required = false)
+    LatencyRecorder latencyRecorder = LatencyRecorder.DISABLED;
 
     public OrderValidator(SecurityRepository securityRepository, BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, EventPublisher eventPublisher, Matcher matcher, MatchOutcomePublisher matchOutcomePublisher) {
         this.securityRepository = securityRepository;
@@ -29,7 +39,47 @@ public class OrderValidator {
     }
 
     public void validateEnterOrderRq(EnterOrderRq enterOrderRq) throws InvalidRequestException {
-        List<String> errors = new LinkedList<>();
+        validateEnterOrderRqFields(enterOrderRq);
+        validateEnterOrderRqState(enterOrderRq);
+    }
+
+    public void validateEnterOrderRqFields(EnterOrderRq enterOrderRq) throws InvalidRequestException {
+        long start = latencyRecorder.start(Stage.VALIDATION);
+        try {
+            checkEnterOrderRqFields(enterOrderRq);
+        } finally {
+            latencyRecorder.stop(Stage.VALIDATION, start);
+        }
+    }
+
+    public void validateBatchEnterOrderRq(BatchEnterOrderRq batchEnterOrderRq) throws InvalidRequestException {
+        if (batchEnterOrderRq.getOrders() == null || batchEnterOrderRq.getOrders().isEmpty())
+            throw new InvalidRequestException(Message.BATCH_HAS_NO_ORDERS);
+    }
+
+    public void validateBatchEntryFields(BatchEnterOrderRq batchEnterOrderRq, EnterOrderRq enterOrderRq, Security security, Broker broker, Shareholder shareholder) throws InvalidRequestException {
+        long start = latencyRecorder.start(Stage.VALIDATION);
+        try {
+            List<String> errors = new LinkedList<>();
+            if (!Objects.equals(batchEnterOrderRq.getSecurityIsin(), enterOrderRq.getSecurityIsin())
+                    || batchEnterOrderRq.getBrokerId() != enterOrderRq.getBrokerId()
+                    || batchEnterOrderRq.getShareholderId() != enterOrderRq.getShareholderId())
+                errors.add(Message.ORDER_DOES_NOT_MATCH_BATCH);
+            checkEnterOrderRqFields(enterOrderRq, security, broker, shareholder, errors);
+        } finally {
+            latencyRecorder.stop(Stage.VALIDATION, start);
+        }
+    }
+
+    private void checkEnterOrderRqFields(EnterOrderRq enterOrderRq) throws InvalidRequestException {
+        checkEnterOrderRqFields(enterOrderRq,
+                securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin()),
+                brokerRepository.findBrokerById(enterOrderRq.getBrokerId()),
+                shareholderRepository.findShareholderById(enterOrderRq.getShareholderId()),
+                new LinkedList<>());
+    }
+
+    private void checkEnterOrderRqFields(EnterOrderRq enterOrderRq, Security security, Broker broker, Shareholder shareholder, List<String> errors) throws InvalidRequestException {
         if (enterOrderRq.getQuantity() < enterOrderRq.getMinimumExecutionQuantity()){
             errors.add(Message.INVALID_MINIMUM_TRADE_VALUE);
         }
@@ -42,7 +92,6 @@ public class OrderValidator {
         if (enterOrderRq.getPrice() <= 0)
             errors.add(Message.ORDER_PRICE_NOT_POSITIVE);
 
-        Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
         if (security == null)
             errors.add(Message.UNKNOWN_SECURITY_ISIN);
         else {
@@ -51,9 +100,9 @@ public class OrderValidator {
             if (enterOrderRq.getPrice() % security.getTickSize() != 0)
                 errors.add(Message.PRICE_NOT_MULTIPLE_OF_TICK_SIZE);
         }
-        if (brokerRepository.findBrokerById(enterOrderRq.getBrokerId()) == null)
+        if (broker == null)
             errors.add(Message.UNKNOWN_BROKER_ID);
-        if (shareholderRepository.findShareholderById(enterOrderRq.getShareholderId()) == null)
+        if (shareholder == null)
             errors.add(Message.UNKNOWN_SHAREHOLDER_ID);
         if (enterOrderRq.getPeakSize() < 0 || enterOrderRq.getPeakSize() >= enterOrderRq.getQuantity())
             errors.add(Message.INVALID_PEAK_SIZE);
@@ -61,8 +110,33 @@ public class OrderValidator {
         if (!errors.isEmpty()) {
             throw new InvalidRequestException(errors);
         }
-        else if (security.isInAuctionMatchingState() && enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER){
-            errors = validateEnterOrderRqForNewOrderInAuctionState(enterOrderRq);
+    }
+
+    public void validateEnterOrderRqState(EnterOrderRq enterOrderRq) throws InvalidRequestException {
+        long start = latencyRecorder.start(Stage.VALIDATION);
+        try {
+            checkEnterOrderRqState(enterOrderRq);
+        } finally {
+            latencyRecorder.stop(Stage.VALIDATION, start);
+        }
+    }
+
+    public void validateEnterOrderRqState(EnterOrderRq enterOrderRq, Security security) throws InvalidRequestException {
+        long start = latencyRecorder.start(Stage.VALIDATION);
+        try {
+            checkEnterOrderRqState(enterOrderRq, security);
+        } finally {
+            latencyRecorder.stop(Stage.VALIDATION, start);
+        }
+    }
+
+    private void checkEnterOrderRqState(EnterOrderRq enterOrderRq) throws InvalidRequestException {
+        checkEnterOrderRqState(enterOrderRq, securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin()));
+    }
+
+    private void checkEnterOrderRqState(EnterOrderRq enterOrderRq, Security security) throws InvalidRequestException {
+        if (security.isInAuctionMatchingState() && enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER){
+            List<String> errors = validateEnterOrderRqForNewOrderInAuctionState(enterOrderRq);
             if (!errors.isEmpty()){
                 throw new InvalidRequestException(errors);
             }
@@ -70,6 +144,15 @@ public class OrderValidator {
     }
 
     public void validateDeleteOrderRq(DeleteOrderRq deleteOrderRq) throws InvalidRequestException {
+        long start = latencyRecorder.start(Stage.VALIDATION);
+        try {
+            checkDeleteOrderRq(deleteOrderRq);
+        } finally {
+            latencyRecorder.stop(Stage.VALIDATION, start);
+        }
+    }
+
+    private void checkDeleteOrderRq(DeleteOrderRq deleteOrderRq) throws InvalidRequestException {
         List<String> errors = new LinkedList<>();
         if (deleteOrderRq.getOrderId() <= 0)
             errors.add(Message.INVALID_ORDER_ID);
@@ -78,6 +161,29 @@ public class OrderValidator {
         if (!errors.isEmpty())
             throw new InvalidRequestException(errors);
     }
+    public void validateMassCancelRq(MassCancelRq massCancelRq) throws InvalidRequestException {
+        long start = latencyRecorder.start(Stage.VALIDATION);
+        try {
+            checkMassCancelRq(massCancelRq);
+        } finally {
+            latencyRecorder.stop(Stage.VALIDATION, start);
+        }
+    }
+
+    private void checkMassCancelRq(MassCancelRq massCancelRq) throws InvalidRequestException {
+        List<String> errors = new LinkedList<>();
+        if (massCancelRq.getSecurityIsin() == null && massCancelRq.getBrokerId() == null && massCancelRq.getShareholderId() == null)
+            errors.add(Message.MASS_CANCEL_SCOPE_NOT_SPECIFIED);
+        if (massCancelRq.getSecurityIsin() != null && securityRepository.findSecurityByIsin(massCancelRq.getSecurityIsin()) == null)
+            errors.add(Message.UNKNOWN_SECURITY_ISIN);
+        if (massCancelRq.getBrokerId() != null && brokerRepository.findBrokerById(massCancelRq.getBrokerId()) == null)
+            errors.add(Message.UNKNOWN_BROKER_ID);
+        if (massCancelRq.getShareholderId() != null && shareholderRepository.findShareholderById(massCancelRq.getShareholderId()) == null)
+            errors.add(Message.UNKNOWN_SHAREHOLDER_ID);
+        if (!errors.isEmpty())
+            throw new InvalidRequestException(errors);
+    }
+
     public List<String> validateEnterOrderRqForNewOrderInAuctionState(EnterOrderRq enterOrderRq) throws InvalidRequestException{
         List<String> errors = new LinkedList<>();
         if(enterOrderRq.getMinimumExecutionQuantity() > 0) {
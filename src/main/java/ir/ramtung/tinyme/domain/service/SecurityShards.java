@@ -0,0 +1,91 @@
+package ir.ramtung.tinyme.domain.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+public class SecurityShards {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final ExecutorService[] shards;
+
+    public SecurityShards(@Value("${shardCount:4}") int shardCount) {
+        if (shardCount < 1)
+            throw new IllegalArgumentException("shardCount must be positive");
+        shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String threadName = "security-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, threadName));
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public int shardOf(String securityIsin) {
+        return securityIsin == null ? 0 : Math.floorMod(securityIsin.hashCode(), shards.length);
+    }
+
+    public Future<?> submit(String securityIsin, Runnable task) {
+        return submit(shardOf(securityIsin), "Request for " + securityIsin, task);
+    }
+
+    public Future<?> submitToShard(int shard, Runnable task) {
+        return submit(shard, "Request on shard " + shard, task);
+    }
+
+    private Future<?> submit(int shard, String description, Runnable task) {
+        return shards[shard].submit(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                log.log(Level.SEVERE, description + " failed", ex);
+                throw ex;
+            }
+        });
+    }
+
+    public void quiesce(Runnable action) throws InterruptedException {
+        CountDownLatch parked = new CountDownLatch(shards.length);
+        CountDownLatch released = new CountDownLatch(1);
+        for (ExecutorService shard : shards) {
+            shard.submit(() -> {
+                parked.countDown();
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        released.await();
+                        break;
+                    } catch (InterruptedException ex) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted)
+                    Thread.currentThread().interrupt();
+            });
+        }
+        try {
+            parked.await();
+            action.run();
+        } finally {
+            released.countDown();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ExecutorService shard : shards)
+            shard.shutdown();
+        for (ExecutorService shard : shards)
+            shard.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
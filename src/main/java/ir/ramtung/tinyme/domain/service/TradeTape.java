@@ -0,0 +1,112 @@
+package ir.ramtung.tinyme.domain.service;
+
+import ir.ramtung.tinyme.domain.entity.Bar;
+import ir.ramtung.tinyme.domain.entity.BarSeries;
+import ir.ramtung.tinyme.domain.entity.TapeTrade;
+import ir.ramtung.tinyme.domain.entity.Trade;
+import ir.ramtung.tinyme.domain.entity.TradeRing;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+@Component
+public class TradeTape {
+    public static final TradeTape DISABLED = new TradeTape(false, 1, "", 1, System::currentTimeMillis);
+
+    private final boolean enabled;
+    private final int capacity;
+    private final long[] barIntervalsMillis;
+    private final int barHistory;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, SecurityTape> tapes = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TradeTape(@Value("${tradeTape.enabled:false}") boolean enabled,
+                     @Value("${tradeTape.capacity:4096}") int capacity,
+                     @Value("${tradeTape.barIntervals:1s,1m,5m}") String barIntervals,
+                     @Value("${tradeTape.barHistory:120}") int barHistory) {
+        this(enabled, capacity, barIntervals, barHistory, System::currentTimeMillis);
+    }
+
+    public TradeTape(boolean enabled, int capacity, String barIntervals, int barHistory, LongSupplier clock) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.barIntervalsMillis = Arrays.stream(barIntervals.split(","))
+                .map(String::trim)
+                .filter(interval -> !interval.isEmpty())
+                .mapToLong(interval -> DurationStyle.detectAndParse(interval).toMillis())
+                .toArray();
+        this.barHistory = barHistory;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void record(Trade trade) {
+        if (enabled)
+            record(trade.getSecurity().getIsin(), trade.getPrice(), trade.getQuantity(), trade.getBuy().getOrderId(), trade.getSell().getOrderId());
+    }
+
+    public void record(String securityIsin, int price, int quantity, long buyOrderId, long sellOrderId) {
+        if (!enabled)
+            return;
+        SecurityTape tape = tapeOf(securityIsin);
+        long now = clock.getAsLong();
+        tape.trades.add(now, price, quantity, buyOrderId, sellOrderId);
+        for (BarSeries series : tape.bars)
+            series.add(now, price, quantity);
+    }
+
+    public List<TapeTrade> recentTrades(String securityIsin, int limit) {
+        SecurityTape tape = tapes.get(securityIsin);
+        return tape == null ? List.of() : tape.trades.recent(limit);
+    }
+
+    public List<Bar> recentBars(String securityIsin, Duration interval, int limit) {
+        BarSeries series = seriesOf(securityIsin, interval);
+        return series == null ? List.of() : series.recent(limit);
+    }
+
+    public Bar currentBar(String securityIsin, Duration interval) {
+        BarSeries series = seriesOf(securityIsin, interval);
+        return series == null ? null : series.current();
+    }
+
+    private BarSeries seriesOf(String securityIsin, Duration interval) {
+        SecurityTape tape = tapes.get(securityIsin);
+        if (tape == null)
+            return null;
+        for (BarSeries series : tape.bars)
+            if (series.intervalMillis() == interval.toMillis())
+                return series;
+        throw new IllegalArgumentException("No bars are kept for interval " + interval);
+    }
+
+    private SecurityTape tapeOf(String securityIsin) {
+        SecurityTape tape = tapes.get(securityIsin);
+        if (tape == null)
+            tape = tapes.computeIfAbsent(securityIsin, isin -> new SecurityTape(capacity, barIntervalsMillis, barHistory));
+        return tape;
+    }
+
+    private static class SecurityTape {
+        private final TradeRing trades;
+        private final BarSeries[] bars;
+
+        private SecurityTape(int capacity, long[] barIntervalsMillis, int barHistory) {
+            trades = new TradeRing(capacity);
+            bars = new BarSeries[barIntervalsMillis.length];
+            for (int i = 0; i < bars.length; i++)
+                bars[i] = new BarSeries(barIntervalsMillis[i], barHistory);
+        }
+    }
+}
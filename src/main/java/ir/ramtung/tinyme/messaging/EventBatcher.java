@@ -0,0 +1,108 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class EventBatcher implements Runnable {
+    private static final Object FLUSH = new Object();
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Consumer<List<Event>> sink;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    EventBatcher(Consumer<List<Event>> sink, int maxBatchSize, long maxLatencyMillis) {
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        this.sink = sink;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        this.thread = new Thread(this, "event-batcher");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void add(Event event) {
+        queue.add(List.of(event));
+    }
+
+    void addAll(List<Event> events) {
+        if (!events.isEmpty())
+            queue.add(List.copyOf(events));
+    }
+
+    void flush() {
+        queue.add(FLUSH);
+    }
+
+    long droppedEvents() {
+        return droppedEvents.get();
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join(10_000);
+    }
+
+    @Override
+    public void run() {
+        List<Event> batch = new ArrayList<>(maxBatchSize);
+        long deadline = 0;
+        while (running || !queue.isEmpty()) {
+            Object item;
+            try {
+                if (batch.isEmpty())
+                    item = queue.poll(100, TimeUnit.MILLISECONDS);
+                else
+                    item = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                item = queue.poll();
+            }
+            if (item == null) {
+                if (!batch.isEmpty() && System.nanoTime() - deadline >= 0)
+                    batch = send(batch);
+            } else if (item == FLUSH) {
+                if (!batch.isEmpty())
+                    batch = send(batch);
+            } else {
+                @SuppressWarnings("unchecked")
+                List<Event> unit = (List<Event>) item;
+                if (!batch.isEmpty() && batch.size() + unit.size() > maxBatchSize)
+                    batch = send(batch);
+                if (batch.isEmpty())
+                    deadline = System.nanoTime() + maxLatencyNanos;
+                batch.addAll(unit);
+                if (batch.size() >= maxBatchSize)
+                    batch = send(batch);
+            }
+        }
+        if (!batch.isEmpty())
+            send(batch);
+    }
+
+    private List<Event> send(List<Event> batch) {
+        try {
+            sink.accept(batch);
+        } catch (RuntimeException ex) {
+            droppedEvents.addAndGet(batch.size());
+            log.log(Level.SEVERE, "Dropped a batch of " + batch.size() + " events", ex);
+        }
+        return new ArrayList<>(maxBatchSize);
+    }
+}
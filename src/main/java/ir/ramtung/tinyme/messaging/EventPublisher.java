@@ -1,10 +1,25 @@
 package ir.ramtung.tinyme.messaging;
 
+import ir.ramtung.tinyme.messaging.codec.WireMessageConverter;
 import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.metrics.LatencyRecorder;
+import ir.ramtung.tinyme.metrics.Stage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.jms.Connection;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.JmsUtils;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Component
@@ -13,13 +28,193 @@ public class EventPublisher {
     private final JmsTemplate jmsTemplate;
     @Value("${responseQueue}")
     private String responseQueue;
+    @Value("${eventPublisher.batched:false}")
+    private boolean batched;
+    @Value("${eventPublisher.maxBatchSize:64}")
+    private int maxBatchSize;
+    @Value("${eventPublisher.maxLatencyMillis:2}")
+    private long maxLatencyMillis;
+    @Value("${eventPublisher.sendAttempts:3}")
+    private int sendAttempts;
+    @Autowired(required = false)
+    private LatencyRecorder latencyRecorder = LatencyRecorder.DISABLED;
+    private final ThreadLocal<List<Event>> capturedEvents = new ThreadLocal<>();
+    private EventBatcher batcher;
+    private Connection batchConnection;
+    private Session batchSession;
+    private MessageProducer batchProducer;
 
     public EventPublisher(JmsTemplate jmsTemplate) {
         this.jmsTemplate = jmsTemplate;
     }
 
+    @PostConstruct
+    public void startBatching() {
+        if (batched) {
+            batcher = new EventBatcher(this::sendTransacted, maxBatchSize, maxLatencyMillis);
+            batcher.start();
+        }
+    }
+
+    @PreDestroy
+    public void stopBatching() throws InterruptedException {
+        if (batcher != null) {
+            batcher.stop();
+            closeBatchSession();
+        }
+    }
+
     public void publish(Event event) {
-        log.info("Published : " + event);
-        jmsTemplate.convertAndSend(responseQueue, event);
+        List<Event> captured = capturedEvents.get();
+        if (captured != null) {
+            captured.add(event);
+            return;
+        }
+        send(event);
+    }
+
+    public void send(Event event) {
+        if (event instanceof TopicEvent topicEvent) {
+            flush();
+            sendToTopic(topicEvent.getTopic(), topicEvent.getEvent());
+            return;
+        }
+        long start = latencyRecorder.start(Stage.PUBLISH);
+        try {
+            if (batcher != null) {
+                batcher.add(event);
+                return;
+            }
+            log.info("Published : " + event);
+            jmsTemplate.send(responseQueue, session -> toMessage(event, session));
+        } finally {
+            latencyRecorder.stop(Stage.PUBLISH, start);
+        }
+    }
+
+    public void sendAll(List<Event> events) {
+        List<TopicEvent> topicEvents = null;
+        for (Event event : events) {
+            if (event instanceof TopicEvent) {
+                topicEvents = new ArrayList<>();
+                break;
+            }
+        }
+        if (topicEvents != null) {
+            List<Event> queued = new ArrayList<>(events.size());
+            for (Event event : events) {
+                if (event instanceof TopicEvent topicEvent)
+                    topicEvents.add(topicEvent);
+                else
+                    queued.add(event);
+            }
+            sendAllToQueue(queued);
+            flush();
+            for (TopicEvent topicEvent : topicEvents)
+                sendToTopic(topicEvent.getTopic(), topicEvent.getEvent());
+            return;
+        }
+        sendAllToQueue(events);
+    }
+
+    private void sendAllToQueue(List<Event> events) {
+        if (events.isEmpty())
+            return;
+        long start = latencyRecorder.start(Stage.PUBLISH);
+        try {
+            if (batcher != null) {
+                batcher.addAll(events);
+                return;
+            }
+            jmsTemplate.execute(session -> {
+                try (MessageProducer producer = session.createProducer(session.createQueue(responseQueue))) {
+                    for (Event event : events)
+                        producer.send(toMessage(event, session));
+                }
+                return null;
+            }, true);
+            log.info("Published " + events.size() + " events");
+        } finally {
+            latencyRecorder.stop(Stage.PUBLISH, start);
+        }
+    }
+
+    public void publishToTopic(String topic, Event event) {
+        List<Event> captured = capturedEvents.get();
+        if (captured != null) {
+            captured.add(new TopicEvent(topic, event));
+            return;
+        }
+        sendToTopic(topic, event);
+    }
+
+    public void sendToTopic(String topic, Event event) {
+        jmsTemplate.execute(session -> {
+            try (MessageProducer producer = session.createProducer(session.createTopic(topic))) {
+                producer.send(toMessage(event, session, topic));
+            }
+            return null;
+        }, true);
+    }
+
+    public void flush() {
+        if (batcher != null)
+            batcher.flush();
+    }
+
+    public void captureInto(List<Event> events) {
+        capturedEvents.set(events);
+    }
+
+    public void stopCapturing() {
+        capturedEvents.remove();
+    }
+
+    private Message toMessage(Event event, Session session) throws JMSException {
+        return toMessage(event, session, responseQueue);
+    }
+
+    private Message toMessage(Event event, Session session, String destination) throws JMSException {
+        if (jmsTemplate.getMessageConverter() instanceof WireMessageConverter wireMessageConverter)
+            return wireMessageConverter.toMessage(event, session, destination);
+        return jmsTemplate.getMessageConverter().toMessage(event, session);
+    }
+
+    private void sendTransacted(List<Event> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (batchSession == null) {
+                    batchConnection = jmsTemplate.getConnectionFactory().createConnection();
+                    batchSession = batchConnection.createSession(true, Session.SESSION_TRANSACTED);
+                    batchProducer = batchSession.createProducer(batchSession.createQueue(responseQueue));
+                }
+                for (Event event : batch)
+                    batchProducer.send(toMessage(event, batchSession));
+                batchSession.commit();
+                log.info("Published a batch of " + batch.size() + " events");
+                return;
+            } catch (JMSException ex) {
+                closeBatchSession();
+                if (attempt >= sendAttempts)
+                    throw JmsUtils.convertJmsAccessException(ex);
+                log.log(Level.WARNING, "Could not publish a batch of " + batch.size() + " events, retrying", ex);
+            }
+        }
+    }
+
+    public long droppedEvents() {
+        return batcher == null ? 0 : batcher.droppedEvents();
+    }
+
+    private void closeBatchSession() {
+        try {
+            if (batchConnection != null)
+                batchConnection.close();
+        } catch (JMSException ex) {
+            log.log(Level.WARNING, "Could not close the batch connection", ex);
+        }
+        batchConnection = null;
+        batchSession = null;
+        batchProducer = null;
     }
 }
@@ -0,0 +1,7 @@
+package ir.ramtung.tinyme.messaging;
+
+public enum LevelAction {
+    ADD,
+    CHANGE,
+    DELETE
+}
@@ -0,0 +1,11 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+
+public record LevelUpdate(
+    LevelAction action,
+    Side side,
+    int price,
+    long quantity,
+    int orderCount) {
+}
@@ -0,0 +1,196 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.OrderBook;
+import ir.ramtung.tinyme.domain.entity.PriceLevel;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.entity.TopOfBook;
+import ir.ramtung.tinyme.messaging.event.MarketDepthSnapshotEvent;
+import ir.ramtung.tinyme.messaging.event.MarketDepthUpdateEvent;
+import ir.ramtung.tinyme.messaging.event.TopOfBookEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+@Component
+public class MarketDataPublisher {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final EventPublisher eventPublisher;
+    private final boolean enabled;
+    private final boolean topOfBookEnabled;
+    private final String topic;
+    private final long conflationNanos;
+    private final ConcurrentHashMap<String, Feed> feeds = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public MarketDataPublisher(EventPublisher eventPublisher,
+                               @Value("${marketData.enabled:false}") boolean enabled,
+                               @Value("${marketData.topOfBook.enabled:false}") boolean topOfBookEnabled,
+                               @Value("${marketData.topic:MD}") String topic,
+                               @Value("${marketData.conflationMillis:0}") long conflationMillis) {
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.topOfBookEnabled = topOfBookEnabled;
+        this.topic = topic;
+        this.conflationNanos = TimeUnit.MILLISECONDS.toNanos(conflationMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled && conflationNanos > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "market-data-conflation");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+        for (Feed feed : feeds.values())
+            flushScheduled(feed);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void onBookChanged(Security security) {
+        if (topOfBookEnabled)
+            publishTopOfBookChange(security);
+        if (!enabled)
+            return;
+        Feed feed = feedOf(security);
+        synchronized (feed) {
+            feed.collect(security.getOrderBook());
+            long now = System.nanoTime();
+            long elapsed = now - feed.lastFlushNanos;
+            if (scheduler == null || elapsed >= conflationNanos) {
+                flush(feed, now);
+            } else if (!feed.flushScheduled) {
+                feed.flushScheduled = true;
+                scheduler.schedule(() -> flushScheduled(feed), conflationNanos - elapsed, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    public void publishSnapshot(Security security) {
+        if (!enabled) {
+            log.warning("Ignored depth snapshot request for " + security.getIsin() + " while market data is disabled");
+            return;
+        }
+        Feed feed = feedOf(security);
+        synchronized (feed) {
+            feed.collect(security.getOrderBook());
+            flush(feed, System.nanoTime());
+            List<LevelUpdate> levels = new ArrayList<>(feed.bids.size() + feed.asks.size());
+            feed.bids.forEach((price, level) -> levels.add(level.toUpdate(LevelAction.ADD, Side.BUY, price)));
+            feed.asks.forEach((price, level) -> levels.add(level.toUpdate(LevelAction.ADD, Side.SELL, price)));
+            eventPublisher.publishToTopic(topic, new MarketDepthSnapshotEvent(feed.securityIsin, feed.sequence, levels));
+        }
+    }
+
+    private void publishTopOfBookChange(Security security) {
+        TopOfBook topOfBook = security.getOrderBook().takeTopOfBookChange();
+        if (topOfBook != null)
+            eventPublisher.publishToTopic(topic, new TopOfBookEvent(security.getIsin(), topOfBook));
+    }
+
+    private Feed feedOf(Security security) {
+        return feeds.computeIfAbsent(security.getIsin(), isin -> {
+            security.getOrderBook().trackLevelChanges();
+            return new Feed(isin, System.nanoTime() - conflationNanos);
+        });
+    }
+
+    private void flushScheduled(Feed feed) {
+        synchronized (feed) {
+            feed.flushScheduled = false;
+            flush(feed, System.nanoTime());
+        }
+    }
+
+    private void flush(Feed feed, long now) {
+        List<LevelUpdate> updates = new ArrayList<>();
+        feed.diff(Side.BUY, updates);
+        feed.diff(Side.SELL, updates);
+        if (updates.isEmpty())
+            return;
+        feed.lastFlushNanos = now;
+        feed.sequence++;
+        eventPublisher.publishToTopic(topic, new MarketDepthUpdateEvent(feed.securityIsin, feed.sequence, updates));
+    }
+
+    private record Level(long quantity, int orderCount) {
+        static final Level EMPTY = new Level(0, 0);
+
+        LevelUpdate toUpdate(LevelAction action, Side side, int price) {
+            return new LevelUpdate(action, side, price, quantity, orderCount);
+        }
+    }
+
+    private static class Feed {
+        private final String securityIsin;
+        private final TreeMap<Integer, Level> bids = new TreeMap<>(Comparator.reverseOrder());
+        private final TreeMap<Integer, Level> asks = new TreeMap<>();
+        private final HashMap<Integer, Level> pendingBids = new HashMap<>();
+        private final HashMap<Integer, Level> pendingAsks = new HashMap<>();
+        private long sequence;
+        private long lastFlushNanos;
+        private boolean flushScheduled;
+
+        private Feed(String securityIsin, long lastFlushNanos) {
+            this.securityIsin = securityIsin;
+            this.lastFlushNanos = lastFlushNanos;
+        }
+
+        private void collect(OrderBook orderBook) {
+            for (Side side : Side.values()) {
+                HashMap<Integer, Level> pending = side == Side.BUY ? pendingBids : pendingAsks;
+                orderBook.drainChangedPrices(side, price -> {
+                    PriceLevel level = orderBook.getLevel(side, price);
+                    pending.put(price, level == null ? Level.EMPTY : new Level(level.getTotalQuantity(), level.size()));
+                });
+            }
+        }
+
+        private void diff(Side side, List<LevelUpdate> updates) {
+            HashMap<Integer, Level> pending = side == Side.BUY ? pendingBids : pendingAsks;
+            TreeMap<Integer, Level> published = side == Side.BUY ? bids : asks;
+            for (Map.Entry<Integer, Level> entry : pending.entrySet()) {
+                int price = entry.getKey();
+                Level current = entry.getValue();
+                Level previous = published.get(price);
+                if (current.quantity() == 0) {
+                    if (previous != null) {
+                        published.remove(price);
+                        updates.add(Level.EMPTY.toUpdate(LevelAction.DELETE, side, price));
+                    }
+                } else if (previous == null) {
+                    published.put(price, current);
+                    updates.add(current.toUpdate(LevelAction.ADD, side, price));
+                } else if (!previous.equals(current)) {
+                    published.put(price, current);
+                    updates.add(current.toUpdate(LevelAction.CHANGE, side, price));
+                }
+            }
+            pending.clear();
+        }
+    }
+}
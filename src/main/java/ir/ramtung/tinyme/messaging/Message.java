@@ -30,4 +30,12 @@ public class Message {
 
     public static final String DELETE_UNACTIVATED_STOP_LIMIT_ORDER_NOT_ALLOWED_IN_AUCTION_MODE = "Delete unactivated stop limit order is not possible in auction mode";
 
+    public static final String ORDER_DOES_NOT_MATCH_BATCH = "Order security, broker or shareholder does not match its batch";
+
+    public static final String BATCH_HAS_NO_ORDERS = "Batch has no orders";
+
+    public static final String MASS_CANCEL_SCOPE_NOT_SPECIFIED = "Mass cancel needs a security, broker or shareholder";
+
+    public static final String MASS_CANCEL_INCOMPLETE = "Mass cancel failed on some securities; only the reported orders were cancelled";
+
 }
@@ -1,18 +1,23 @@
 package ir.ramtung.tinyme.messaging;
 
+import ir.ramtung.tinyme.messaging.codec.BinaryCodec;
+import ir.ramtung.tinyme.messaging.codec.WireMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
 import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.jms.support.converter.MessageType;
 
+import java.util.Set;
+
 @Configuration
 public class MessagingConfig {
     @Bean
-    public MessageConverter jacksonJmsMessageConverter() {
+    public MessageConverter wireMessageConverter(@Value("${wireFormat.binaryQueues:}") Set<String> binaryQueues) {
         MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
         converter.setTargetType(MessageType.TEXT);
-        converter.setTypeIdPropertyName("_type");
-        return converter;
+        converter.setTypeIdPropertyName(WireMessageConverter.TYPE_PROPERTY);
+        return new WireMessageConverter(converter, new BinaryCodec(), binaryQueues);
     }
 }
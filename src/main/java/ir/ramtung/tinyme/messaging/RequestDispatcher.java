@@ -1,31 +1,136 @@
 package ir.ramtung.tinyme.messaging;
 
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.MassCancelCompletedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.request.BatchEnterOrderRq;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MarketDepthSnapshotRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
 import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.domain.service.SecurityShards;
+import ir.ramtung.tinyme.metrics.LatencyRecorder;
+import ir.ramtung.tinyme.metrics.Stage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 @Component
+@ConditionalOnProperty(name = "requestPipeline", havingValue = "false", matchIfMissing = true)
 public class RequestDispatcher {
     private final Logger log = Logger.getLogger(this.getClass().getName());
     private final OrderHandler orderHandler;
+    private final SecurityShards securityShards;
+    private final EventPublisher eventPublisher;
+    @Autowired(required = false)
+    private LatencyRecorder latencyRecorder = LatencyRecorder.DISABLED;
 
-    public RequestDispatcher(OrderHandler orderHandler) {
+    public RequestDispatcher(OrderHandler orderHandler, SecurityShards securityShards, EventPublisher eventPublisher) {
         this.orderHandler = orderHandler;
+        this.securityShards = securityShards;
+        this.eventPublisher = eventPublisher;
     }
 
     @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.EnterOrderRq'")
     public void receiveEnterOrderRq(EnterOrderRq enterOrderRq) {
         log.info("Received message: " + enterOrderRq);
-        orderHandler.handleEnterOrder(enterOrderRq);
+        long start = latencyRecorder.start(Stage.REQUEST);
+        securityShards.submit(enterOrderRq.getSecurityIsin(), () -> {
+            publishAsOneUnit(captureEvents(() -> orderHandler.handleEnterOrder(enterOrderRq)));
+            latencyRecorder.stop(Stage.REQUEST, start);
+        });
+    }
+
+    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.BatchEnterOrderRq'")
+    public void receiveBatchEnterOrderRq(BatchEnterOrderRq batchEnterOrderRq) {
+        List<EnterOrderRq> orders = batchEnterOrderRq.getOrders();
+        log.info("Received batch of " + (orders == null ? 0 : orders.size()) + " orders for " + batchEnterOrderRq.getSecurityIsin());
+        long start = latencyRecorder.start(Stage.REQUEST);
+        securityShards.submit(batchEnterOrderRq.getSecurityIsin(), () -> {
+            publishAsOneUnit(captureEvents(() -> orderHandler.handleBatchEnterOrder(batchEnterOrderRq)));
+            latencyRecorder.stop(Stage.REQUEST, start);
+        });
     }
 
     @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.DeleteOrderRq'")
     public void receiveDeleteOrderRq(DeleteOrderRq deleteOrderRq) {
         log.info("Received message: " + deleteOrderRq);
-        orderHandler.handleDeleteOrder(deleteOrderRq);
+        long start = latencyRecorder.start(Stage.REQUEST);
+        securityShards.submit(deleteOrderRq.getSecurityIsin(), () -> {
+            publishAsOneUnit(captureEvents(() -> orderHandler.handleDeleteOrder(deleteOrderRq)));
+            latencyRecorder.stop(Stage.REQUEST, start);
+        });
+    }
+
+    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.MassCancelRq'")
+    public void receiveMassCancelRq(MassCancelRq massCancelRq) {
+        log.info("Received message: " + massCancelRq);
+        if (massCancelRq.getSecurityIsin() != null) {
+            securityShards.submit(massCancelRq.getSecurityIsin(),
+                    () -> publishAsOneUnit(captureEvents(() -> orderHandler.handleMassCancel(massCancelRq))));
+            return;
+        }
+        if (!orderHandler.validateMassCancel(massCancelRq)) {
+            eventPublisher.flush();
+            return;
+        }
+        List<Event> events = new ArrayList<>();
+        AtomicInteger cancelledOrders = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicInteger pendingShards = new AtomicInteger(securityShards.shardCount());
+        for (int shard = 0; shard < securityShards.shardCount(); shard++) {
+            int owner = shard;
+            securityShards.submitToShard(owner, () -> {
+                List<Event> shardEvents = new ArrayList<>();
+                eventPublisher.captureInto(shardEvents);
+                try {
+                    cancelledOrders.addAndGet(orderHandler.cancelOrdersOnShard(massCancelRq, isin -> securityShards.shardOf(isin) == owner));
+                } catch (RuntimeException ex) {
+                    failed.set(true);
+                    throw ex;
+                } finally {
+                    eventPublisher.stopCapturing();
+                    synchronized (events) {
+                        events.addAll(shardEvents);
+                    }
+                    if (pendingShards.decrementAndGet() == 0) {
+                        if (failed.get())
+                            events.add(new OrderRejectedEvent(massCancelRq.getRequestId(), 0, List.of(Message.MASS_CANCEL_INCOMPLETE)));
+                        events.add(new MassCancelCompletedEvent(massCancelRq.getRequestId(), cancelledOrders.get()));
+                        publishAsOneUnit(events);
+                    }
+                }
+            });
+        }
+    }
+
+    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.MarketDepthSnapshotRq'")
+    public void receiveMarketDepthSnapshotRq(MarketDepthSnapshotRq marketDepthSnapshotRq) {
+        log.info("Received message: " + marketDepthSnapshotRq);
+        securityShards.submit(marketDepthSnapshotRq.getSecurityIsin(), () -> orderHandler.handleMarketDepthSnapshot(marketDepthSnapshotRq));
+    }
+
+    private List<Event> captureEvents(Runnable handling) {
+        List<Event> events = new ArrayList<>();
+        eventPublisher.captureInto(events);
+        try {
+            handling.run();
+        } finally {
+            eventPublisher.stopCapturing();
+        }
+        return events;
+    }
+
+    private void publishAsOneUnit(List<Event> events) {
+        eventPublisher.sendAll(events);
+        eventPublisher.flush();
     }
 }
@@ -0,0 +1,20 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@EqualsAndHashCode(callSuper = false)
+class TopicEvent extends Event {
+    private final String topic;
+    private final Event event;
+
+    TopicEvent(String topic, Event event) {
+        super(event.getTime());
+        this.topic = topic;
+        this.event = event;
+    }
+}
@@ -0,0 +1,457 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.LevelAction;
+import ir.ramtung.tinyme.messaging.LevelUpdate;
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.*;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BinaryCodec {
+    public static final byte VERSION = 1;
+
+    private static final byte ENTER_ORDER_RQ = 1;
+    private static final byte DELETE_ORDER_RQ = 2;
+    private static final byte CHANGE_MATCHING_STATE_RQ = 3;
+    private static final byte BATCH_ENTER_ORDER_RQ = 4;
+    private static final byte MASS_CANCEL_RQ = 5;
+    private static final byte OPENING_PRICE_EVENT = 16;
+    private static final byte ORDER_ACCEPTED_EVENT = 17;
+    private static final byte ORDER_ACTIVATED_EVENT = 18;
+    private static final byte ORDER_DELETED_EVENT = 19;
+    private static final byte ORDER_EXECUTED_EVENT = 20;
+    private static final byte ORDER_REJECTED_EVENT = 21;
+    private static final byte ORDER_UPDATED_EVENT = 22;
+    private static final byte SECURITY_STATE_CHANGED_EVENT = 23;
+    private static final byte TRADE_EVENT = 24;
+    private static final byte TOP_OF_BOOK_EVENT = 25;
+    private static final byte MASS_CANCEL_COMPLETED_EVENT = 26;
+    private static final byte MARKET_DEPTH_UPDATE_EVENT = 27;
+    private static final byte MARKET_DEPTH_SNAPSHOT_EVENT = 28;
+
+    private static final Side[] SIDES = Side.values();
+    private static final OrderEntryType[] ENTRY_TYPES = OrderEntryType.values();
+    private static final MatchingState[] MATCHING_STATES = MatchingState.values();
+    private static final LevelAction[] LEVEL_ACTIONS = LevelAction.values();
+    private static final int ENTER_ORDER_RQ_MIN_SIZE = 70;
+    private static final int TRADE_MIN_SIZE = 28;
+    private static final int STRING_MIN_SIZE = 4;
+    private static final int LEVEL_UPDATE_SIZE = 18;
+
+    public boolean supports(Class<?> type) {
+        return tagOf(type) != 0;
+    }
+
+    private static byte tagOf(Class<?> type) {
+        if (type == EnterOrderRq.class) return ENTER_ORDER_RQ;
+        if (type == DeleteOrderRq.class) return DELETE_ORDER_RQ;
+        if (type == ChangeMatchingStateRq.class) return CHANGE_MATCHING_STATE_RQ;
+        if (type == BatchEnterOrderRq.class) return BATCH_ENTER_ORDER_RQ;
+        if (type == MassCancelRq.class) return MASS_CANCEL_RQ;
+        if (type == OpeningPriceEvent.class) return OPENING_PRICE_EVENT;
+        if (type == OrderAcceptedEvent.class) return ORDER_ACCEPTED_EVENT;
+        if (type == OrderActivatedEvent.class) return ORDER_ACTIVATED_EVENT;
+        if (type == OrderDeletedEvent.class) return ORDER_DELETED_EVENT;
+        if (type == OrderExecutedEvent.class) return ORDER_EXECUTED_EVENT;
+        if (type == OrderRejectedEvent.class) return ORDER_REJECTED_EVENT;
+        if (type == OrderUpdatedEvent.class) return ORDER_UPDATED_EVENT;
+        if (type == SecurityStateChangedEvent.class) return SECURITY_STATE_CHANGED_EVENT;
+        if (type == TradeEvent.class) return TRADE_EVENT;
+        if (type == TopOfBookEvent.class) return TOP_OF_BOOK_EVENT;
+        if (type == MassCancelCompletedEvent.class) return MASS_CANCEL_COMPLETED_EVENT;
+        if (type == MarketDepthUpdateEvent.class) return MARKET_DEPTH_UPDATE_EVENT;
+        if (type == MarketDepthSnapshotEvent.class) return MARKET_DEPTH_SNAPSHOT_EVENT;
+        return 0;
+    }
+
+    public byte[] encode(Object object) {
+        byte tag = tagOf(object.getClass());
+        if (tag == 0)
+            throw new IllegalArgumentException("No binary layout for " + object.getClass().getName());
+        Writer out = new Writer();
+        out.putByte(VERSION);
+        out.putByte(tag);
+        if (object instanceof EnterOrderRq rq) {
+            putEnterOrderRq(out, rq);
+        } else if (object instanceof BatchEnterOrderRq rq) {
+            out.putString(rq.getSecurityIsin());
+            out.putLong(rq.getBrokerId());
+            out.putLong(rq.getShareholderId());
+            List<EnterOrderRq> orders = rq.getOrders();
+            out.putCount(orders);
+            if (orders != null) {
+                for (EnterOrderRq order : orders)
+                    putEnterOrderRq(out, order);
+            }
+        } else if (object instanceof DeleteOrderRq rq) {
+            out.putLong(rq.getRequestId());
+            out.putString(rq.getSecurityIsin());
+            out.putEnum(rq.getSide());
+            out.putLong(rq.getOrderId());
+            out.putTime(rq.getEntryTime());
+        } else if (object instanceof MassCancelRq rq) {
+            out.putLong(rq.getRequestId());
+            out.putString(rq.getSecurityIsin());
+            out.putOptionalLong(rq.getBrokerId());
+            out.putOptionalLong(rq.getShareholderId());
+            out.putEnum(rq.getSide());
+        } else if (object instanceof ChangeMatchingStateRq rq) {
+            out.putString(rq.getSecurityIsin());
+            out.putEnum(rq.getTargetState());
+        } else if (object instanceof SecurityStateChangedEvent event) {
+            out.putTime(event.getTime());
+            out.putString(event.getSecurityIsin());
+            out.putEnum(event.getState());
+        } else {
+            Event event = (Event) object;
+            out.putTime(event.getTime());
+            encodeEventBody(event, out);
+        }
+        return out.toByteArray();
+    }
+
+    private static void putEnterOrderRq(Writer out, EnterOrderRq rq) {
+        out.putEnum(rq.getRequestType());
+        out.putLong(rq.getRequestId());
+        out.putString(rq.getSecurityIsin());
+        out.putLong(rq.getOrderId());
+        out.putTime(rq.getEntryTime());
+        out.putEnum(rq.getSide());
+        out.putInt(rq.getQuantity());
+        out.putInt(rq.getPrice());
+        out.putLong(rq.getBrokerId());
+        out.putLong(rq.getShareholderId());
+        out.putInt(rq.getPeakSize());
+        out.putInt(rq.getMinimumExecutionQuantity());
+        out.putInt(rq.getStopPrice());
+    }
+
+    private static void encodeEventBody(Event event, Writer out) {
+        if (event instanceof OpeningPriceEvent e) {
+            out.putString(e.getSecurityIsin());
+            out.putLong(e.getOpeningPrice());
+            out.putLong(e.getTradableQuantity());
+        } else if (event instanceof OrderAcceptedEvent e) {
+            putIds(out, e.getRequestId(), e.getOrderId());
+        } else if (event instanceof OrderActivatedEvent e) {
+            putIds(out, e.getRequestId(), e.getOrderId());
+        } else if (event instanceof OrderDeletedEvent e) {
+            putIds(out, e.getRequestId(), e.getOrderId());
+        } else if (event instanceof OrderUpdatedEvent e) {
+            putIds(out, e.getRequestId(), e.getOrderId());
+        } else if (event instanceof OrderExecutedEvent e) {
+            putIds(out, e.getRequestId(), e.getOrderId());
+            List<TradeDTO> trades = e.getTrades();
+            out.putCount(trades);
+            if (trades != null) {
+                for (TradeDTO trade : trades) {
+                    out.putString(trade.securityIsin());
+                    out.putInt(trade.price());
+                    out.putInt(trade.quantity());
+                    out.putLong(trade.buyOrderId());
+                    out.putLong(trade.sellOrderId());
+                }
+            }
+        } else if (event instanceof OrderRejectedEvent e) {
+            putIds(out, e.getRequestId(), e.getOrderId());
+            List<String> errors = e.getErrors();
+            out.putCount(errors);
+            if (errors != null) {
+                for (String error : errors)
+                    out.putString(error);
+            }
+        } else if (event instanceof TradeEvent e) {
+            out.putString(e.getSecurityIsin());
+            out.putInt(e.getPrice());
+            out.putInt(e.getQuantity());
+            out.putLong(e.getBuyId());
+            out.putLong(e.getSellId());
+        } else if (event instanceof TopOfBookEvent e) {
+            out.putString(e.getSecurityIsin());
+            out.putInt(e.getBidPrice());
+            out.putLong(e.getBidQuantity());
+            out.putInt(e.getBidOrders());
+            out.putInt(e.getAskPrice());
+            out.putLong(e.getAskQuantity());
+            out.putInt(e.getAskOrders());
+        } else if (event instanceof MassCancelCompletedEvent e) {
+            out.putLong(e.getRequestId());
+            out.putInt(e.getCancelledOrders());
+        } else if (event instanceof MarketDepthUpdateEvent e) {
+            out.putString(e.getSecurityIsin());
+            out.putLong(e.getSequence());
+            putLevels(out, e.getUpdates());
+        } else if (event instanceof MarketDepthSnapshotEvent e) {
+            out.putString(e.getSecurityIsin());
+            out.putLong(e.getSequence());
+            putLevels(out, e.getLevels());
+        }
+    }
+
+    private static void putLevels(Writer out, List<LevelUpdate> levels) {
+        out.putCount(levels);
+        if (levels != null) {
+            for (LevelUpdate level : levels) {
+                out.putEnum(level.action());
+                out.putEnum(level.side());
+                out.putInt(level.price());
+                out.putLong(level.quantity());
+                out.putInt(level.orderCount());
+            }
+        }
+    }
+
+    private static void putIds(Writer out, long requestId, long orderId) {
+        out.putLong(requestId);
+        out.putLong(orderId);
+    }
+
+    public Object decode(byte[] bytes) {
+        Reader in = new Reader(bytes);
+        byte version = in.getByte();
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unsupported binary layout version " + version);
+        byte tag = in.getByte();
+        return switch (tag) {
+            case ENTER_ORDER_RQ -> getEnterOrderRq(in);
+            case BATCH_ENTER_ORDER_RQ -> {
+                BatchEnterOrderRq rq = new BatchEnterOrderRq();
+                rq.setSecurityIsin(in.getString());
+                rq.setBrokerId(in.getLong());
+                rq.setShareholderId(in.getLong());
+                int count = in.getCount(ENTER_ORDER_RQ_MIN_SIZE);
+                List<EnterOrderRq> orders = null;
+                if (count >= 0) {
+                    orders = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++)
+                        orders.add(getEnterOrderRq(in));
+                }
+                rq.setOrders(orders);
+                yield rq;
+            }
+            case DELETE_ORDER_RQ -> {
+                DeleteOrderRq rq = new DeleteOrderRq();
+                rq.setRequestId(in.getLong());
+                rq.setSecurityIsin(in.getString());
+                rq.setSide(in.getEnum(SIDES));
+                rq.setOrderId(in.getLong());
+                rq.setEntryTime(in.getTime());
+                yield rq;
+            }
+            case MASS_CANCEL_RQ -> new MassCancelRq(in.getLong(), in.getString(), in.getOptionalLong(), in.getOptionalLong(), in.getEnum(SIDES));
+            case CHANGE_MATCHING_STATE_RQ -> new ChangeMatchingStateRq(in.getString(), in.getEnum(MATCHING_STATES));
+            case SECURITY_STATE_CHANGED_EVENT -> new SecurityStateChangedEvent(in.getTime(), in.getString(), in.getEnum(MATCHING_STATES));
+            default -> {
+                LocalDateTime time = in.getTime();
+                Event event = decodeEventBody(tag, in);
+                event.setTime(time);
+                yield event;
+            }
+        };
+    }
+
+    private static EnterOrderRq getEnterOrderRq(Reader in) {
+        EnterOrderRq rq = new EnterOrderRq();
+        rq.setRequestType(in.getEnum(ENTRY_TYPES));
+        rq.setRequestId(in.getLong());
+        rq.setSecurityIsin(in.getString());
+        rq.setOrderId(in.getLong());
+        rq.setEntryTime(in.getTime());
+        rq.setSide(in.getEnum(SIDES));
+        rq.setQuantity(in.getInt());
+        rq.setPrice(in.getInt());
+        rq.setBrokerId(in.getLong());
+        rq.setShareholderId(in.getLong());
+        rq.setPeakSize(in.getInt());
+        rq.setMinimumExecutionQuantity(in.getInt());
+        rq.setStopPrice(in.getInt());
+        return rq;
+    }
+
+    private static Event decodeEventBody(byte tag, Reader in) {
+        return switch (tag) {
+            case OPENING_PRICE_EVENT -> new OpeningPriceEvent(in.getString(), in.getLong(), in.getLong());
+            case ORDER_ACCEPTED_EVENT -> new OrderAcceptedEvent(in.getLong(), in.getLong());
+            case ORDER_ACTIVATED_EVENT -> new OrderActivatedEvent(in.getLong(), in.getLong());
+            case ORDER_DELETED_EVENT -> new OrderDeletedEvent(in.getLong(), in.getLong());
+            case ORDER_UPDATED_EVENT -> new OrderUpdatedEvent(in.getLong(), in.getLong());
+            case ORDER_EXECUTED_EVENT -> {
+                long requestId = in.getLong();
+                long orderId = in.getLong();
+                int count = in.getCount(TRADE_MIN_SIZE);
+                List<TradeDTO> trades = null;
+                if (count >= 0) {
+                    trades = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++)
+                        trades.add(new TradeDTO(in.getString(), in.getInt(), in.getInt(), in.getLong(), in.getLong()));
+                }
+                yield new OrderExecutedEvent(requestId, orderId, trades);
+            }
+            case ORDER_REJECTED_EVENT -> {
+                long requestId = in.getLong();
+                long orderId = in.getLong();
+                int count = in.getCount(STRING_MIN_SIZE);
+                List<String> errors = null;
+                if (count >= 0) {
+                    errors = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++)
+                        errors.add(in.getString());
+                }
+                yield new OrderRejectedEvent(requestId, orderId, errors);
+            }
+            case TRADE_EVENT -> new TradeEvent(in.getString(), in.getInt(), in.getInt(), in.getLong(), in.getLong());
+            case TOP_OF_BOOK_EVENT -> new TopOfBookEvent(in.getString(), in.getInt(), in.getLong(), in.getInt(), in.getInt(), in.getLong(), in.getInt());
+            case MASS_CANCEL_COMPLETED_EVENT -> new MassCancelCompletedEvent(in.getLong(), in.getInt());
+            case MARKET_DEPTH_UPDATE_EVENT -> new MarketDepthUpdateEvent(in.getString(), in.getLong(), getLevels(in));
+            case MARKET_DEPTH_SNAPSHOT_EVENT -> new MarketDepthSnapshotEvent(in.getString(), in.getLong(), getLevels(in));
+            default -> throw new IllegalArgumentException("Unknown binary message tag " + tag);
+        };
+    }
+
+    private static List<LevelUpdate> getLevels(Reader in) {
+        int count = in.getCount(LEVEL_UPDATE_SIZE);
+        if (count < 0)
+            return null;
+        List<LevelUpdate> levels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            levels.add(new LevelUpdate(in.getEnum(LEVEL_ACTIONS), in.getEnum(SIDES), in.getInt(), in.getLong(), in.getInt()));
+        return levels;
+    }
+
+    private static final class Writer {
+        private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+        private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+        private byte[] buffer = new byte[128];
+        private int position;
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length)
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+        }
+
+        void putByte(byte value) {
+            ensure(1);
+            buffer[position++] = value;
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            INT.set(buffer, position, value);
+            position += 4;
+        }
+
+        void putLong(long value) {
+            ensure(8);
+            LONG.set(buffer, position, value);
+            position += 8;
+        }
+
+        void putOptionalLong(Long value) {
+            putByte((byte) (value == null ? 0 : 1));
+            if (value != null)
+                putLong(value);
+        }
+
+        void putEnum(Enum<?> value) {
+            putByte(value == null ? -1 : (byte) value.ordinal());
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void putTime(LocalDateTime time) {
+            if (time == null) {
+                putLong(Long.MIN_VALUE);
+                putInt(0);
+                return;
+            }
+            putLong(time.toEpochSecond(ZoneOffset.UTC));
+            putInt(time.getNano());
+        }
+
+        void putCount(List<?> list) {
+            putInt(list == null ? -1 : list.size());
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Reader {
+        private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+        private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        byte getByte() {
+            return buffer[position++];
+        }
+
+        int getInt() {
+            int value = (int) INT.get(buffer, position);
+            position += 4;
+            return value;
+        }
+
+        long getLong() {
+            long value = (long) LONG.get(buffer, position);
+            position += 8;
+            return value;
+        }
+
+        Long getOptionalLong() {
+            return getByte() == 0 ? null : getLong();
+        }
+
+        <E extends Enum<E>> E getEnum(E[] values) {
+            byte ordinal = getByte();
+            return ordinal < 0 ? null : values[ordinal];
+        }
+
+        String getString() {
+            int length = getInt();
+            if (length < 0)
+                return null;
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        LocalDateTime getTime() {
+            long seconds = getLong();
+            int nanos = getInt();
+            return seconds == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+        }
+
+        int getCount(int minimumElementSize) {
+            int count = getInt();
+            if (count < -1 || count > (buffer.length - position) / minimumElementSize)
+                throw new IllegalArgumentException("Invalid element count " + count + " with " + (buffer.length - position) + " bytes left");
+            return count;
+        }
+    }
+}
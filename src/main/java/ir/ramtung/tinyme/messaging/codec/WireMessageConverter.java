@@ -0,0 +1,52 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.util.Set;
+
+public class WireMessageConverter implements MessageConverter {
+    public static final String TYPE_PROPERTY = "_type";
+
+    private final MessageConverter jsonConverter;
+    private final BinaryCodec binaryCodec;
+    private final Set<String> binaryQueues;
+
+    public WireMessageConverter(MessageConverter jsonConverter, BinaryCodec binaryCodec, Set<String> binaryQueues) {
+        this.jsonConverter = jsonConverter;
+        this.binaryCodec = binaryCodec;
+        this.binaryQueues = binaryQueues;
+    }
+
+    public boolean isBinary(String queue) {
+        return binaryQueues.contains(queue);
+    }
+
+    @Override
+    public Message toMessage(Object object, Session session) throws JMSException, MessageConversionException {
+        return jsonConverter.toMessage(object, session);
+    }
+
+    public Message toMessage(Object object, Session session, String queue) throws JMSException {
+        if (!isBinary(queue) || !binaryCodec.supports(object.getClass()))
+            return jsonConverter.toMessage(object, session);
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(binaryCodec.encode(object));
+        message.setStringProperty(TYPE_PROPERTY, object.getClass().getName());
+        return message;
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException, MessageConversionException {
+        if (message instanceof BytesMessage bytesMessage) {
+            byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(bytes);
+            return binaryCodec.decode(bytes);
+        }
+        return jsonConverter.fromMessage(message);
+    }
+}
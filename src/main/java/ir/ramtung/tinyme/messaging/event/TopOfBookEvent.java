@@ -0,0 +1,26 @@
+package ir.ramtung.tinyme.messaging.event;
+
+import ir.ramtung.tinyme.domain.entity.TopOfBook;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+@Data
+@EqualsAndHashCode(callSuper = false)
+@AllArgsConstructor
+@NoArgsConstructor
+public class TopOfBookEvent extends Event {
+    String securityIsin;
+    int bidPrice;
+    long bidQuantity;
+    int bidOrders;
+    int askPrice;
+    long askQuantity;
+    int askOrders;
+
+    public TopOfBookEvent(String securityIsin, TopOfBook topOfBook) {
+        this(securityIsin, topOfBook.bidPrice(), topOfBook.bidQuantity(), topOfBook.bidOrders(),
+                topOfBook.askPrice(), topOfBook.askQuantity(), topOfBook.askOrders());
+    }
+}
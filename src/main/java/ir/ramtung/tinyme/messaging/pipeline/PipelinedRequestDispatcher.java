@@ -0,0 +1,30 @@
+package ir.ramtung.tinyme.messaging.pipeline;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.TextMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "requestPipeline", havingValue = "true")
+public class PipelinedRequestDispatcher {
+    private final RequestPipeline requestPipeline;
+
+    public PipelinedRequestDispatcher(RequestPipeline requestPipeline) {
+        this.requestPipeline = requestPipeline;
+    }
+
+    @JmsListener(destination = "${requestQueue}")
+    public void receive(Message message) throws JMSException {
+        if (message instanceof BytesMessage bytesMessage) {
+            byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(bytes);
+            requestPipeline.submit(bytes);
+        } else if (message instanceof TextMessage textMessage) {
+            requestPipeline.submit(textMessage.getStringProperty("_type"), textMessage.getText());
+        }
+    }
+}
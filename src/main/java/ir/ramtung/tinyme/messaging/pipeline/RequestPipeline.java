@@ -0,0 +1,259 @@
+package ir.ramtung.tinyme.messaging.pipeline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.domain.service.OrderValidator;
+import ir.ramtung.tinyme.domain.service.SecurityShards;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.Message;
+import ir.ramtung.tinyme.messaging.codec.BinaryCodec;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.MassCancelCompletedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
+import ir.ramtung.tinyme.messaging.request.BatchEnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MarketDepthSnapshotRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
+import ir.ramtung.tinyme.metrics.LatencyRecorder;
+import ir.ramtung.tinyme.metrics.Stage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+@Component
+@ConditionalOnProperty(name = "requestPipeline", havingValue = "true")
+public class RequestPipeline {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final OrderHandler orderHandler;
+    private final OrderValidator orderValidator;
+    private final EventPublisher eventPublisher;
+    private final SecurityShards securityShards;
+    private final ObjectMapper objectMapper;
+    private final BinaryCodec binaryCodec = new BinaryCodec();
+    private final RequestRingBuffer ringBuffer;
+    private final List<StageWorker> stages = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    @Autowired(required = false)
+    private LatencyRecorder latencyRecorder = LatencyRecorder.DISABLED;
+
+    public RequestPipeline(OrderHandler orderHandler, OrderValidator orderValidator, EventPublisher eventPublisher,
+                           SecurityShards securityShards, ObjectMapper objectMapper,
+                           @Value("${requestPipeline.capacity:4096}") int capacity) {
+        this.orderHandler = orderHandler;
+        this.orderValidator = orderValidator;
+        this.eventPublisher = eventPublisher;
+        this.securityShards = securityShards;
+        this.objectMapper = objectMapper;
+        this.ringBuffer = new RequestRingBuffer(capacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        StageWorker decode = addStage("decode", new Sequence[]{ringBuffer.cursor()}, (slot, endOfBatch) -> decode(slot));
+        StageWorker validate = addStage("validate", new Sequence[]{decode.sequence()}, (slot, endOfBatch) -> validate(slot));
+        Sequence[] matched = new Sequence[securityShards.shardCount()];
+        for (int shard = 0; shard < matched.length; shard++) {
+            int owner = shard;
+            matched[shard] = addStage("match-" + shard, new Sequence[]{validate.sequence()}, (slot, endOfBatch) -> match(slot, owner)).sequence();
+        }
+        StageWorker publish = addStage("publish", matched, this::publish);
+        ringBuffer.gateOn(publish.sequence());
+        for (Thread thread : threads)
+            thread.start();
+    }
+
+    private StageWorker addStage(String name, Sequence[] upstream, SlotHandler handler) {
+        StageWorker stage = new StageWorker(ringBuffer, upstream, handler);
+        Thread thread = new Thread(stage, "request-pipeline-" + name);
+        thread.setDaemon(true);
+        stages.add(stage);
+        threads.add(thread);
+        return stage;
+    }
+
+    public synchronized void submit(String type, String payload) {
+        long sequence = ringBuffer.claim();
+        RequestSlot slot = ringBuffer.get(sequence);
+        slot.type = type;
+        slot.payload = payload;
+        slot.startNanos = latencyRecorder.start(Stage.REQUEST);
+        ringBuffer.publish(sequence);
+    }
+
+    public synchronized void submit(byte[] binaryPayload) {
+        long sequence = ringBuffer.claim();
+        RequestSlot slot = ringBuffer.get(sequence);
+        slot.binaryPayload = binaryPayload;
+        slot.startNanos = latencyRecorder.start(Stage.REQUEST);
+        ringBuffer.publish(sequence);
+    }
+
+    private void decode(RequestSlot slot) {
+        if (slot.binaryPayload != null) {
+            decodeBinary(slot);
+            return;
+        }
+        try {
+            if (EnterOrderRq.class.getName().equals(slot.type)) {
+                EnterOrderRq enterOrderRq = objectMapper.readValue(slot.payload, EnterOrderRq.class);
+                slot.request = enterOrderRq;
+                slot.securityIsin = enterOrderRq.getSecurityIsin();
+            } else if (DeleteOrderRq.class.getName().equals(slot.type)) {
+                DeleteOrderRq deleteOrderRq = objectMapper.readValue(slot.payload, DeleteOrderRq.class);
+                slot.request = deleteOrderRq;
+                slot.securityIsin = deleteOrderRq.getSecurityIsin();
+            } else if (BatchEnterOrderRq.class.getName().equals(slot.type)) {
+                BatchEnterOrderRq batchEnterOrderRq = objectMapper.readValue(slot.payload, BatchEnterOrderRq.class);
+                slot.request = batchEnterOrderRq;
+                slot.securityIsin = batchEnterOrderRq.getSecurityIsin();
+            } else if (MassCancelRq.class.getName().equals(slot.type)) {
+                MassCancelRq massCancelRq = objectMapper.readValue(slot.payload, MassCancelRq.class);
+                slot.request = massCancelRq;
+                slot.securityIsin = massCancelRq.getSecurityIsin();
+            } else if (MarketDepthSnapshotRq.class.getName().equals(slot.type)) {
+                MarketDepthSnapshotRq marketDepthSnapshotRq = objectMapper.readValue(slot.payload, MarketDepthSnapshotRq.class);
+                slot.request = marketDepthSnapshotRq;
+                slot.securityIsin = marketDepthSnapshotRq.getSecurityIsin();
+            } else {
+                log.warning("Dropped request of unknown type " + slot.type);
+            }
+        } catch (IOException ex) {
+            log.warning("Dropped undecodable request: " + ex.getMessage());
+        }
+    }
+
+    private void decodeBinary(RequestSlot slot) {
+        try {
+            Object request = binaryCodec.decode(slot.binaryPayload);
+            if (request instanceof EnterOrderRq enterOrderRq) {
+                slot.request = enterOrderRq;
+                slot.securityIsin = enterOrderRq.getSecurityIsin();
+            } else if (request instanceof DeleteOrderRq deleteOrderRq) {
+                slot.request = deleteOrderRq;
+                slot.securityIsin = deleteOrderRq.getSecurityIsin();
+            } else if (request instanceof BatchEnterOrderRq batchEnterOrderRq) {
+                slot.request = batchEnterOrderRq;
+                slot.securityIsin = batchEnterOrderRq.getSecurityIsin();
+            } else if (request instanceof MassCancelRq massCancelRq) {
+                slot.request = massCancelRq;
+                slot.securityIsin = massCancelRq.getSecurityIsin();
+            } else {
+                log.warning("Dropped request of unsupported type " + request.getClass().getName());
+            }
+        } catch (RuntimeException ex) {
+            log.warning("Dropped undecodable binary request: " + ex.getMessage());
+        }
+    }
+
+    private void validate(RequestSlot slot) {
+        try {
+            if (slot.request instanceof EnterOrderRq enterOrderRq)
+                orderValidator.validateEnterOrderRqFields(enterOrderRq);
+            else if (slot.request instanceof DeleteOrderRq deleteOrderRq)
+                orderValidator.validateDeleteOrderRq(deleteOrderRq);
+            else if (slot.request instanceof BatchEnterOrderRq batchEnterOrderRq)
+                orderValidator.validateBatchEnterOrderRq(batchEnterOrderRq);
+            else if (slot.request instanceof MassCancelRq massCancelRq)
+                orderValidator.validateMassCancelRq(massCancelRq);
+        } catch (InvalidRequestException ex) {
+            slot.rejection = ex;
+        }
+    }
+
+    private void match(RequestSlot slot, int shard) {
+        if (slot.request instanceof MassCancelRq massCancelRq && slot.securityIsin == null) {
+            massCancelOnShard(slot, massCancelRq, shard);
+            return;
+        }
+        if (slot.request == null || securityShards.shardOf(slot.securityIsin) != shard)
+            return;
+        if (slot.rejection != null) {
+            slot.events.add(rejectionOf(slot));
+            return;
+        }
+        eventPublisher.captureInto(slot.events);
+        try {
+            if (slot.request instanceof EnterOrderRq enterOrderRq)
+                orderHandler.handleValidatedEnterOrder(enterOrderRq);
+            else if (slot.request instanceof DeleteOrderRq deleteOrderRq)
+                orderHandler.handleValidatedDeleteOrder(deleteOrderRq);
+            else if (slot.request instanceof BatchEnterOrderRq batchEnterOrderRq)
+                orderHandler.handleBatchEnterOrder(batchEnterOrderRq);
+            else if (slot.request instanceof MassCancelRq massCancelRq)
+                orderHandler.handleValidatedMassCancel(massCancelRq);
+            else if (slot.request instanceof MarketDepthSnapshotRq marketDepthSnapshotRq)
+                orderHandler.handleMarketDepthSnapshot(marketDepthSnapshotRq);
+        } finally {
+            eventPublisher.stopCapturing();
+        }
+    }
+
+    private void massCancelOnShard(RequestSlot slot, MassCancelRq massCancelRq, int shard) {
+        if (slot.rejection != null) {
+            if (shard == 0)
+                slot.events.add(rejectionOf(slot));
+            return;
+        }
+        List<Event> events = new ArrayList<>();
+        int cancelled = 0;
+        boolean failed = true;
+        eventPublisher.captureInto(events);
+        try {
+            cancelled = orderHandler.cancelOrdersOnShard(massCancelRq, isin -> securityShards.shardOf(isin) == shard);
+            failed = false;
+        } finally {
+            eventPublisher.stopCapturing();
+            synchronized (slot.events) {
+                slot.events.addAll(events);
+                slot.cancelledOrders += cancelled;
+                slot.massCancelFailed |= failed;
+            }
+        }
+    }
+
+    private static Event rejectionOf(RequestSlot slot) {
+        if (slot.request instanceof EnterOrderRq enterOrderRq)
+            return new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), slot.rejection.getReasons());
+        if (slot.request instanceof MassCancelRq massCancelRq)
+            return new OrderRejectedEvent(massCancelRq.getRequestId(), 0, slot.rejection.getReasons());
+        if (slot.request instanceof BatchEnterOrderRq)
+            return new OrderRejectedEvent(0, 0, slot.rejection.getReasons());
+        DeleteOrderRq deleteOrderRq = (DeleteOrderRq) slot.request;
+        return new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), slot.rejection.getReasons());
+    }
+
+    private void publish(RequestSlot slot, boolean endOfBatch) {
+        if (slot.request instanceof MassCancelRq massCancelRq && slot.securityIsin == null && slot.rejection == null) {
+            if (slot.massCancelFailed)
+                slot.events.add(new OrderRejectedEvent(massCancelRq.getRequestId(), 0, List.of(Message.MASS_CANCEL_INCOMPLETE)));
+            slot.events.add(new MassCancelCompletedEvent(massCancelRq.getRequestId(), slot.cancelledOrders));
+        }
+        if (slot.request instanceof BatchEnterOrderRq)
+            eventPublisher.sendAll(slot.events);
+        else {
+            for (Event event : slot.events)
+                eventPublisher.send(event);
+        }
+        if (endOfBatch)
+            eventPublisher.flush();
+        latencyRecorder.stop(Stage.REQUEST, slot.startNanos);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (int i = 0; i < stages.size(); i++) {
+            stages.get(i).halt();
+            threads.get(i).join(10_000);
+        }
+    }
+}
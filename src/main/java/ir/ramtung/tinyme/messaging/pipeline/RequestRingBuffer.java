@@ -0,0 +1,62 @@
+package ir.ramtung.tinyme.messaging.pipeline;
+
+import java.util.concurrent.locks.LockSupport;
+
+class RequestRingBuffer {
+    private static final int SPINS_BEFORE_PARKING = 1_000;
+
+    private final RequestSlot[] slots;
+    private final int mask;
+    private final Sequence cursor = new Sequence();
+    private Sequence[] gatingSequences = new Sequence[0];
+    private long nextToClaim;
+
+    RequestRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two");
+        slots = new RequestSlot[capacity];
+        for (int i = 0; i < capacity; i++)
+            slots[i] = new RequestSlot();
+        mask = capacity - 1;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    Sequence cursor() {
+        return cursor;
+    }
+
+    void gateOn(Sequence... sequences) {
+        gatingSequences = sequences;
+    }
+
+    RequestSlot get(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    long claim() {
+        long wrapPoint = nextToClaim - slots.length;
+        int spins = 0;
+        while (wrapPoint > Sequence.minimumOf(gatingSequences))
+            spins = idle(spins);
+        RequestSlot slot = get(nextToClaim);
+        slot.reset();
+        return nextToClaim;
+    }
+
+    void publish(long sequence) {
+        assert sequence == nextToClaim;
+        nextToClaim++;
+        cursor.set(sequence);
+    }
+
+    static int idle(int spins) {
+        if (spins < SPINS_BEFORE_PARKING)
+            Thread.onSpinWait();
+        else
+            LockSupport.parkNanos(1_000);
+        return spins + 1;
+    }
+}
@@ -0,0 +1,33 @@
+package ir.ramtung.tinyme.messaging.pipeline;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class RequestSlot {
+    String type;
+    String payload;
+    byte[] binaryPayload;
+    Object request;
+    String securityIsin;
+    InvalidRequestException rejection;
+    long startNanos;
+    int cancelledOrders;
+    boolean massCancelFailed;
+    final List<Event> events = new ArrayList<>();
+
+    void reset() {
+        type = null;
+        payload = null;
+        binaryPayload = null;
+        request = null;
+        securityIsin = null;
+        rejection = null;
+        startNanos = 0;
+        cancelledOrders = 0;
+        massCancelFailed = false;
+        events.clear();
+    }
+}
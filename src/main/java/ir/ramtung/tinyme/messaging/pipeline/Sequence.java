@@ -0,0 +1,36 @@
+package ir.ramtung.tinyme.messaging.pipeline;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+@SuppressWarnings("unused")
+class Sequence {
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(Sequence.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private long p1, p2, p3, p4, p5, p6, p7;
+    private volatile long value = -1;
+    private long p9, p10, p11, p12, p13, p14, p15;
+
+    long get() {
+        return value;
+    }
+
+    void set(long value) {
+        VALUE.setRelease(this, value);
+    }
+
+    static long minimumOf(Sequence[] sequences) {
+        long minimum = Long.MAX_VALUE;
+        for (Sequence sequence : sequences)
+            minimum = Math.min(minimum, sequence.get());
+        return minimum;
+    }
+}
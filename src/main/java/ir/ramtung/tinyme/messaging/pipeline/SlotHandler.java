@@ -0,0 +1,6 @@
+package ir.ramtung.tinyme.messaging.pipeline;
+
+@FunctionalInterface
+interface SlotHandler {
+    void onSlot(RequestSlot slot, boolean endOfBatch);
+}
@@ -0,0 +1,50 @@
+package ir.ramtung.tinyme.messaging.pipeline;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class StageWorker implements Runnable {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RequestRingBuffer ringBuffer;
+    private final Sequence[] upstream;
+    private final Sequence sequence = new Sequence();
+    private final SlotHandler handler;
+    private volatile boolean running = true;
+
+    StageWorker(RequestRingBuffer ringBuffer, Sequence[] upstream, SlotHandler handler) {
+        this.ringBuffer = ringBuffer;
+        this.upstream = upstream;
+        this.handler = handler;
+    }
+
+    Sequence sequence() {
+        return sequence;
+    }
+
+    void halt() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        long next = sequence.get() + 1;
+        int spins = 0;
+        while (running || next <= Sequence.minimumOf(upstream)) {
+            long available = Sequence.minimumOf(upstream);
+            if (available < next) {
+                spins = RequestRingBuffer.idle(spins);
+                continue;
+            }
+            spins = 0;
+            for (long current = next; current <= available; current++) {
+                try {
+                    handler.onSlot(ringBuffer.get(current), current == available);
+                } catch (RuntimeException ex) {
+                    log.log(Level.SEVERE, "Pipeline stage failed on sequence " + current, ex);
+                }
+            }
+            sequence.set(available);
+            next = available + 1;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ir.ramtung.tinyme.messaging.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchEnterOrderRq {
+    private String securityIsin;
+    private long brokerId;
+    private long shareholderId;
+    private List<EnterOrderRq> orders = new ArrayList<>();
+
+    public static BatchEnterOrderRq of(List<EnterOrderRq> orders) {
+        EnterOrderRq first = orders.get(0);
+        return new BatchEnterOrderRq(first.getSecurityIsin(), first.getBrokerId(), first.getShareholderId(), new ArrayList<>(orders));
+    }
+}
@@ -0,0 +1,33 @@
+package ir.ramtung.tinyme.messaging.request;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MassCancelRq {
+    private long requestId;
+    private String securityIsin;
+    private Long brokerId;
+    private Long shareholderId;
+    private Side side;
+
+    public static MassCancelRq byBroker(long requestId, long brokerId) {
+        return new MassCancelRq(requestId, null, brokerId, null, null);
+    }
+
+    public static MassCancelRq byShareholder(long requestId, long shareholderId) {
+        return new MassCancelRq(requestId, null, null, shareholderId, null);
+    }
+
+    public static MassCancelRq bySecurity(long requestId, String securityIsin) {
+        return new MassCancelRq(requestId, securityIsin, null, null, null);
+    }
+
+    public MassCancelRq forSecurity(String securityIsin) {
+        return new MassCancelRq(requestId, securityIsin, brokerId, shareholderId, side);
+    }
+}
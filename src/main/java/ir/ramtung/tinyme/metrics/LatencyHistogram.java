@@ -0,0 +1,85 @@
+package ir.ramtung.tinyme.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+    private static final int PRECISION_BITS = 7;
+    private static final int HALF_BUCKET = 1 << (PRECISION_BITS - 1);
+    private static final int BUCKETS = (Long.SIZE - PRECISION_BITS + 2) * HALF_BUCKET;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final int sampleMask;
+    private final ThreadLocal<int[]> sampleCounter = ThreadLocal.withInitial(() -> new int[1]);
+
+    public LatencyHistogram(int sampleEvery) {
+        if (sampleEvery < 1 || Integer.bitCount(sampleEvery) != 1)
+            throw new IllegalArgumentException("sampleEvery must be a power of two");
+        this.sampleMask = sampleEvery - 1;
+    }
+
+    static int indexOf(long value) {
+        if (value < (1L << PRECISION_BITS))
+            return (int) Math.max(value, 0);
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - PRECISION_BITS;
+        return shift * HALF_BUCKET + (int) (value >>> shift);
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < (1 << PRECISION_BITS))
+            return index;
+        int shift = index / HALF_BUCKET - 1;
+        return (long) (index - shift * HALF_BUCKET) << shift;
+    }
+
+    boolean sample() {
+        return (++sampleCounter.get()[0] & sampleMask) == 0;
+    }
+
+    public void record(long nanos) {
+        counts.incrementAndGet(indexOf(nanos));
+    }
+
+    public Snapshot snapshot(boolean reset) {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            copy[i] = reset ? counts.getAndSet(i, 0) : counts.get(i);
+        return new Snapshot(copy);
+    }
+
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (long bucket : counts)
+                total += bucket;
+            this.count = total;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long percentile(double quantile) {
+            if (count == 0)
+                return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank)
+                    return lowestValueAt(i);
+            }
+            return max();
+        }
+
+        public long max() {
+            for (int i = counts.length - 1; i >= 0; i--)
+                if (counts[i] != 0)
+                    return lowestValueAt(i);
+            return 0;
+        }
+    }
+}
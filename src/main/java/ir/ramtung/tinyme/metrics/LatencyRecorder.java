@@ -0,0 +1,43 @@
+package ir.ramtung.tinyme.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class LatencyRecorder {
+    public static final LatencyRecorder DISABLED = new LatencyRecorder(false, 1);
+
+    private final boolean enabled;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+
+    public LatencyRecorder(@Value("${latencyMetrics.enabled:false}") boolean enabled,
+                           @Value("${latencyMetrics.sampleEvery:16}") int sampleEvery) {
+        this.enabled = enabled;
+        for (Stage stage : Stage.values())
+            histograms[stage.ordinal()] = new LatencyHistogram(sampleEvery);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long start(Stage stage) {
+        if (!enabled || !histograms[stage.ordinal()].sample())
+            return 0;
+        return System.nanoTime();
+    }
+
+    public void stop(Stage stage, long start) {
+        if (start != 0)
+            histograms[stage.ordinal()].record(System.nanoTime() - start);
+    }
+
+    public LatencyHistogram.Snapshot snapshot(Stage stage, boolean reset) {
+        return histograms[stage.ordinal()].snapshot(reset);
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms)
+            histogram.snapshot(true);
+    }
+}
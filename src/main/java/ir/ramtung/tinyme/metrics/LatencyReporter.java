@@ -0,0 +1,69 @@
+package ir.ramtung.tinyme.metrics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+@Component
+@ManagedResource(objectName = "ir.ramtung.tinyme:name=latency")
+public class LatencyReporter {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final LatencyRecorder latencyRecorder;
+    private final long exportIntervalSeconds;
+    private final boolean resetOnExport;
+    private ScheduledExecutorService scheduler;
+
+    public LatencyReporter(LatencyRecorder latencyRecorder,
+                           @Value("${latencyMetrics.exportIntervalSeconds:60}") long exportIntervalSeconds,
+                           @Value("${latencyMetrics.resetOnExport:true}") boolean resetOnExport) {
+        this.latencyRecorder = latencyRecorder;
+        this.exportIntervalSeconds = exportIntervalSeconds;
+        this.resetOnExport = resetOnExport;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!latencyRecorder.isEnabled() || exportIntervalSeconds <= 0)
+            return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "latency-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> log.info(export(resetOnExport)), exportIntervalSeconds, exportIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+
+    @ManagedOperation
+    public String report() {
+        return export(false);
+    }
+
+    @ManagedOperation
+    public void reset() {
+        latencyRecorder.reset();
+    }
+
+    public String export(boolean reset) {
+        StringBuilder report = new StringBuilder("Stage latencies (ns):");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram.Snapshot snapshot = latencyRecorder.snapshot(stage, reset);
+            report.append(String.format("%n  %-12s count=%d p50=%d p99=%d p99.9=%d max=%d", stage, snapshot.count(),
+                    snapshot.percentile(0.50), snapshot.percentile(0.99), snapshot.percentile(0.999), snapshot.max()));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,10 @@
+package ir.ramtung.tinyme.metrics;
+
+public enum Stage {
+    REQUEST,
+    VALIDATION,
+    ORDER_ENTRY,
+    MATCHING,
+    STOP_CASCADE,
+    PUBLISH
+}
@@ -0,0 +1,28 @@
+package ir.ramtung.tinyme.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("ir.ramtung.tinyme.AuctionOpened")
+@Label("Auction Opened")
+@Description("Opening process of an auction: price discovery followed by the auction match")
+@Category({"TinyME", "Matching"})
+@StackTrace(false)
+public class AuctionOpenedEvent extends Event {
+    @Label("Security ISIN")
+    public String securityIsin;
+    @Label("Opening Price")
+    public int openingPrice;
+    @Label("Opening Price Computation")
+    @Timespan(Timespan.NANOSECONDS)
+    public long openingPriceNanos;
+    @Label("Trade Count")
+    public int tradeCount;
+    @Label("Traded Quantity")
+    public long tradedQuantity;
+}
@@ -0,0 +1,39 @@
+package ir.ramtung.tinyme.metrics.jfr;
+
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Side;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ir.ramtung.tinyme.BookSize")
+@Label("Book Size")
+@Description("Order counts of a security after a request changed its book")
+@Category({"TinyME", "Order Book"})
+@StackTrace(false)
+@Enabled(false)
+public class BookSizeEvent extends Event {
+    @Label("Security ISIN")
+    public String securityIsin;
+    @Label("Buy Orders")
+    public int buyOrders;
+    @Label("Sell Orders")
+    public int sellOrders;
+    @Label("Stop Orders")
+    public int stopOrders;
+
+    public static void emit(Security security) {
+        BookSizeEvent event = new BookSizeEvent();
+        if (event.shouldCommit()) {
+            event.securityIsin = security.getIsin();
+            event.buyOrders = security.getOrderBook().size(Side.BUY);
+            event.sellOrders = security.getOrderBook().size(Side.SELL);
+            event.stopOrders = security.getStopOrderBook().size();
+            event.commit();
+        }
+    }
+}
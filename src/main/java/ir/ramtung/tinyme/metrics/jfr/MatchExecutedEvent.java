@@ -0,0 +1,76 @@
+package ir.ramtung.tinyme.metrics.jfr;
+
+import ir.ramtung.tinyme.domain.entity.MatchResult;
+import ir.ramtung.tinyme.domain.entity.MatchingOutcome;
+import ir.ramtung.tinyme.domain.entity.Order;
+import ir.ramtung.tinyme.domain.entity.Trade;
+import ir.ramtung.tinyme.domain.entity.TradeBuffer;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("ir.ramtung.tinyme.MatchExecuted")
+@Label("Match Executed")
+@Description("Matching of one incoming order against the opposite side of its book")
+@Category({"TinyME", "Matching"})
+@StackTrace(false)
+@Threshold("100 us")
+public class MatchExecutedEvent extends Event {
+    @Label("Security ISIN")
+    public String securityIsin;
+    @Label("Order ID")
+    public long orderId;
+    @Label("Side")
+    public String side;
+    @Label("Outcome")
+    public String outcome;
+    @Label("Trade Count")
+    public int tradeCount;
+    @Label("Levels Touched")
+    @Description("Number of distinct price levels the order traded against")
+    public int levelsTouched;
+    @Label("Executed Quantity")
+    public long executedQuantity;
+
+    public void end(Order order, MatchResult result) {
+        if (!shouldCommit())
+            return;
+        securityIsin = order.getSecurity().getIsin();
+        orderId = order.getOrderId();
+        side = order.getSide().name();
+        outcome = String.valueOf(result.outcome());
+        if (result.trades() != null) {
+            int lastPrice = 0;
+            for (Trade trade : result.trades()) {
+                if (tradeCount == 0 || trade.getPrice() != lastPrice)
+                    levelsTouched++;
+                lastPrice = trade.getPrice();
+                tradeCount++;
+                executedQuantity += trade.getQuantity();
+            }
+        }
+        commit();
+    }
+
+    public void end(Order order, MatchingOutcome result, TradeBuffer fills) {
+        if (!shouldCommit())
+            return;
+        securityIsin = order.getSecurity().getIsin();
+        orderId = order.getOrderId();
+        side = order.getSide().name();
+        outcome = String.valueOf(result);
+        if (result == MatchingOutcome.EXECUTED) {
+            for (int i = 0; i < fills.size(); i++) {
+                if (i == 0 || fills.getPrice(i) != fills.getPrice(i - 1))
+                    levelsTouched++;
+                executedQuantity += fills.getQuantity(i);
+            }
+            tradeCount = fills.size();
+        }
+        commit();
+    }
+}
@@ -0,0 +1,37 @@
+package ir.ramtung.tinyme.metrics.jfr;
+
+import ir.ramtung.tinyme.domain.entity.MatchingOutcome;
+import ir.ramtung.tinyme.domain.entity.Order;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ir.ramtung.tinyme.MatchRollback")
+@Label("Match Rollback")
+@Description("Trades of a match undone because a matching control rejected the result")
+@Category({"TinyME", "Matching"})
+@StackTrace(false)
+public class MatchRollbackEvent extends Event {
+    @Label("Security ISIN")
+    public String securityIsin;
+    @Label("Order ID")
+    public long orderId;
+    @Label("Reason")
+    public String reason;
+    @Label("Trades Rolled Back")
+    public int tradesRolledBack;
+
+    public static void emit(Order order, MatchingOutcome reason, int tradesRolledBack) {
+        MatchRollbackEvent event = new MatchRollbackEvent();
+        if (event.shouldCommit()) {
+            event.securityIsin = order.getSecurity().getIsin();
+            event.orderId = order.getOrderId();
+            event.reason = String.valueOf(reason);
+            event.tradesRolledBack = tradesRolledBack;
+            event.commit();
+        }
+    }
+}
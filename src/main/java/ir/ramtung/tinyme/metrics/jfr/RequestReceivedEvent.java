@@ -0,0 +1,52 @@
+package ir.ramtung.tinyme.metrics.jfr;
+
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("ir.ramtung.tinyme.RequestReceived")
+@Label("Request Received")
+@Description("Handling of a single order request, from receipt to the last published event")
+@Category({"TinyME", "Requests"})
+@StackTrace(false)
+@Threshold("100 us")
+public class RequestReceivedEvent extends Event {
+    @Label("Request Type")
+    public String requestType;
+    @Label("Request ID")
+    public long requestId;
+    @Label("Order ID")
+    public long orderId;
+    @Label("Security ISIN")
+    public String securityIsin;
+
+    public static RequestReceivedEvent begin(EnterOrderRq enterOrderRq) {
+        RequestReceivedEvent event = new RequestReceivedEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            event.requestType = String.valueOf(enterOrderRq.getRequestType());
+            event.requestId = enterOrderRq.getRequestId();
+            event.orderId = enterOrderRq.getOrderId();
+            event.securityIsin = enterOrderRq.getSecurityIsin();
+        }
+        return event;
+    }
+
+    public static RequestReceivedEvent begin(DeleteOrderRq deleteOrderRq) {
+        RequestReceivedEvent event = new RequestReceivedEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            event.requestType = "DELETE_ORDER";
+            event.requestId = deleteOrderRq.getRequestId();
+            event.orderId = deleteOrderRq.getOrderId();
+            event.securityIsin = deleteOrderRq.getSecurityIsin();
+        }
+        return event;
+    }
+}
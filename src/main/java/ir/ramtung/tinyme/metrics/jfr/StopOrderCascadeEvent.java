@@ -0,0 +1,37 @@
+package ir.ramtung.tinyme.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ir.ramtung.tinyme.StopOrderCascade")
+@Label("Stop Order Cascade")
+@Description("Stop-limit orders activated and matched as a consequence of one price change")
+@Category({"TinyME", "Matching"})
+@StackTrace(false)
+public class StopOrderCascadeEvent extends Event {
+    @Label("Security ISIN")
+    public String securityIsin;
+    @Label("Depth")
+    @Description("Number of activation rounds that triggered at least one order")
+    public int depth;
+    @Label("Activated Orders")
+    public int activatedOrders;
+
+    public void activated(int count) {
+        if (count > 0) {
+            depth++;
+            activatedOrders += count;
+        }
+    }
+
+    public void end(String securityIsin) {
+        if (activatedOrders > 0 && shouldCommit()) {
+            this.securityIsin = securityIsin;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ir.ramtung.tinyme.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.List;
+
+@Name("ir.ramtung.tinyme.ValidationFailed")
+@Label("Validation Failed")
+@Description("An order request rejected with one or more validation errors")
+@Category({"TinyME", "Requests"})
+@StackTrace(false)
+public class ValidationFailedEvent extends Event {
+    @Label("Request ID")
+    public long requestId;
+    @Label("Order ID")
+    public long orderId;
+    @Label("Security ISIN")
+    public String securityIsin;
+    @Label("Reasons")
+    public String reasons;
+
+    public static void emit(long requestId, long orderId, String securityIsin, List<String> reasons) {
+        ValidationFailedEvent event = new ValidationFailedEvent();
+        if (event.shouldCommit()) {
+            event.requestId = requestId;
+            event.orderId = orderId;
+            event.securityIsin = securityIsin;
+            event.reasons = String.join("; ", reasons);
+            event.commit();
+        }
+    }
+}
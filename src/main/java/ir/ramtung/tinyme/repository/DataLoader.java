@@ -3,9 +3,13 @@ package ir.ramtung.tinyme.repository;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
 import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.SecurityShards;
+import ir.ramtung.tinyme.messaging.pipeline.RequestPipeline;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
@@ -15,23 +19,33 @@ import java.io.FileWriter;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.time.LocalDateTime;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.StringJoiner;
 import java.util.logging.Logger;
 
 @Component
 @Profile("!test")
+@DependsOn("securityShards")
 public class DataLoader {
     private final Logger log = Logger.getLogger(this.getClass().getName());
     private final BrokerRepository brokerRepository;
     private final ShareholderRepository shareholderRepository;
     private final SecurityRepository securityRepository;
+    private final RequestJournal requestJournal;
+    private final SnapshotStore snapshotStore;
+    private final SecurityShards securityShards;
+    @Autowired(required = false)
+    private RequestPipeline requestPipeline;
 
-    public DataLoader(BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, SecurityRepository securityRepository) {
+    public DataLoader(BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, SecurityRepository securityRepository, RequestJournal requestJournal, SnapshotStore snapshotStore, SecurityShards securityShards) {
         this.brokerRepository = brokerRepository;
         this.shareholderRepository = shareholderRepository;
         this.securityRepository = securityRepository;
+        this.requestJournal = requestJournal;
+        this.snapshotStore = snapshotStore;
+        this.securityShards = securityShards;
     }
 
     @Value("classpath:persistence/broker.csv")
@@ -47,6 +61,10 @@ public class DataLoader {
 
     @PostConstruct
     public void loadAll() throws Exception {
+        if (snapshotStore.exists()) {
+            snapshotStore.restore();
+            return;
+        }
         loadBrokers();
         loadShareholders();
         loadSecurities();
@@ -56,13 +74,24 @@ public class DataLoader {
 
     @PreDestroy
     public void saveAll() throws Exception {
+        drainRequests();
         System.out.print("Saving persistent data ...");
         saveBrokers();
         saveShareholdersAndPositions();
         saveSecuritiesAndOrderBooks();
+        if (snapshotStore.isEnabled())
+            snapshotStore.write();
+        requestJournal.truncate();
         System.out.println(", done!");
     }
 
+    private void drainRequests() throws InterruptedException {
+        if (requestPipeline != null)
+            requestPipeline.stop();
+        securityShards.quiesce(() -> log.info("Security shards drained"));
+        securityShards.shutdown();
+    }
+
     private void loadBrokers() throws Exception {
         brokerRepository.clear();
       try (Reader reader = new FileReader(brokerCsvResource.getFile())) {
@@ -128,7 +157,7 @@ public class DataLoader {
     }
 
     private void loadOrderBook() throws Exception {
-        LinkedList<Order> orders = new LinkedList<>();
+        HashMap<Security, List<Order>> ordersBySecurity = new HashMap<>();
         try (Reader reader = new FileReader(orderBookCsvResource.getFile())) {
             try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
                 String[] line;
@@ -165,15 +194,11 @@ public class DataLoader {
                                 Integer.parseInt(line[9]),
                                 OrderStatus.QUEUED);
                     }
-                    orders.addFirst(order);
+                    ordersBySecurity.computeIfAbsent(security, key -> new ArrayList<>()).add(order);
                 }
             }
         }
-        Iterator<Order> it = orders.descendingIterator();
-        while (it.hasNext()) {
-            Order order = it.next();
-            order.getSecurity().getOrderBook().enqueue(order);
-        }
+        ordersBySecurity.forEach((security, orders) -> security.getOrderBook().bulkLoad(orders));
         log.info("Order Book loaded");
     }
 
@@ -0,0 +1,73 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.CreditDecisions;
+import ir.ramtung.tinyme.domain.service.ChangeMatchStateHandler;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.request.BatchEnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+@Component
+@Profile("!test")
+public class JournalRecovery implements SmartInitializingSingleton {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RequestJournal requestJournal;
+    private final OrderHandler orderHandler;
+    private final ChangeMatchStateHandler changeMatchStateHandler;
+    private final EventPublisher eventPublisher;
+
+    public JournalRecovery(RequestJournal requestJournal, OrderHandler orderHandler, ChangeMatchStateHandler changeMatchStateHandler, EventPublisher eventPublisher) {
+        this.requestJournal = requestJournal;
+        this.orderHandler = orderHandler;
+        this.changeMatchStateHandler = changeMatchStateHandler;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!requestJournal.isEnabled())
+            return;
+        List<Event> replayedEvents = new ArrayList<>();
+        int[] replayed = {0};
+        eventPublisher.captureInto(replayedEvents);
+        try {
+            requestJournal.replayWithCreditDecisions((request, creditDecisions) -> {
+                creditDecisions.activate();
+                try {
+                    replay(request);
+                } finally {
+                    CreditDecisions.deactivate();
+                }
+                replayedEvents.clear();
+                replayed[0]++;
+            });
+        } finally {
+            eventPublisher.stopCapturing();
+        }
+        log.info(replayed[0] + " journaled requests replayed");
+    }
+
+    private void replay(Object request) {
+        if (request instanceof EnterOrderRq enterOrderRq)
+            orderHandler.handleValidatedEnterOrder(enterOrderRq);
+        else if (request instanceof DeleteOrderRq deleteOrderRq)
+            orderHandler.handleValidatedDeleteOrder(deleteOrderRq);
+        else if (request instanceof BatchEnterOrderRq batchEnterOrderRq)
+            orderHandler.handleValidatedBatchEnterOrder(batchEnterOrderRq);
+        else if (request instanceof MassCancelRq massCancelRq)
+            orderHandler.handleValidatedMassCancel(massCancelRq);
+        else if (request instanceof ChangeMatchingStateRq changeMatchingStateRq)
+            changeMatchStateHandler.handleChangeMatchingState(changeMatchingStateRq);
+    }
+}
@@ -0,0 +1,265 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.CreditDecisions;
+import ir.ramtung.tinyme.messaging.codec.BinaryCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+@Component
+public class RequestJournal {
+    public enum Durability {
+        NONE,
+        ASYNC,
+        GROUP_COMMIT,
+        PER_REQUEST
+    }
+
+    private static final int RECORD_HEADER = 8;
+    private static final int TERMINATOR = 4;
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final BinaryCodec codec = new BinaryCodec();
+    private final boolean enabled;
+    private final Path path;
+    private final Durability durability;
+    private final int initialSize;
+    private final long asyncIntervalMillis;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int written;
+    private int forced;
+    private boolean replaying;
+    private Thread committer;
+    private volatile boolean running;
+
+    public RequestJournal(@Value("${journal.enabled:false}") boolean enabled,
+                          @Value("${journal.path:journal/requests.journal}") String path,
+                          @Value("${journal.durability:GROUP_COMMIT}") Durability durability,
+                          @Value("${journal.initialSize:67108864}") int initialSize,
+                          @Value("${journal.asyncIntervalMillis:10}") long asyncIntervalMillis) {
+        this.enabled = enabled;
+        this.path = Path.of(path);
+        this.durability = durability;
+        this.initialSize = initialSize;
+        this.asyncIntervalMillis = asyncIntervalMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled)
+            return;
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(initialSize, (int) channel.size()));
+        written = scan(null);
+        forced = written;
+        if (durability == Durability.ASYNC || durability == Durability.GROUP_COMMIT) {
+            running = true;
+            committer = new Thread(this::commitLoop, "journal-committer");
+            committer.setDaemon(true);
+            committer.start();
+        }
+        log.info("Journal opened with " + written + " bytes of requests");
+    }
+
+    public void append(Object request) {
+        append(request, CreditDecisions.NONE);
+    }
+
+    public CreditDecisions recordCreditDecisions() {
+        if (!enabled || CreditDecisions.active() != null)
+            return CreditDecisions.NONE;
+        CreditDecisions decisions = CreditDecisions.recording();
+        decisions.activate();
+        return decisions;
+    }
+
+    public void append(Object request, CreditDecisions decisions) {
+        if (decisions != CreditDecisions.NONE)
+            CreditDecisions.deactivate();
+        if (!enabled || replaying)
+            return;
+        byte[] payload = encode(request, decisions);
+        int end;
+        synchronized (this) {
+            ensureCapacity(RECORD_HEADER + payload.length + TERMINATOR);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            buffer.putInt(written + RECORD_HEADER + payload.length, 0);
+            buffer.put(written + RECORD_HEADER, payload);
+            buffer.putInt(written + 4, (int) crc.getValue());
+            buffer.putInt(written, payload.length);
+            written += RECORD_HEADER + payload.length;
+            end = written;
+            if (durability == Durability.PER_REQUEST) {
+                buffer.force(forced, written - forced);
+                forced = written;
+            } else if (durability == Durability.GROUP_COMMIT) {
+                notifyAll();
+            }
+        }
+        if (durability == Durability.GROUP_COMMIT)
+            awaitDurable(end);
+    }
+
+    private synchronized void awaitDurable(int end) {
+        boolean interrupted = false;
+        while (forced < end && running) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private void commitLoop() {
+        while (running) {
+            MappedByteBuffer target;
+            int from;
+            int to;
+            synchronized (this) {
+                try {
+                    if (durability == Durability.GROUP_COMMIT) {
+                        while (running && forced == written)
+                            wait();
+                    } else {
+                        wait(asyncIntervalMillis);
+                    }
+                } catch (InterruptedException ex) {
+                    continue;
+                }
+                target = buffer;
+                from = forced;
+                to = written;
+            }
+            if (to > from)
+                target.force(from, to - from);
+            synchronized (this) {
+                forced = Math.max(forced, to);
+                notifyAll();
+            }
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (written + bytes <= buffer.capacity())
+            return;
+        try {
+            buffer.force();
+            forced = written;
+            long capacity = Math.max((long) buffer.capacity() * 2, (long) written + bytes);
+            if (capacity > Integer.MAX_VALUE)
+                throw new IllegalStateException("Journal is full; take a snapshot to truncate it");
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            notifyAll();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private byte[] encode(Object request, CreditDecisions decisions) {
+        byte[] encoded = codec.encode(request);
+        byte[] outcomes = decisions.outcomes().toByteArray();
+        return ByteBuffer.allocate(4 + encoded.length + 4 + outcomes.length)
+                .putInt(encoded.length).put(encoded)
+                .putInt(decisions.count()).put(outcomes)
+                .array();
+    }
+
+    public void replay(Consumer<Object> handler) {
+        replayWithCreditDecisions((request, decisions) -> handler.accept(request));
+    }
+
+    public void replayWithCreditDecisions(BiConsumer<Object, CreditDecisions> handler) {
+        if (!enabled)
+            return;
+        synchronized (this) {
+            replaying = true;
+        }
+        try {
+            scan(handler);
+        } finally {
+            synchronized (this) {
+                replaying = false;
+            }
+        }
+    }
+
+    private int scan(BiConsumer<Object, CreditDecisions> handler) {
+        int position = 0;
+        while (position + RECORD_HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER + length > buffer.capacity())
+                break;
+            byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                log.warning("Journal ends with a torn record at " + position);
+                break;
+            }
+            if (handler != null) {
+                ByteBuffer record = ByteBuffer.wrap(payload);
+                byte[] encoded = new byte[record.getInt()];
+                record.get(encoded);
+                int count = record.getInt();
+                BitSet outcomes = BitSet.valueOf(record);
+                handler.accept(codec.decode(encoded), CreditDecisions.replaying(outcomes, count));
+            }
+            position += RECORD_HEADER + length;
+        }
+        return position;
+    }
+
+    public synchronized void truncate() {
+        if (!enabled)
+            return;
+        buffer.putInt(0, 0);
+        buffer.force(0, TERMINATOR);
+        written = 0;
+        forced = 0;
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        if (!enabled || channel == null)
+            return;
+        running = false;
+        if (committer != null) {
+            committer.interrupt();
+            committer.join(10_000);
+        }
+        synchronized (this) {
+            buffer.force();
+            forced = written;
+            notifyAll();
+        }
+        channel.close();
+        channel = null;
+    }
+}
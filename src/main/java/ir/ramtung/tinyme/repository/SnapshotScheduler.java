@@ -0,0 +1,72 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.service.SecurityShards;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+@Profile("!test")
+@ConditionalOnProperty(name = "requestPipeline", havingValue = "false", matchIfMissing = true)
+public class SnapshotScheduler {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final SnapshotStore snapshotStore;
+    private final RequestJournal requestJournal;
+    private final SecurityShards securityShards;
+    private final long intervalSeconds;
+    private ScheduledExecutorService scheduler;
+
+    public SnapshotScheduler(SnapshotStore snapshotStore, RequestJournal requestJournal, SecurityShards securityShards,
+                             @Value("${snapshot.intervalSeconds:0}") long intervalSeconds) {
+        this.snapshotStore = snapshotStore;
+        this.requestJournal = requestJournal;
+        this.securityShards = securityShards;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!snapshotStore.isEnabled() || intervalSeconds <= 0)
+            return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::takeSnapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void takeSnapshot() {
+        try {
+            securityShards.quiesce(() -> {
+                try {
+                    snapshotStore.write();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                requestJournal.truncate();
+            });
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            log.log(Level.SEVERE, "Periodic snapshot failed", ex);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,324 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.messaging.codec.BinaryCodec;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+@Component
+public class SnapshotStore {
+    private static final int MAGIC = 0x544D5353;
+    private static final int VERSION = 1;
+    private static final byte PLAIN_ORDER = 0;
+    private static final byte ICEBERG_ORDER = 1;
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final BinaryCodec codec = new BinaryCodec();
+    private final BrokerRepository brokerRepository;
+    private final ShareholderRepository shareholderRepository;
+    private final SecurityRepository securityRepository;
+    private final boolean enabled;
+    private final Path path;
+    private final int restoreThreads;
+
+    public SnapshotStore(BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, SecurityRepository securityRepository,
+                         @Value("${snapshot.enabled:false}") boolean enabled,
+                         @Value("${snapshot.path:snapshot/engine.snapshot}") String path,
+                         @Value("${snapshot.restoreThreads:0}") int restoreThreads) {
+        this.brokerRepository = brokerRepository;
+        this.shareholderRepository = shareholderRepository;
+        this.securityRepository = securityRepository;
+        this.enabled = enabled;
+        this.path = Path.of(path);
+        this.restoreThreads = restoreThreads > 0 ? restoreThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean exists() {
+        return enabled && Files.exists(path);
+    }
+
+    public void write() throws IOException {
+        List<Security> securities = new ArrayList<>();
+        securityRepository.allSecurities().forEach(securities::add);
+        List<byte[]> sections = new ArrayList<>(securities.size());
+        for (Security security : securities)
+            sections.add(encodeSection(security));
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        writeBrokers(header);
+        writeShareholders(header);
+        header.writeInt(securities.size());
+        long offset = 0;
+        for (int i = 0; i < securities.size(); i++) {
+            Security security = securities.get(i);
+            writeString(header, security.getIsin());
+            header.writeInt(security.getTickSize());
+            header.writeInt(security.getLotSize());
+            header.writeByte(security.getMatchingState().ordinal());
+            header.writeInt(security.getLatestPrice());
+            header.writeLong(offset);
+            header.writeInt(sections.get(i).length);
+            offset += sections.get(i).length;
+        }
+        writePositions(header);
+        header.flush();
+
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            headerBytes.writeTo(out);
+            for (byte[] section : sections)
+                out.write(section);
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Snapshot of " + securities.size() + " securities written");
+    }
+
+    private void writeBrokers(DataOutputStream out) throws IOException {
+        List<Broker> brokers = new ArrayList<>();
+        brokerRepository.allBrokers().forEach(brokers::add);
+        out.writeInt(brokers.size());
+        for (Broker broker : brokers) {
+            out.writeLong(broker.getBrokerId());
+            writeString(out, broker.getName());
+            out.writeLong(broker.getCredit());
+        }
+    }
+
+    private void writeShareholders(DataOutputStream out) throws IOException {
+        List<Shareholder> shareholders = new ArrayList<>();
+        shareholderRepository.allShareholders().forEach(shareholders::add);
+        out.writeInt(shareholders.size());
+        for (Shareholder shareholder : shareholders) {
+            out.writeLong(shareholder.getShareholderId());
+            writeString(out, shareholder.getName());
+        }
+    }
+
+    private void writePositions(DataOutputStream out) throws IOException {
+        List<Shareholder> shareholders = new ArrayList<>();
+        shareholderRepository.allShareholders().forEach(shareholders::add);
+        int count = 0;
+        for (Shareholder shareholder : shareholders)
+            count += shareholder.getPositions().size();
+        out.writeInt(count);
+        for (Shareholder shareholder : shareholders) {
+            for (Map.Entry<Security, Integer> position : shareholder.getPositions().entrySet()) {
+                out.writeLong(shareholder.getShareholderId());
+                writeString(out, position.getKey().getIsin());
+                out.writeInt(position.getValue());
+            }
+        }
+    }
+
+    private byte[] encodeSection(Security security) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<Order> buyQueue = security.getOrderBook().getBuyQueue();
+        List<Order> sellQueue = security.getOrderBook().getSellQueue();
+        out.writeInt(buyQueue.size() + sellQueue.size());
+        for (Order order : buyQueue)
+            writeOrder(out, order);
+        for (Order order : sellQueue)
+            writeOrder(out, order);
+        List<Order> stopOrders = security.getStopOrderBook().getOrders();
+        out.writeInt(stopOrders.size());
+        for (Order order : stopOrders) {
+            writeOrder(out, order);
+            byte[] request = codec.encode(security.getRequestIDs().get(order.getOrderId()));
+            out.writeInt(request.length);
+            out.write(request);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void writeOrder(DataOutputStream out, Order order) throws IOException {
+        out.writeByte(order instanceof IcebergOrder ? ICEBERG_ORDER : PLAIN_ORDER);
+        out.writeLong(order.getOrderId());
+        out.writeByte(order.getSide().ordinal());
+        out.writeInt(order.getTotalQuantity());
+        out.writeInt(order.getPrice());
+        out.writeLong(order.getBroker().getBrokerId());
+        out.writeLong(order.getShareholder().getShareholderId());
+        out.writeLong(order.getEntryTime().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(order.getEntryTime().getNano());
+        out.writeByte(order.getStatus().ordinal());
+        out.writeInt(order.getMinimumExecutionQuantity());
+        out.writeInt(order.getStopPrice());
+        out.writeBoolean(order.isActive());
+        if (order instanceof IcebergOrder icebergOrder) {
+            out.writeInt(icebergOrder.getPeakSize());
+            out.writeInt(icebergOrder.getDisplayedQuantity());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public void restore() throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                throw new IOException("Unsupported snapshot format in " + path);
+            brokerRepository.clear();
+            shareholderRepository.clear();
+            securityRepository.clear();
+            readBrokers(buffer);
+            readShareholders(buffer);
+
+            int securityCount = buffer.getInt();
+            List<Security> securities = new ArrayList<>(securityCount);
+            long[] offsets = new long[securityCount];
+            int[] lengths = new int[securityCount];
+            for (int i = 0; i < securityCount; i++) {
+                Security security = Security.builder()
+                        .isin(readString(buffer))
+                        .tickSize(buffer.getInt())
+                        .lotSize(buffer.getInt())
+                        .matchingState(MatchingState.values()[buffer.get()])
+                        .latestPrice(buffer.getInt())
+                        .build();
+                offsets[i] = buffer.getLong();
+                lengths[i] = buffer.getInt();
+                security.changeSecurityStatusTo(security.getMatchingState());
+                securities.add(security);
+                securityRepository.addSecurity(security);
+            }
+            readPositions(buffer);
+
+            int sectionsStart = buffer.position();
+            List<Callable<Integer>> restores = new ArrayList<>(securityCount);
+            for (int i = 0; i < securityCount; i++) {
+                Security security = securities.get(i);
+                ByteBuffer section = buffer.slice(Math.toIntExact(sectionsStart + offsets[i]), lengths[i]);
+                restores.add(() -> restoreSection(section, security));
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(restoreThreads, Math.max(securityCount, 1)));
+            int orders = 0;
+            try {
+                for (Future<Integer> restored : executor.invokeAll(restores))
+                    orders += restored.get();
+            } catch (ExecutionException ex) {
+                throw new IOException("Could not restore snapshot " + path, ex.getCause());
+            } finally {
+                executor.shutdown();
+            }
+            log.info("Snapshot restored: " + securityCount + " securities, " + orders + " orders");
+        }
+    }
+
+    private void readBrokers(ByteBuffer in) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            brokerRepository.addBroker(Broker.builder()
+                    .brokerId(in.getLong())
+                    .name(readString(in))
+                    .credit(in.getLong())
+                    .build());
+        }
+    }
+
+    private void readShareholders(ByteBuffer in) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            shareholderRepository.addShareholder(Shareholder.builder()
+                    .shareholderId(in.getLong())
+                    .name(readString(in))
+                    .build());
+        }
+    }
+
+    private void readPositions(ByteBuffer in) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            Shareholder shareholder = shareholderRepository.findShareholderById(in.getLong());
+            Security security = securityRepository.findSecurityByIsin(readString(in));
+            shareholder.incPosition(security, in.getInt());
+        }
+    }
+
+    private int restoreSection(ByteBuffer in, Security security) {
+        int queued = in.getInt();
+        List<Order> orders = new ArrayList<>(queued);
+        for (int i = 0; i < queued; i++)
+            orders.add(readOrder(in, security));
+        security.getOrderBook().bulkLoad(orders);
+        int stopOrders = in.getInt();
+        for (int i = 0; i < stopOrders; i++) {
+            Order order = readOrder(in, security);
+            byte[] request = new byte[in.getInt()];
+            in.get(request);
+            security.getStopOrderBook().add(order);
+            security.getRequestIDs().put(order.getOrderId(), (EnterOrderRq) codec.decode(request));
+        }
+        return queued + stopOrders;
+    }
+
+    private Order readOrder(ByteBuffer in, Security security) {
+        byte kind = in.get();
+        long orderId = in.getLong();
+        Side side = Side.values()[in.get()];
+        int quantity = in.getInt();
+        int price = in.getInt();
+        Broker broker = brokerRepository.findBrokerById(in.getLong());
+        Shareholder shareholder = shareholderRepository.findShareholderById(in.getLong());
+        LocalDateTime entryTime = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+        OrderStatus status = OrderStatus.values()[in.get()];
+        int minimumExecutionQuantity = in.getInt();
+        int stopPrice = in.getInt();
+        boolean isActive = in.get() != 0;
+        if (kind == ICEBERG_ORDER)
+            return new IcebergOrder(orderId, security, side, quantity, price, broker, shareholder, entryTime, in.getInt(), in.getInt(), status);
+        return new Order(orderId, security, side, quantity, price, broker, shareholder, entryTime, status, minimumExecutionQuantity, isActive, stopPrice);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BrokerCreditContentionBenchmark {
+    private static final int[] THREADS = {1, 4, 16, 64};
+    private static final int OPERATIONS = 4_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int round = 0; round < 3; round++) {
+            for (int threads : THREADS) {
+                double sharedBroker = measure(threads, true);
+                double brokerPerThread = measure(threads, false);
+                if (round == 2)
+                    System.out.printf("threads=%d shared-broker=%.1f Mops/s broker-per-thread=%.1f Mops/s%n",
+                            threads, sharedBroker, brokerPerThread);
+            }
+        }
+    }
+
+    private static double measure(int threads, boolean shared) throws InterruptedException {
+        Broker sharedInstance = Broker.builder().brokerId(1).credit(1_000_000).build();
+        int perThread = OPERATIONS / threads;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        LongAdder rejected = new LongAdder();
+        for (int t = 0; t < threads; t++) {
+            Broker broker = shared ? sharedInstance : Broker.builder().brokerId(t).credit(1_000_000).build();
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    if (!broker.reserveCredit(100)) {
+                        rejected.increment();
+                    } else if ((i & 1) == 0) {
+                        broker.commitReservedCredit(100);
+                        broker.increaseCreditBy(100);
+                    } else {
+                        broker.releaseReservedCredit(100);
+                    }
+                }
+                done.countDown();
+            });
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        if (sharedInstance.getReservedCredit() != 0 || rejected.sum() != 0)
+            throw new IllegalStateException("Credit ledger is inconsistent");
+        return (double) perThread * threads * 1_000 / elapsed;
+    }
+}
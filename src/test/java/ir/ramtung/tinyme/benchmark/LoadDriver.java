@@ -0,0 +1,184 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.domain.service.*;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.MarketDataPublisher;
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.metrics.LatencyRecorder;
+import ir.ramtung.tinyme.metrics.LatencyReporter;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.RequestJournal;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class LoadDriver {
+    public static void main(String[] args) {
+        int requests = 1_000_000;
+        int warmup = 300_000;
+        int latencySampleEvery = 0;
+        Map<String, Object> engineProperties = new HashMap<>();
+        OrderFlowMix.OrderFlowMixBuilder mix = OrderFlowMix.builder();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            switch (pair[0]) {
+                case "requests" -> requests = Integer.parseInt(pair[1]);
+                case "warmup" -> warmup = Integer.parseInt(pair[1]);
+                case "latencySampleEvery" -> latencySampleEvery = Integer.parseInt(pair[1]);
+                case "seed" -> mix.seed(Long.parseLong(pair[1]));
+                case "securities" -> mix.securities(Integer.parseInt(pair[1]));
+                case "brokers" -> mix.brokers(Integer.parseInt(pair[1]));
+                case "shareholders" -> mix.shareholders(Integer.parseInt(pair[1]));
+                case "limitWeight" -> mix.limitWeight(Integer.parseInt(pair[1]));
+                case "icebergWeight" -> mix.icebergWeight(Integer.parseInt(pair[1]));
+                case "stopLimitWeight" -> mix.stopLimitWeight(Integer.parseInt(pair[1]));
+                case "cancelRatio" -> mix.cancelRatio(Double.parseDouble(pair[1]));
+                case "updateRatio" -> mix.updateRatio(Double.parseDouble(pair[1]));
+                case "midPrice" -> mix.midPrice(Integer.parseInt(pair[1]));
+                case "priceSigmaTicks" -> mix.priceSigmaTicks(Double.parseDouble(pair[1]));
+                case "maxQuantity" -> mix.maxQuantity(Integer.parseInt(pair[1]));
+                case "auctionEvery" -> mix.auctionEvery(Integer.parseInt(pair[1]));
+                case "auctionLength" -> mix.auctionLength(Integer.parseInt(pair[1]));
+                default -> {
+                    if (!pair[0].contains("."))
+                        throw new IllegalArgumentException("Unknown option " + pair[0]);
+                    engineProperties.put(pair[0], pair[1]);
+                }
+            }
+        }
+        OrderFlowMix measured = mix.build();
+        System.out.println(measured);
+        if (warmup > 0)
+            run(measured.toBuilder().seed(measured.getSeed() + 1).build(), warmup, latencyRecorder(latencySampleEvery), engineProperties);
+        LatencyRecorder latencyRecorder = latencyRecorder(latencySampleEvery);
+        Report report = run(measured, requests, latencyRecorder, engineProperties);
+        report.print();
+        if (latencyRecorder.isEnabled())
+            System.out.println(new LatencyReporter(latencyRecorder, 0, false).export(false));
+    }
+
+    private static LatencyRecorder latencyRecorder(int sampleEvery) {
+        return sampleEvery > 0 ? new LatencyRecorder(true, sampleEvery) : LatencyRecorder.DISABLED;
+    }
+
+    static Report run(OrderFlowMix mix, int requests, LatencyRecorder latencyRecorder, Map<String, Object> engineProperties) {
+        OrderFlowGenerator generator = new OrderFlowGenerator(mix);
+        TallyingEventPublisher publisher = new TallyingEventPublisher(generator);
+        try (AnnotationConfigApplicationContext context = startEngine(mix, publisher, latencyRecorder, engineProperties)) {
+            OrderHandler orderHandler = context.getBean(OrderHandler.class);
+            ChangeMatchStateHandler changeMatchStateHandler = context.getBean(ChangeMatchStateHandler.class);
+            long[] latencies = new long[requests];
+            long busy = 0;
+            for (int i = 0; i < requests; i++) {
+                Object request = generator.next();
+                long begin = System.nanoTime();
+                if (request instanceof EnterOrderRq enterOrderRq)
+                    orderHandler.handleEnterOrder(enterOrderRq);
+                else if (request instanceof DeleteOrderRq deleteOrderRq)
+                    orderHandler.handleDeleteOrder(deleteOrderRq);
+                else if (request instanceof ChangeMatchingStateRq changeMatchingStateRq)
+                    changeMatchStateHandler.handleChangeMatchingState(changeMatchingStateRq);
+                latencies[i] = System.nanoTime() - begin;
+                busy += latencies[i];
+            }
+            return new Report(requests, busy, latencies, publisher);
+        }
+    }
+
+    private static AnnotationConfigApplicationContext startEngine(OrderFlowMix mix, EventPublisher publisher, LatencyRecorder latencyRecorder,
+                                                                  Map<String, Object> engineProperties) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("loadDriver", engineProperties));
+        context.registerBean(EventPublisher.class, () -> publisher);
+        context.registerBean(LatencyRecorder.class, () -> latencyRecorder);
+        context.register(SecurityRepository.class, BrokerRepository.class, ShareholderRepository.class,
+                Matcher.class, MatchingControlList.class, CreditControl.class, OrderValidator.class,
+                MatchOutcomePublisher.class, OrderHandler.class, ChangeMatchStateHandler.class, RequestJournal.class,
+                MarketDataPublisher.class, TradeTape.class);
+        context.refresh();
+        SecurityRepository securities = context.getBean(SecurityRepository.class);
+        ShareholderRepository shareholders = context.getBean(ShareholderRepository.class);
+        BrokerRepository brokers = context.getBean(BrokerRepository.class);
+        for (int i = 1; i <= mix.getBrokers(); i++)
+            brokers.addBroker(Broker.builder().brokerId(i).name("broker" + i).credit(Long.MAX_VALUE / 4).build());
+        for (int i = 1; i <= mix.getShareholders(); i++)
+            shareholders.addShareholder(Shareholder.builder().shareholderId(i).name("holder" + i).build());
+        for (int i = 0; i < mix.getSecurities(); i++) {
+            Security security = Security.builder().isin(OrderFlowGenerator.isin(i)).build();
+            securities.addSecurity(security);
+            for (int j = 1; j <= mix.getShareholders(); j++)
+                shareholders.findShareholderById(j).incPosition(security, Integer.MAX_VALUE / 2);
+        }
+        return context;
+    }
+
+    record Report(int requests, long busyNanos, long[] latencies, TallyingEventPublisher events) {
+        void print() {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            System.out.printf("requests=%,d throughput=%,.0f rq/s%n", requests, requests * 1e9 / busyNanos);
+            System.out.printf("latency p50=%,d ns p99=%,d ns p99.9=%,d ns max=%,d ns%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999), sorted[sorted.length - 1]);
+            System.out.printf("accepted=%,d rejected=%,d trades=%,d deleted=%,d activated=%,d checksum=%016x%n",
+                    events.accepted, events.rejected, events.trades, events.deleted, events.activated, events.checksum);
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+        }
+    }
+
+    static class TallyingEventPublisher extends EventPublisher {
+        long accepted;
+        long rejected;
+        long trades;
+        long deleted;
+        long activated;
+        long checksum;
+
+        private final OrderFlowGenerator generator;
+
+        TallyingEventPublisher(OrderFlowGenerator generator) {
+            super(null);
+            this.generator = generator;
+        }
+
+        @Override
+        public void publish(Event event) {
+            if (event instanceof OrderAcceptedEvent)
+                accepted++;
+            else if (event instanceof OrderRejectedEvent rejectedEvent) {
+                rejected++;
+                generator.onRejected(rejectedEvent.getOrderId());
+            }
+            else if (event instanceof OrderDeletedEvent)
+                deleted++;
+            else if (event instanceof OrderActivatedEvent)
+                activated++;
+            else if (event instanceof OrderExecutedEvent executedEvent) {
+                trades += executedEvent.getTrades().size();
+                for (TradeDTO trade : executedEvent.getTrades())
+                    generator.onTrade(trade.buyOrderId(), trade.sellOrderId(), trade.quantity());
+            } else if (event instanceof TradeEvent tradeEvent) {
+                trades++;
+                generator.onTrade(tradeEvent.getBuyId(), tradeEvent.getSellId(), tradeEvent.getQuantity());
+            }
+            String fingerprint = event instanceof SecurityStateChangedEvent stateChanged
+                    ? stateChanged.getSecurityIsin() + stateChanged.getState()
+                    : event.toString();
+            checksum = checksum * 31 + fingerprint.hashCode();
+        }
+    }
+}
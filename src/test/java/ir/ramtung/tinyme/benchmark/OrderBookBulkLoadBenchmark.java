@@ -0,0 +1,51 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class OrderBookBulkLoadBenchmark {
+    private static final int ORDERS = 1_000_000;
+    private static final int PRICE_LEVELS = 1_000;
+
+    public static void main(String[] args) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        for (int round = 0; round < 5; round++) {
+            List<Order> orders = orders();
+            long start = threads.getCurrentThreadCpuTime();
+            OrderBook enqueued = new OrderBook();
+            for (Order order : orders)
+                enqueued.enqueue(order);
+            long enqueueNanos = threads.getCurrentThreadCpuTime() - start;
+
+            orders = orders();
+            start = threads.getCurrentThreadCpuTime();
+            OrderBook bulkLoaded = new OrderBook();
+            bulkLoaded.bulkLoad(orders);
+            long bulkNanos = threads.getCurrentThreadCpuTime() - start;
+
+            if (round >= 3)
+                System.out.printf("orders=%,d enqueue=%d ms bulkLoad=%d ms (cpu time)%n", ORDERS, enqueueNanos / 1_000_000, bulkNanos / 1_000_000);
+        }
+    }
+
+    private static List<Order> orders() {
+        Security security = Security.builder().isin("BENCH").build();
+        Broker broker = Broker.builder().brokerId(1).credit(Long.MAX_VALUE / 2).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        Random random = new Random(42);
+        LocalDateTime entryTime = LocalDateTime.now();
+        List<Order> orders = new ArrayList<>(ORDERS);
+        for (int i = 1; i <= ORDERS; i++) {
+            Side side = (i & 1) == 0 ? Side.BUY : Side.SELL;
+            int price = side == Side.BUY ? 1000 + random.nextInt(PRICE_LEVELS) : 3000 + random.nextInt(PRICE_LEVELS);
+            orders.add(new Order(i, security, side, 10, price, broker, shareholder, entryTime, OrderStatus.QUEUED));
+        }
+        return orders;
+    }
+}
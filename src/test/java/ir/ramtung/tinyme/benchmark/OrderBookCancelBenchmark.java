@@ -0,0 +1,51 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+public class OrderBookCancelBenchmark {
+    private static final int[] DEPTHS = {1_000, 10_000, 100_000, 1_000_000};
+    private static final int CANCELS = 100_000;
+    private static final int PRICE_LEVELS = 1_000;
+
+    public static void main(String[] args) {
+        for (int round = 0; round < 3; round++) {
+            for (int depth : DEPTHS) {
+                double nanosPerCancel = measureRepeatedly(depth);
+                if (round == 2)
+                    System.out.printf("depth=%,d cancel=%.1f ns/op%n", depth, nanosPerCancel);
+            }
+        }
+    }
+
+    private static double measureRepeatedly(int depth) {
+        int repetitions = Math.max(1, CANCELS / depth);
+        double total = 0;
+        for (int i = 0; i < repetitions; i++)
+            total += measure(depth);
+        return total / repetitions;
+    }
+
+    private static double measure(int depth) {
+        Security security = Security.builder().isin("BENCH").build();
+        Broker broker = Broker.builder().brokerId(1).credit(Long.MAX_VALUE / 2).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        OrderBook orderBook = security.getOrderBook();
+        Random random = new Random(42);
+        LocalDateTime entryTime = LocalDateTime.now();
+        for (int i = 1; i <= depth; i++)
+            orderBook.enqueue(new Order(i, security, Side.BUY, 10, 1000 + random.nextInt(PRICE_LEVELS), broker, shareholder, entryTime));
+
+        int cancels = Math.min(CANCELS, depth);
+        long[] ids = new long[cancels];
+        for (int i = 0; i < cancels; i++)
+            ids[i] = 1 + random.nextInt(depth);
+
+        long start = System.nanoTime();
+        for (long id : ids)
+            orderBook.removeByOrderId(Side.BUY, id);
+        return (double) (System.nanoTime() - start) / cancels;
+    }
+}
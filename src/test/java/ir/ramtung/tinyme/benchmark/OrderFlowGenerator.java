@@ -0,0 +1,159 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+public class OrderFlowGenerator {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    private final OrderFlowMix mix;
+    private final Random random;
+    private final List<List<LiveOrder>> liveBySecurity = new ArrayList<>();
+    private final HashMap<Long, LiveOrder> liveById = new HashMap<>();
+    private final ArrayDeque<long[]> auctionEnds = new ArrayDeque<>();
+    private long requestId;
+    private long orderId;
+    private int nextAuctionSecurity;
+
+    public OrderFlowGenerator(OrderFlowMix mix) {
+        this.mix = mix;
+        this.random = new Random(mix.getSeed());
+        for (int i = 0; i < mix.getSecurities(); i++)
+            liveBySecurity.add(new ArrayList<>());
+    }
+
+    public static String isin(int security) {
+        return "SYN" + security;
+    }
+
+    public long generated() {
+        return requestId;
+    }
+
+    public int liveOrders() {
+        return liveById.size();
+    }
+
+    public Object next() {
+        requestId++;
+        LocalDateTime entryTime = START.plusNanos(requestId * 1_000);
+        if (!auctionEnds.isEmpty() && auctionEnds.peekFirst()[0] <= requestId)
+            return new ChangeMatchingStateRq(isin((int) auctionEnds.pollFirst()[1]), MatchingState.CONTINUOUS);
+        if (mix.getAuctionEvery() > 0 && requestId % mix.getAuctionEvery() == 0) {
+            int security = nextAuctionSecurity;
+            nextAuctionSecurity = (nextAuctionSecurity + 1) % mix.getSecurities();
+            auctionEnds.addLast(new long[]{requestId + mix.getAuctionLength(), security});
+            return new ChangeMatchingStateRq(isin(security), MatchingState.AUCTION);
+        }
+
+        int security = random.nextInt(mix.getSecurities());
+        List<LiveOrder> live = liveBySecurity.get(security);
+        double action = random.nextDouble();
+        if (!live.isEmpty() && action < mix.getCancelRatio()) {
+            LiveOrder order = live.get(random.nextInt(live.size()));
+            forget(order);
+            return new DeleteOrderRq(requestId, isin(security), order.side, order.orderId, entryTime);
+        }
+        if (!live.isEmpty() && action < mix.getCancelRatio() + mix.getUpdateRatio()) {
+            LiveOrder order = live.get(random.nextInt(live.size()));
+            int quantity = quantity(order.peakSize > 0);
+            int peakSize = order.peakSize > 0 ? Math.min(order.peakSize, quantity - 1) : 0;
+            order.remaining = quantity;
+            return EnterOrderRq.createUpdateOrderRq(requestId, isin(security), order.orderId, entryTime, order.side,
+                    quantity, price(), order.brokerId, order.shareholderId, peakSize);
+        }
+        return newOrder(security, entryTime);
+    }
+
+    public void onTrade(long buyOrderId, long sellOrderId, int quantity) {
+        fill(buyOrderId, quantity);
+        fill(sellOrderId, quantity);
+    }
+
+    public void onRejected(long rejectedOrderId) {
+        LiveOrder order = liveById.get(rejectedOrderId);
+        if (order != null)
+            forget(order);
+    }
+
+    private void fill(long filledOrderId, int quantity) {
+        LiveOrder order = liveById.get(filledOrderId);
+        if (order == null)
+            return;
+        order.remaining -= quantity;
+        if (order.remaining <= 0)
+            forget(order);
+    }
+
+    private EnterOrderRq newOrder(int security, LocalDateTime entryTime) {
+        Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+        int price = price();
+        long brokerId = 1 + random.nextInt(mix.getBrokers());
+        long shareholderId = 1 + random.nextInt(mix.getShareholders());
+        int kind = random.nextInt(mix.getLimitWeight() + mix.getIcebergWeight() + mix.getStopLimitWeight());
+        boolean iceberg = kind >= mix.getLimitWeight() && kind < mix.getLimitWeight() + mix.getIcebergWeight();
+        int quantity = quantity(iceberg);
+        int peakSize = iceberg ? 1 + quantity / 5 : 0;
+        int stopPrice = 0;
+        if (kind >= mix.getLimitWeight() + mix.getIcebergWeight()) {
+            int distance = 1 + random.nextInt((int) Math.max(1, mix.getPriceSigmaTicks()));
+            stopPrice = side == Side.BUY ? mix.getMidPrice() + distance : mix.getMidPrice() - distance;
+        }
+        LiveOrder order = new LiveOrder(++orderId, security, side, brokerId, shareholderId, peakSize, quantity);
+        List<LiveOrder> live = liveBySecurity.get(security);
+        order.index = live.size();
+        live.add(order);
+        liveById.put(order.orderId, order);
+        return EnterOrderRq.createNewOrderRq(requestId, isin(security), order.orderId, entryTime, side, quantity, price,
+                brokerId, shareholderId, peakSize, 0, stopPrice);
+    }
+
+    private void forget(LiveOrder order) {
+        List<LiveOrder> live = liveBySecurity.get(order.security);
+        LiveOrder last = live.remove(live.size() - 1);
+        if (last != order) {
+            live.set(order.index, last);
+            last.index = order.index;
+        }
+        liveById.remove(order.orderId);
+    }
+
+    private int quantity(boolean iceberg) {
+        return (iceberg ? 2 : 1) + random.nextInt(mix.getMaxQuantity());
+    }
+
+    private int price() {
+        return Math.max(1, mix.getMidPrice() + (int) Math.round(random.nextGaussian() * mix.getPriceSigmaTicks()));
+    }
+
+    private static class LiveOrder {
+        final long orderId;
+        final int security;
+        final Side side;
+        final long brokerId;
+        final long shareholderId;
+        final int peakSize;
+        int remaining;
+        int index;
+
+        LiveOrder(long orderId, int security, Side side, long brokerId, long shareholderId, int peakSize, int remaining) {
+            this.orderId = orderId;
+            this.security = security;
+            this.side = side;
+            this.brokerId = brokerId;
+            this.shareholderId = shareholderId;
+            this.peakSize = peakSize;
+            this.remaining = remaining;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderFlowGeneratorTest {
+    private List<Object> generate(OrderFlowMix mix, int count) {
+        OrderFlowGenerator generator = new OrderFlowGenerator(mix);
+        List<Object> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            requests.add(generator.next());
+        return requests;
+    }
+
+    @Test
+    void the_same_seed_generates_the_same_flow() {
+        OrderFlowMix mix = OrderFlowMix.builder().seed(7).auctionEvery(100).auctionLength(10).build();
+        assertThat(generate(mix, 5_000)).isEqualTo(generate(mix, 5_000));
+        assertThat(generate(mix, 5_000)).isNotEqualTo(generate(mix.toBuilder().seed(8).build(), 5_000));
+    }
+
+    @Test
+    void cancels_only_target_orders_that_are_still_live() {
+        OrderFlowGenerator generator = new OrderFlowGenerator(OrderFlowMix.builder().securities(1).cancelRatio(0.5).updateRatio(0).build());
+        List<Long> entered = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            Object request = generator.next();
+            if (request instanceof EnterOrderRq enterOrderRq) {
+                entered.add(enterOrderRq.getOrderId());
+                generator.onTrade(enterOrderRq.getOrderId(), -1, enterOrderRq.getQuantity());
+            } else if (request instanceof DeleteOrderRq) {
+                throw new AssertionError("Cancelled an order that was fully filled");
+            }
+        }
+        assertThat(entered).hasSize(2_000);
+        assertThat(generator.liveOrders()).isZero();
+    }
+
+    @Test
+    void auction_sessions_open_and_close_on_schedule() {
+        List<Object> requests = generate(OrderFlowMix.builder().securities(2).auctionEvery(50).auctionLength(20).build(), 199);
+        List<String> transitions = requests.stream()
+                .filter(ChangeMatchingStateRq.class::isInstance)
+                .map(ChangeMatchingStateRq.class::cast)
+                .map(rq -> rq.getSecurityIsin() + ":" + rq.getTargetState())
+                .toList();
+        assertThat(transitions).containsExactly(
+                "SYN0:" + MatchingState.AUCTION, "SYN0:" + MatchingState.CONTINUOUS,
+                "SYN1:" + MatchingState.AUCTION, "SYN1:" + MatchingState.CONTINUOUS,
+                "SYN0:" + MatchingState.AUCTION, "SYN0:" + MatchingState.CONTINUOUS);
+    }
+
+    @Test
+    void the_order_mix_follows_the_weights() {
+        List<Object> requests = generate(OrderFlowMix.builder().limitWeight(0).icebergWeight(1).stopLimitWeight(0).cancelRatio(0).updateRatio(0).build(), 1_000);
+        assertThat(requests).allSatisfy(request -> {
+            EnterOrderRq enterOrderRq = (EnterOrderRq) request;
+            assertThat(enterOrderRq.getPeakSize()).isPositive().isLessThan(enterOrderRq.getQuantity());
+            assertThat(enterOrderRq.getStopPrice()).isZero();
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package ir.ramtung.tinyme.benchmark;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@Builder(toBuilder = true)
+@ToString
+public class OrderFlowMix {
+    @Builder.Default
+    private long seed = 42;
+    @Builder.Default
+    private int securities = 8;
+    @Builder.Default
+    private int brokers = 4;
+    @Builder.Default
+    private int shareholders = 100;
+    @Builder.Default
+    private int limitWeight = 80;
+    @Builder.Default
+    private int icebergWeight = 10;
+    @Builder.Default
+    private int stopLimitWeight = 10;
+    @Builder.Default
+    private double cancelRatio = 0.3;
+    @Builder.Default
+    private double updateRatio = 0.05;
+    @Builder.Default
+    private int midPrice = 10_000;
+    @Builder.Default
+    private double priceSigmaTicks = 20;
+    @Builder.Default
+    private int maxQuantity = 100;
+    @Builder.Default
+    private int auctionEvery = 0;
+    @Builder.Default
+    private int auctionLength = 1_000;
+}
@@ -0,0 +1,115 @@
+package ir.ramtung.tinyme.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.*;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.MarketDataPublisher;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.pipeline.RequestPipeline;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.RequestJournal;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RequestPipelineBenchmark {
+    private static final int REQUESTS = 200_000;
+    private static final int SECURITIES = 8;
+
+    public static void main(String[] args) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        String[] payloads = generatePayloads(objectMapper);
+        for (int round = 0; round < 3; round++) {
+            double direct = measureDirect(objectMapper, payloads);
+            double pipelined = measurePipelined(objectMapper, payloads);
+            if (round == 2)
+                System.out.printf("direct=%,.0f rq/s pipeline=%,.0f rq/s%n", direct, pipelined);
+        }
+    }
+
+    private static String[] generatePayloads(ObjectMapper objectMapper) throws Exception {
+        Random random = new Random(42);
+        LocalDateTime entryTime = LocalDateTime.now();
+        String[] payloads = new String[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+            int price = 1000 + random.nextInt(20) * 10;
+            EnterOrderRq rq = EnterOrderRq.createNewOrderRq(i + 1, "S" + (i % SECURITIES), i + 1, entryTime, side, 10 * (1 + random.nextInt(10)), price, 1, 1, 0);
+            payloads[i] = objectMapper.writeValueAsString(rq);
+        }
+        return payloads;
+    }
+
+    private static AnnotationConfigApplicationContext startEngine(CountingEventPublisher publisher) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(EventPublisher.class, () -> publisher);
+        context.register(SecurityRepository.class, BrokerRepository.class, ShareholderRepository.class,
+                Matcher.class, MatchingControlList.class, CreditControl.class, OrderValidator.class,
+                MatchOutcomePublisher.class, OrderHandler.class, SecurityShards.class, RequestJournal.class,
+                MarketDataPublisher.class);
+        context.refresh();
+        SecurityRepository securities = context.getBean(SecurityRepository.class);
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        for (int i = 0; i < SECURITIES; i++) {
+            Security security = Security.builder().isin("S" + i).build();
+            securities.addSecurity(security);
+            shareholder.incPosition(security, Integer.MAX_VALUE / 2);
+        }
+        context.getBean(BrokerRepository.class).addBroker(Broker.builder().brokerId(1).credit(Long.MAX_VALUE / 4).build());
+        context.getBean(ShareholderRepository.class).addShareholder(shareholder);
+        return context;
+    }
+
+    private static double measureDirect(ObjectMapper objectMapper, String[] payloads) throws Exception {
+        CountingEventPublisher publisher = new CountingEventPublisher();
+        try (AnnotationConfigApplicationContext context = startEngine(publisher)) {
+            OrderHandler orderHandler = context.getBean(OrderHandler.class);
+            long start = System.nanoTime();
+            for (String payload : payloads)
+                orderHandler.handleEnterOrder(objectMapper.readValue(payload, EnterOrderRq.class));
+            return REQUESTS * 1e9 / (System.nanoTime() - start);
+        }
+    }
+
+    private static double measurePipelined(ObjectMapper objectMapper, String[] payloads) throws Exception {
+        CountingEventPublisher publisher = new CountingEventPublisher();
+        try (AnnotationConfigApplicationContext context = startEngine(publisher)) {
+            RequestPipeline pipeline = new RequestPipeline(context.getBean(OrderHandler.class), context.getBean(OrderValidator.class),
+                    publisher, context.getBean(SecurityShards.class), objectMapper, 4096);
+            pipeline.start();
+            long start = System.nanoTime();
+            for (String payload : payloads)
+                pipeline.submit(EnterOrderRq.class.getName(), payload);
+            while (publisher.answered.get() < REQUESTS)
+                Thread.onSpinWait();
+            double throughput = REQUESTS * 1e9 / (System.nanoTime() - start);
+            pipeline.stop();
+            return throughput;
+        }
+    }
+
+    private static class CountingEventPublisher extends EventPublisher {
+        private final AtomicLong answered = new AtomicLong();
+
+        CountingEventPublisher() {
+            super(null);
+        }
+
+        @Override
+        public void send(Event event) {
+            if (event instanceof OrderAcceptedEvent || event instanceof OrderRejectedEvent)
+                answered.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import ir.ramtung.tinyme.repository.SnapshotStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+public class SnapshotRestoreBenchmark {
+    private static final int SECURITIES = 200;
+    private static final int BROKERS = 100;
+    private static final int SHAREHOLDERS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path directory = Files.createTempDirectory("snapshot-benchmark");
+        Path file = directory.resolve("engine.snapshot");
+        BrokerRepository brokers = new BrokerRepository();
+        ShareholderRepository shareholders = new ShareholderRepository();
+        SecurityRepository securities = new SecurityRepository();
+        populate(brokers, shareholders, securities, orders);
+        SnapshotStore store = new SnapshotStore(brokers, shareholders, securities, true, file.toString(), 0);
+
+        long start = System.nanoTime();
+        store.write();
+        System.out.printf("write: %d orders, %d MB in %d ms%n", orders, Files.size(file) >> 20, (System.nanoTime() - start) / 1_000_000);
+        for (int round = 0; round < 3; round++) {
+            start = System.nanoTime();
+            store.restore();
+            System.out.printf("restore: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        }
+        Files.delete(file);
+        Files.delete(directory);
+    }
+
+    private static void populate(BrokerRepository brokers, ShareholderRepository shareholders, SecurityRepository securities, int orders) {
+        Random random = new Random(1);
+        Broker[] brokerArray = new Broker[BROKERS];
+        for (int i = 0; i < BROKERS; i++) {
+            brokerArray[i] = Broker.builder().brokerId(i).name("broker" + i).credit(Long.MAX_VALUE / 4).build();
+            brokers.addBroker(brokerArray[i]);
+        }
+        Shareholder[] shareholderArray = new Shareholder[SHAREHOLDERS];
+        for (int i = 0; i < SHAREHOLDERS; i++) {
+            shareholderArray[i] = Shareholder.builder().shareholderId(i).name("holder" + i).build();
+            shareholders.addShareholder(shareholderArray[i]);
+        }
+        Security[] securityArray = new Security[SECURITIES];
+        for (int i = 0; i < SECURITIES; i++) {
+            securityArray[i] = Security.builder().isin("IR" + i).build();
+            securities.addSecurity(securityArray[i]);
+            shareholderArray[i % SHAREHOLDERS].incPosition(securityArray[i], Integer.MAX_VALUE / 2);
+        }
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 9, 0);
+        for (int i = 0; i < orders; i++) {
+            Security security = securityArray[i % SECURITIES];
+            Side side = (i & 1) == 0 ? Side.BUY : Side.SELL;
+            int price = side == Side.BUY ? 10_000 - random.nextInt(500) : 10_500 + random.nextInt(500);
+            Broker broker = brokerArray[random.nextInt(BROKERS)];
+            Shareholder shareholder = shareholderArray[random.nextInt(SHAREHOLDERS)];
+            Order order = i % 10 == 0
+                    ? new IcebergOrder(i, security, side, 1000, price, broker, shareholder, time.plusNanos(i), 100, OrderStatus.NEW)
+                    : new Order(i, security, side, 100 + random.nextInt(900), price, broker, shareholder, time.plusNanos(i));
+            security.getOrderBook().enqueue(order);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ir.ramtung.tinyme.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.codec.BinaryCodec;
+import ir.ramtung.tinyme.messaging.event.OrderExecutedEvent;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class WireCodecBenchmark {
+    private static final int ITERATIONS = 500_000;
+    private static long sink;
+
+    public static void main(String[] args) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        BinaryCodec codec = new BinaryCodec();
+        EnterOrderRq enterOrderRq = EnterOrderRq.createNewOrderRq(1, "ABC", 2, LocalDateTime.now(), Side.BUY, 300, 15450, 3, 4, 0);
+        OrderExecutedEvent executedEvent = new OrderExecutedEvent(1, 2, List.of(
+                new TradeDTO("ABC", 15450, 100, 2, 10), new TradeDTO("ABC", 15450, 100, 2, 11), new TradeDTO("ABC", 15460, 100, 2, 12)));
+
+        for (int round = 0; round < 3; round++) {
+            boolean report = round == 2;
+            run(report, "EnterOrderRq", enterOrderRq, objectMapper, codec);
+            run(report, "OrderExecutedEvent(3 trades)", executedEvent, objectMapper, codec);
+        }
+        if (sink == 42)
+            System.out.println();
+    }
+
+    private static void run(boolean report, String name, Object message, ObjectMapper objectMapper, BinaryCodec codec) throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(message);
+        byte[] binary = codec.encode(message);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            sink += objectMapper.writeValueAsBytes(message).length;
+        double jsonEncode = (double) (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            sink += objectMapper.readValue(json, message.getClass()).hashCode();
+        double jsonDecode = (double) (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            sink += codec.encode(message).length;
+        double binaryEncode = (double) (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            sink += codec.decode(binary).hashCode();
+        double binaryDecode = (double) (System.nanoTime() - start) / ITERATIONS;
+
+        if (report) {
+            System.out.printf("%s json: %d bytes encode=%.0f ns/op decode=%.0f ns/op%n", name, json.length, jsonEncode, jsonDecode);
+            System.out.printf("%s binary: %d bytes encode=%.0f ns/op decode=%.0f ns/op%n", name, binary.length, binaryEncode, binaryDecode);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ir.ramtung.tinyme.benchmark.jmh;
+
+import ir.ramtung.tinyme.domain.entity.MatchResult;
+import ir.ramtung.tinyme.domain.entity.OrderBook;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+public class AuctionBenchmark {
+    @State(Scope.Thread)
+    public static class CrossingBook {
+        @Param({"1000", "100000"})
+        public int depth;
+        @Param({"10", "1000"})
+        public int spread;
+
+        AnnotationConfigApplicationContext context;
+        Matcher matcher;
+        OrderBook orderBook;
+        int lastTradePrice;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            context = Books.matchingContext();
+            matcher = context.getBean(Matcher.class);
+            Books books = new Books(depth, spread);
+            books.fillCrossingSides();
+            orderBook = books.security.getOrderBook();
+            lastTradePrice = Books.BEST_BID;
+        }
+
+        @TearDown(Level.Iteration)
+        public void teardown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public HashMap<String, Long> calcCurrentOpeningPriceAndMaxQuantity(CrossingBook book) {
+        book.lastTradePrice ^= 1;
+        return book.orderBook.calcCurrentOpeningPriceAndMaxQuantity(book.lastTradePrice);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public MatchResult auctionMatch(CrossingBook book) {
+        int openingPrice = book.orderBook.calcCurrentOpeningPriceAndMaxQuantity(book.lastTradePrice).get("price").intValue();
+        return book.matcher.auctionMatch(book.orderBook, openingPrice);
+    }
+}
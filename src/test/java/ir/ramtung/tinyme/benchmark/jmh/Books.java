@@ -0,0 +1,75 @@
+package ir.ramtung.tinyme.benchmark.jmh;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.CreditControl;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.domain.service.MatchingControlList;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+final class Books {
+    static final int BEST_BID = 10_000;
+    static final int QUANTITY = 10;
+    static final LocalDateTime ENTRY_TIME = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    final Security security = Security.builder().isin("BENCH").build();
+    final Broker broker = Broker.builder().brokerId(1).name("bench").credit(Long.MAX_VALUE / 4).build();
+    final Shareholder shareholder = Shareholder.builder().shareholderId(1).name("bench").build();
+    final Random random = new Random(42);
+    final int depth;
+    final int spread;
+    long nextOrderId = 1;
+
+    Books(int depth, int spread) {
+        this.depth = depth;
+        this.spread = spread;
+        shareholder.incPosition(security, Integer.MAX_VALUE / 2);
+    }
+
+    int bestAsk() {
+        return BEST_BID + spread + 1;
+    }
+
+    int randomBuyPrice() {
+        return BEST_BID - random.nextInt(spread);
+    }
+
+    int randomSellPrice() {
+        return bestAsk() + random.nextInt(spread);
+    }
+
+    Order order(Side side, int quantity, int price) {
+        return new Order(nextOrderId++, security, side, quantity, price, broker, shareholder, ENTRY_TIME);
+    }
+
+    Order queuedOrder(Side side, int quantity, int price) {
+        return new Order(nextOrderId++, security, side, quantity, price, broker, shareholder, ENTRY_TIME, OrderStatus.QUEUED);
+    }
+
+    void fillBothSides() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.enqueue(queuedOrder(Side.BUY, QUANTITY, BEST_BID));
+        orderBook.enqueue(queuedOrder(Side.SELL, QUANTITY, bestAsk()));
+        for (int i = 1; i < depth; i++) {
+            orderBook.enqueue(queuedOrder(Side.BUY, QUANTITY, randomBuyPrice()));
+            orderBook.enqueue(queuedOrder(Side.SELL, QUANTITY, randomSellPrice()));
+        }
+    }
+
+    void fillCrossingSides() {
+        OrderBook orderBook = security.getOrderBook();
+        for (int i = 0; i < depth; i++) {
+            orderBook.enqueue(queuedOrder(Side.BUY, QUANTITY + random.nextInt(QUANTITY), BEST_BID - spread / 2 + random.nextInt(spread)));
+            orderBook.enqueue(queuedOrder(Side.SELL, QUANTITY + random.nextInt(QUANTITY), BEST_BID - spread / 2 + random.nextInt(spread)));
+        }
+    }
+
+    static AnnotationConfigApplicationContext matchingContext() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(Matcher.class, MatchingControlList.class, CreditControl.class);
+        context.refresh();
+        return context;
+    }
+}
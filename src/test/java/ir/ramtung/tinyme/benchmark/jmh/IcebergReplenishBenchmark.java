@@ -0,0 +1,48 @@
+package ir.ramtung.tinyme.benchmark.jmh;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IcebergReplenishBenchmark {
+    private static final int HIDDEN_QUANTITY = 1_000_000_000;
+
+    @Param({"1000", "100000"})
+    public int depth;
+    @Param({"10", "1000"})
+    public int spread;
+
+    private AnnotationConfigApplicationContext context;
+    private Matcher matcher;
+    private Books books;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        context = Books.matchingContext();
+        matcher = context.getBean(Matcher.class);
+        books = new Books(depth, spread);
+        OrderBook orderBook = books.security.getOrderBook();
+        for (int i = 0; i < depth; i++) {
+            orderBook.enqueue(books.queuedOrder(Side.BUY, Books.QUANTITY, books.randomBuyPrice()));
+            orderBook.enqueue(new IcebergOrder(books.nextOrderId++, books.security, Side.SELL, HIDDEN_QUANTITY,
+                    i == 0 ? books.bestAsk() : books.randomSellPrice(), books.broker, books.shareholder,
+                    Books.ENTRY_TIME, Books.QUANTITY, OrderStatus.NEW));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void teardown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MatchResult consumeDisplayedSlice() {
+        return matcher.execute(books.order(Side.BUY, Books.QUANTITY, books.bestAsk()));
+    }
+}
@@ -0,0 +1,54 @@
+package ir.ramtung.tinyme.benchmark.jmh;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MatcherBenchmark {
+    @Param({"1000", "100000"})
+    public int depth;
+    @Param({"10", "1000"})
+    public int spread;
+
+    private AnnotationConfigApplicationContext context;
+    private Matcher matcher;
+    private Books books;
+    private OrderBook orderBook;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        context = Books.matchingContext();
+        matcher = context.getBean(Matcher.class);
+        books = new Books(depth, spread);
+        books.fillBothSides();
+        orderBook = books.security.getOrderBook();
+        for (int i = 0; i < depth; i++)
+            orderBook.enqueue(books.queuedOrder(Side.SELL, Books.QUANTITY, books.bestAsk()));
+    }
+
+    @TearDown(Level.Iteration)
+    public void teardown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MatchResult executeNonCrossing() {
+        Order order = books.order(Side.BUY, Books.QUANTITY, books.randomBuyPrice());
+        MatchResult result = matcher.execute(order);
+        orderBook.removeByOrderId(Side.BUY, order.getOrderId());
+        return result;
+    }
+
+    @Benchmark
+    public MatchResult executeCrossing() {
+        MatchResult result = matcher.execute(books.order(Side.BUY, Books.QUANTITY, books.bestAsk()));
+        orderBook.enqueue(books.queuedOrder(Side.SELL, Books.QUANTITY, books.bestAsk()));
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+package ir.ramtung.tinyme.benchmark.jmh;
+
+import ir.ramtung.tinyme.domain.entity.Order;
+import ir.ramtung.tinyme.domain.entity.OrderBook;
+import ir.ramtung.tinyme.domain.entity.Side;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderBookBenchmark {
+    @Param({"1000", "100000"})
+    public int depth;
+    @Param({"10", "1000"})
+    public int spread;
+
+    private Books books;
+    private OrderBook orderBook;
+    private long[] buyIds;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        books = new Books(depth, spread);
+        books.fillBothSides();
+        orderBook = books.security.getOrderBook();
+        buyIds = orderBook.getBuyQueue().stream().mapToLong(Order::getOrderId).toArray();
+    }
+
+    @Benchmark
+    public boolean enqueueAndRemove() {
+        Order order = books.queuedOrder(Side.BUY, Books.QUANTITY, books.randomBuyPrice());
+        orderBook.enqueue(order);
+        return orderBook.removeByOrderId(Side.BUY, order.getOrderId());
+    }
+
+    @Benchmark
+    public Order findByOrderId() {
+        cursor = cursor + 1 == buyIds.length ? 0 : cursor + 1;
+        return orderBook.findByOrderId(Side.BUY, buyIds[cursor]);
+    }
+}
@@ -0,0 +1,56 @@
+package ir.ramtung.tinyme.benchmark.jmh;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.messaging.event.OrderActivatedEvent;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StopOrderBenchmark {
+    @Param({"1000", "100000"})
+    public int depth;
+    @Param({"10", "1000"})
+    public int spread;
+
+    private Books books;
+    private Security security;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        books = new Books(depth, spread);
+        security = books.security;
+        security.setLatestPrice(Books.BEST_BID);
+        for (int i = 0; i < depth; i++) {
+            addStopOrder(Side.BUY, Books.BEST_BID + 1 + books.random.nextInt(spread));
+            addStopOrder(Side.SELL, Books.BEST_BID - 1 - books.random.nextInt(spread));
+        }
+    }
+
+    private void addStopOrder(Side side, int stopPrice) {
+        long orderId = books.nextOrderId++;
+        Order order = new Order(orderId, security, side, Books.QUANTITY, Books.BEST_BID, books.broker, books.shareholder,
+                Books.ENTRY_TIME, OrderStatus.NEW, 0, false, stopPrice);
+        security.getStopOrderBook().add(order);
+        security.getRequestIDs().put(orderId, EnterOrderRq.createNewOrderRq(orderId, security.getIsin(), orderId, Books.ENTRY_TIME,
+                side, Books.QUANTITY, Books.BEST_BID, 1, 1, 0, 0, stopPrice));
+    }
+
+    @Benchmark
+    public LinkedList<OrderActivatedEvent> activateStopOrdersWithNoneTriggered() {
+        return security.activateStopOrders();
+    }
+
+    @Benchmark
+    public LinkedList<OrderActivatedEvent> activateOneTriggeredStopOrder() {
+        addStopOrder(Side.BUY, Books.BEST_BID);
+        LinkedList<OrderActivatedEvent> activated = security.activateStopOrders();
+        security.getActiveStopOrderList().clear();
+        security.getRequestIDs().remove(activated.getFirst().getOrderId());
+        return activated;
+    }
+}
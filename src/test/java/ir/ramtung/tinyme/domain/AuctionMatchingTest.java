@@ -109,6 +109,117 @@ public class AuctionMatchingTest {
         assertThat(priceAndQuantity2.get("price").intValue()).isEqualTo(15810);
     }
 
+    @Test
+    void indicative_opening_price_counts_iceberg_displayed_quantity_and_stays_inside_the_crossing_range() {
+        orders = Arrays.asList(
+                new IcebergOrder(1, security, BUY, 300, 15700, broker, shareholder, 100),
+                new Order(2, security, BUY, 50, 15300, broker, shareholder),
+                new Order(3, security, SELL, 120, 15400, broker1, shareholder),
+                new Order(4, security, SELL, 80, 15600, broker1, shareholder));
+        orders.forEach(order -> orderBook.enqueue(order));
+        HashMap<String, Long> priceAndQuantity = orderBook.calcCurrentOpeningPriceAndMaxQuantity(15550);
+        assertThat(priceAndQuantity.get("price")).isEqualTo(15550);
+        assertThat(priceAndQuantity.get("quantity")).isEqualTo(100);
+        assertThat(orderBook.calcCurrentOpeningPriceAndMaxQuantity(15000).get("price")).isEqualTo(15400);
+        assertThat(orderBook.calcCurrentOpeningPriceAndMaxQuantity(16000).get("price")).isEqualTo(15600);
+    }
+
+    @Test
+    void indicative_opening_price_follows_quantity_changes_of_resting_orders() {
+        orders = Arrays.asList(
+                new Order(1, security, BUY, 300, 15600, broker, shareholder),
+                new Order(2, security, SELL, 200, 15600, broker1, shareholder));
+        orders.forEach(order -> orderBook.enqueue(order));
+        assertThat(orderBook.calcCurrentOpeningPriceAndMaxQuantity(15650).get("quantity")).isEqualTo(200);
+        orderBook.decreaseQuantity(orders.get(1), 50);
+        assertThat(orderBook.calcCurrentOpeningPriceAndMaxQuantity(15650).get("quantity")).isEqualTo(150);
+        orderBook.removeByOrderId(SELL, 2);
+        assertThat(orderBook.calcCurrentOpeningPriceAndMaxQuantity(15650).get("quantity")).isEqualTo(0);
+    }
+
+    @Test
+    void indicative_opening_price_from_the_depth_index_matches_a_price_by_price_search() {
+        openingPriceFromDepthIndexMatchesPriceByPriceSearch(1);
+    }
+
+    @Test
+    void depth_index_works_in_ticks_of_the_security() {
+        openingPriceFromDepthIndexMatchesPriceByPriceSearch(10);
+    }
+
+    private void openingPriceFromDepthIndexMatchesPriceByPriceSearch(int tickSize) {
+        orderBook.openAuction(tickSize);
+        Random random = new Random(42);
+        List<Order> resting = new ArrayList<>();
+        for (int step = 0; step < 2_000; step++) {
+            int action = random.nextInt(10);
+            if (action < 6 || resting.isEmpty()) {
+                Side side = random.nextBoolean() ? BUY : SELL;
+                int price = tickSize * (900 / tickSize + random.nextInt(200 / tickSize));
+                Order order = new Order(step, security, side, 1 + random.nextInt(50), price, broker, shareholder);
+                orderBook.enqueue(order);
+                resting.add(order);
+            } else if (action < 8) {
+                Order order = resting.remove(random.nextInt(resting.size()));
+                orderBook.removeByOrderId(order.getSide(), order.getOrderId());
+            } else {
+                Order order = resting.get(random.nextInt(resting.size()));
+                if (order.getQuantity() > 1)
+                    orderBook.decreaseQuantity(order, 1 + random.nextInt(order.getQuantity() - 1));
+            }
+            long lastTradePrice = 850 + random.nextInt(300);
+            HashMap<String, Long> priceAndQuantity = orderBook.calcCurrentOpeningPriceAndMaxQuantity(lastTradePrice);
+            assertThat(orderBook.hasAuctionDepth()).isTrue();
+            assertThat(List.of(priceAndQuantity.get("price"), priceAndQuantity.get("quantity")))
+                    .isEqualTo(searchEveryPrice(resting, lastTradePrice));
+        }
+    }
+
+    @Test
+    void depth_index_is_built_during_an_auction_and_released_when_it_closes() {
+        setupTest();
+        orderBook.calcCurrentOpeningPriceAndMaxQuantity(15850);
+        assertThat(orderBook.hasAuctionDepth()).isFalse();
+
+        security.changeSecurityStatusTo(MatchingState.AUCTION);
+        orderBook.calcCurrentOpeningPriceAndMaxQuantity(15860);
+        assertThat(orderBook.hasAuctionDepth()).isTrue();
+
+        Order farBelow = new Order(11, security, SELL, 50, 100, broker1, shareholder);
+        orderBook.enqueue(farBelow);
+        assertThat(orderBook.hasAuctionDepth()).isFalse();
+        List<Order> resting = new ArrayList<>(orders);
+        resting.add(farBelow);
+        HashMap<String, Long> priceAndQuantity = orderBook.calcCurrentOpeningPriceAndMaxQuantity(15850);
+        assertThat(orderBook.hasAuctionDepth()).isTrue();
+        assertThat(List.of(priceAndQuantity.get("price"), priceAndQuantity.get("quantity")))
+                .isEqualTo(searchEveryPrice(resting, 15850));
+
+        security.changeSecurityStatusTo(MatchingState.CONTINUOUS);
+        assertThat(orderBook.hasAuctionDepth()).isFalse();
+    }
+
+    private static List<Long> searchEveryPrice(List<Order> resting, long lastTradePrice) {
+        long lowest = resting.stream().filter(order -> order.getSide() == BUY).mapToLong(Order::getPrice).min().orElse(0);
+        long highest = resting.stream().filter(order -> order.getSide() == SELL).mapToLong(Order::getPrice).max().orElse(0);
+        long bestPrice = 0;
+        long bestQuantity = 0;
+        boolean found = false;
+        for (long price = lowest; price <= highest; price++) {
+            long at = price;
+            long sells = resting.stream().filter(order -> order.getSide() == SELL && order.getPrice() <= at).mapToLong(Order::getQuantity).sum();
+            long buys = resting.stream().filter(order -> order.getSide() == BUY && order.getPrice() >= at).mapToLong(Order::getQuantity).sum();
+            long quantity = Math.min(sells, buys);
+            if (!found || quantity > bestQuantity
+                    || (quantity == bestQuantity && Math.abs(price - lastTradePrice) < Math.abs(bestPrice - lastTradePrice))) {
+                bestPrice = price;
+                bestQuantity = quantity;
+                found = true;
+            }
+        }
+        return List.of(bestPrice, bestQuantity);
+    }
+
     @Test
     void check_opening_price_published_correctly() {
         setupTest();
@@ -197,6 +308,21 @@ public class AuctionMatchingTest {
         verify(eventPublisher,times(1)).publish(new OpeningPriceEvent("ABC", 15803, 207+103));
     }
 
+    @Test
+    void updating_a_buy_order_upward_in_auction_is_not_rejected_for_credit() {
+        Broker tightBroker = Broker.builder().credit(0).brokerId(2).build();
+        brokerRepository.addBroker(tightBroker);
+        orderBook.enqueue(new Order(30, security, BUY, 100, 15000, tightBroker, shareholder));
+        changeMatchStateHandler.handleChangeMatchingState(new ChangeMatchingStateRq("ABC", MatchingState.AUCTION));
+
+        orderHandler.handleEnterOrder(EnterOrderRq.createUpdateOrderRq(4, "ABC", 30, LocalDateTime.now(), BUY, 200, 15500, tightBroker.getBrokerId(), shareholder.getShareholderId(), 0, 0));
+
+        verify(eventPublisher).publish(new OrderUpdatedEvent(4, 30));
+        assertThat(orderBook.findByOrderId(BUY, 30).getQuantity()).isEqualTo(200);
+        assertThat(tightBroker.getCredit()).isEqualTo(100L * 15000);
+        assertThat(tightBroker.getReservedCredit()).isZero();
+    }
+
     @Test
     void check_delete_order_correctly_done_in_auction_matching(){
         setupTest();
@@ -0,0 +1,57 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BrokerCreditTest {
+    @Test
+    void reservation_fails_without_touching_credit_when_not_enough_is_available() {
+        Broker broker = Broker.builder().credit(1000).build();
+        assertThat(broker.reserveCredit(1001)).isFalse();
+        assertThat(broker.getCredit()).isEqualTo(1000);
+        assertThat(broker.getReservedCredit()).isZero();
+    }
+
+    @Test
+    void committed_reservation_is_spent_and_released_reservation_is_returned() {
+        Broker broker = Broker.builder().credit(1000).build();
+        assertThat(broker.reserveCredit(300)).isTrue();
+        assertThat(broker.reserveCredit(200)).isTrue();
+        assertThat(broker.getCredit()).isEqualTo(500);
+        assertThat(broker.getReservedCredit()).isEqualTo(500);
+
+        broker.commitReservedCredit(300);
+        broker.releaseReservedCredit(200);
+
+        assertThat(broker.getCredit()).isEqualTo(700);
+        assertThat(broker.getReservedCredit()).isZero();
+    }
+
+    @Test
+    void concurrent_reservations_never_exceed_available_credit() throws InterruptedException {
+        Broker broker = Broker.builder().credit(100_000).build();
+        AtomicInteger granted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    if (broker.reserveCredit(7))
+                        granted.incrementAndGet();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertThat(granted.get()).isEqualTo(100_000 / 7);
+        assertThat(broker.getCredit()).isEqualTo(100_000 % 7);
+        assertThat(broker.getReservedCredit()).isEqualTo(7L * granted.get());
+    }
+}
@@ -150,4 +150,33 @@ public class MatcherTest {
         assertThat(security.getOrderBook().getBuyQueue().get(0).getQuantity()).isEqualTo(20);
 
     }
+
+    @Test
+    void preview_walks_the_opposite_side_without_changing_the_book() {
+        Order order = new Order(11, security, BUY, 2000, 15820, broker, shareholder);
+        MatchPreview preview = orderBook.previewMatch(order);
+        assertThat(preview.executedQuantity()).isEqualTo(1840);
+        assertThat(preview.remainingQuantity()).isEqualTo(160);
+        assertThat(preview.tradedValue()).isEqualTo(350 * 15800L + 1085 * 15810L + 405 * 15820L);
+        assertThat(preview.tradedValueWithSameBroker()).isEqualTo(preview.tradedValue());
+        assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 10));
+        assertThat(order.getQuantity()).isEqualTo(2000);
+    }
+
+    @Test
+    void preview_follows_replenished_iceberg_orders() {
+        security = Security.builder().build();
+        orderBook = security.getOrderBook();
+        orders = Arrays.asList(
+                new IcebergOrder(1, security, BUY, 450, 15450, broker, shareholder, 200),
+                new Order(2, security, BUY, 70, 15450, broker, shareholder),
+                new Order(3, security, BUY, 1000, 15400, broker, shareholder)
+        );
+        orders.forEach(order -> orderBook.enqueue(order));
+        Order order = new Order(4, security, Side.SELL, 600, 15450, broker, shareholder);
+        MatchPreview preview = orderBook.previewMatch(order);
+        assertThat(preview.executedQuantity()).isEqualTo(520);
+        assertThat(preview.remainingQuantity()).isEqualTo(80);
+        assertThat(matcher.match(order).remainder().getQuantity()).isEqualTo(preview.remainingQuantity());
+    }
 }
@@ -4,10 +4,12 @@ import ir.ramtung.tinyme.domain.entity.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class OrderBookTest {
     private Security security;
@@ -76,4 +78,168 @@ class OrderBookTest {
         orderBook.removeByOrderId(Side.SELL, 10);
         assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 9));
     }
-}
\ No newline at end of file
+
+    @Test
+    void enqueues_orders_with_equal_price_behind_each_other() {
+        OrderBook orderBook = security.getOrderBook();
+        Order order = new Order(11, security, Side.BUY, 100, 15450, orders.get(0).getBroker(), orders.get(0).getShareholder());
+        orderBook.enqueue(order);
+        assertThat(orderBook.getBuyQueue()).containsExactly(orders.get(0), orders.get(1), orders.get(2), orders.get(3), order, orders.get(4));
+    }
+
+    @Test
+    void first_order_moves_to_the_next_price_level_after_removing_the_best() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.getFirst(Side.SELL)).isEqualTo(orders.get(6));
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.getFirst(Side.SELL)).isEqualTo(orders.get(7));
+    }
+
+    @Test
+    void pushed_back_orders_are_queued_after_all_price_levels_until_requeued() {
+        OrderBook orderBook = security.getOrderBook();
+        Order best = orders.get(0);
+        orderBook.removeFirst(Side.BUY);
+        orderBook.pushBack(best);
+        assertThat(orderBook.getBuyQueue().getLast()).isEqualTo(best);
+        orderBook.requeueDeferredOrders();
+        assertThat(orderBook.getFirst(Side.BUY)).isEqualTo(best);
+    }
+
+    @Test
+    void queues_are_read_only_views_that_follow_the_book() {
+        OrderBook orderBook = security.getOrderBook();
+        List<Order> buyQueue = orderBook.getBuyQueue();
+        assertThatThrownBy(() -> buyQueue.add(orders.get(5))).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> buyQueue.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> buyQueue.iterator().remove()).isInstanceOf(UnsupportedOperationException.class);
+        orderBook.removeFirst(Side.BUY);
+        orderBook.pushBack(orders.get(0));
+        assertThat(buyQueue).hasSize(5).containsExactly(orders.get(1), orders.get(2), orders.get(3), orders.get(4), orders.get(0));
+    }
+
+    @Test
+    void removed_order_is_no_longer_found_by_id() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeByOrderId(Side.BUY, 3);
+        assertThat(orderBook.findByOrderId(Side.BUY, 3)).isNull();
+        assertThat(orderBook.size(Side.BUY)).isEqualTo(4);
+        assertThat(orderBook.getBuyQueue()).containsExactly(orders.get(0), orders.get(1), orders.get(3), orders.get(4));
+    }
+
+    @Test
+    void removes_the_last_order_of_a_price_level_by_id() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeByOrderId(Side.SELL, 6);
+        assertThat(orderBook.getFirst(Side.SELL)).isEqualTo(orders.get(6));
+    }
+
+    @Test
+    void sell_quantity_ledger_follows_fills_and_removals() {
+        OrderBook orderBook = security.getOrderBook();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1840);
+        orderBook.decreaseQuantity(orders.get(5), 50);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1790);
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1490);
+        orderBook.removeByOrderId(Side.BUY, 1);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1490);
+    }
+
+    @Test
+    void sell_quantity_ledger_counts_the_whole_quantity_of_iceberg_orders() {
+        OrderBook orderBook = security.getOrderBook();
+        Shareholder shareholder = Shareholder.builder().shareholderId(2).build();
+        IcebergOrder order = new IcebergOrder(11, security, Side.SELL, 500, 15900, orders.get(0).getBroker(), shareholder, 100);
+        orderBook.enqueue(order);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(500);
+        orderBook.decreaseQuantity(order, 100);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(400);
+    }
+
+    @Test
+    void sell_quantity_ledger_detects_changes_made_behind_the_order_book() {
+        OrderBook orderBook = security.getOrderBook();
+        orders.get(5).decreaseQuantity(50);
+        assertThatThrownBy(() -> orderBook.totalSellQuantityByShareholder(orders.get(5).getShareholder()))
+                .isInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    void bulk_load_builds_the_same_queues_as_enqueue() {
+        OrderBook bulkLoaded = new OrderBook();
+        List<Order> interleaved = List.of(orders.get(5), orders.get(0), orders.get(8), orders.get(1), orders.get(6),
+                orders.get(2), orders.get(9), orders.get(3), orders.get(7), orders.get(4));
+        bulkLoaded.bulkLoad(interleaved);
+        assertThat(bulkLoaded.getBuyQueue()).containsExactlyElementsOf(security.getOrderBook().getBuyQueue());
+        assertThat(bulkLoaded.getSellQueue()).containsExactlyElementsOf(security.getOrderBook().getSellQueue());
+        assertThat(bulkLoaded.findByOrderId(Side.SELL, 8)).isSameAs(orders.get(7));
+        assertThat(bulkLoaded.totalSellQuantityByShareholder(orders.get(5).getShareholder()))
+                .isEqualTo(security.getOrderBook().totalSellQuantityByShareholder(orders.get(5).getShareholder()));
+    }
+
+    @Test
+    void bulk_load_keeps_file_order_within_a_price_and_the_resting_state_of_orders() {
+        OrderBook orderBook = new OrderBook();
+        Broker broker = orders.get(0).getBroker();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        Order later = new Order(21, security, Side.SELL, 100, 15900, broker, shareholder, LocalDateTime.now(), OrderStatus.QUEUED);
+        IcebergOrder iceberg = new IcebergOrder(22, security, Side.SELL, 900, 15900, broker, shareholder, LocalDateTime.now(), 300, 120, OrderStatus.QUEUED);
+        Order cheaper = new Order(23, security, Side.SELL, 100, 15850, broker, shareholder, LocalDateTime.now(), OrderStatus.QUEUED);
+        orderBook.bulkLoad(List.of(later, iceberg, cheaper));
+        assertThat(orderBook.getSellQueue()).containsExactly(cheaper, later, iceberg);
+        assertThat(iceberg.getStatus()).isEqualTo(OrderStatus.QUEUED);
+        assertThat(iceberg.getDisplayedQuantity()).isEqualTo(120);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1100);
+    }
+
+    @Test
+    void top_of_book_reports_the_best_level_of_each_side() {
+        assertThat(security.getOrderBook().getTopOfBook()).isEqualTo(new TopOfBook(15700, 304, 1, 15800, 350, 1));
+
+        security.getOrderBook().removeByOrderId(Side.BUY, 1);
+        security.getOrderBook().decreaseQuantity(orders.get(5), 50);
+
+        assertThat(security.getOrderBook().getTopOfBook()).isEqualTo(new TopOfBook(15500, 43, 1, 15800, 300, 1));
+    }
+
+    @Test
+    void top_of_book_change_is_reported_only_when_the_top_changes() {
+        OrderBook orderBook = security.getOrderBook();
+        assertThat(orderBook.takeTopOfBookChange()).isNotNull();
+
+        orderBook.removeByOrderId(Side.BUY, 5);
+        orderBook.removeByOrderId(Side.SELL, 9);
+        assertThat(orderBook.takeTopOfBookChange()).isNull();
+
+        orderBook.removeByOrderId(Side.SELL, 6);
+        orderBook.enqueue(orders.get(5));
+        assertThat(orderBook.takeTopOfBookChange()).isNull();
+
+        orderBook.removeByOrderId(Side.SELL, 6);
+        assertThat(orderBook.takeTopOfBookChange()).isEqualTo(new TopOfBook(15700, 304, 1, 15810, 1085, 2));
+    }
+
+    @Test
+    void removes_the_orders_of_a_broker_on_one_side() {
+        OrderBook orderBook = security.getOrderBook();
+        Broker otherBroker = Broker.builder().brokerId(2).build();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        Order otherBuy = new Order(11, security, Side.BUY, 100, 15600, otherBroker, shareholder);
+        Order otherSell = new Order(12, security, Side.SELL, 100, 15900, otherBroker, shareholder);
+        Order removedBeforehand = new Order(13, security, Side.BUY, 100, 15300, otherBroker, shareholder);
+        orderBook.enqueue(otherBuy);
+        orderBook.enqueue(otherSell);
+        orderBook.enqueue(removedBeforehand);
+        orderBook.removeByOrderId(Side.BUY, 13);
+
+        assertThat(orderBook.removeOrders(otherBroker, null, Side.BUY)).containsExactly(otherBuy);
+        assertThat(orderBook.findByOrderId(Side.BUY, 11)).isNull();
+        assertThat(orderBook.findByOrderId(Side.SELL, 12)).isEqualTo(otherSell);
+        assertThat(orderBook.removeOrders(null, shareholder, Side.SELL)).hasSize(6);
+        assertThat(orderBook.hasOrderOfType(Side.SELL)).isFalse();
+        assertThat(orderBook.getBuyQueue()).containsExactlyElementsOf(orders.subList(0, 5));
+    }
+}
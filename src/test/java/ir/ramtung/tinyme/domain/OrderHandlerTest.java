@@ -8,8 +8,10 @@ import ir.ramtung.tinyme.messaging.EventPublisher;
 import ir.ramtung.tinyme.messaging.Message;
 import ir.ramtung.tinyme.messaging.TradeDTO;
 import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.BatchEnterOrderRq;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
 import ir.ramtung.tinyme.repository.BrokerRepository;
 import ir.ramtung.tinyme.repository.SecurityRepository;
 import ir.ramtung.tinyme.repository.ShareholderRepository;
@@ -17,6 +19,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
@@ -587,4 +590,145 @@ public class OrderHandlerTest {
                 Message.NOT_VALID_MIN_EXECUTION_QUANTITY
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void batch_orders_are_entered_in_sequence() {
+        orderHandler.handleBatchEnterOrder(BatchEnterOrderRq.of(List.of(
+                EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.SELL, 300, 15450, 2, shareholder.getShareholderId(), 0),
+                EnterOrderRq.createNewOrderRq(2, "ABC", 201, LocalDateTime.now(), Side.BUY, 100, 15500, 2, shareholder.getShareholderId(), 0)
+        )));
+
+        verify(eventPublisher).publish(new OrderAcceptedEvent(1, 200));
+        verify(eventPublisher).publish(new OrderAcceptedEvent(2, 201));
+        verify(eventPublisher).publish(new OrderExecutedEvent(2, 201, List.of(new TradeDTO("ABC", 15450, 100, 201, 200))));
+        assertThat(security.getOrderBook().findByOrderId(Side.SELL, 200).getQuantity()).isEqualTo(200);
+    }
+
+    @Test
+    void invalid_batch_orders_are_rejected_without_affecting_the_rest() {
+        orderHandler.handleBatchEnterOrder(BatchEnterOrderRq.of(List.of(
+                EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.SELL, 300, 15450, 2, shareholder.getShareholderId(), 0),
+                EnterOrderRq.createNewOrderRq(2, "ABC", 201, LocalDateTime.now(), Side.SELL, 0, 15450, 2, shareholder.getShareholderId(), 0),
+                EnterOrderRq.createNewOrderRq(3, "ABC", 202, LocalDateTime.now(), Side.SELL, 300, 15450, 1, shareholder.getShareholderId(), 0)
+        )));
+
+        verify(eventPublisher).publish(new OrderAcceptedEvent(1, 200));
+        verify(eventPublisher).publish(new OrderRejectedEvent(2, 201, List.of(Message.ORDER_QUANTITY_NOT_POSITIVE, Message.INVALID_PEAK_SIZE)));
+        verify(eventPublisher).publish(new OrderRejectedEvent(3, 202, List.of(Message.ORDER_DOES_NOT_MATCH_BATCH)));
+        assertThat(security.getOrderBook().findByOrderId(Side.SELL, 200)).isNotNull();
+        assertThat(security.getOrderBook().findByOrderId(Side.SELL, 202)).isNull();
+    }
+
+    @Test
+    void batch_with_null_or_no_orders_is_rejected() {
+        orderHandler.handleBatchEnterOrder(new BatchEnterOrderRq("ABC", 1, shareholder.getShareholderId(), null));
+        orderHandler.handleBatchEnterOrder(new BatchEnterOrderRq("ABC", 1, shareholder.getShareholderId(), List.of()));
+
+        verify(eventPublisher, times(2)).publish(new OrderRejectedEvent(0, 0, List.of(Message.BATCH_HAS_NO_ORDERS)));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+
+    @Test
+    void stop_orders_are_activated_once_after_the_whole_batch() {
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 600, LocalDateTime.now(), Side.SELL, 300, 15700, 2, shareholder.getShareholderId(), 0));
+
+        orderHandler.handleBatchEnterOrder(BatchEnterOrderRq.of(List.of(
+                EnterOrderRq.createNewOrderRq(2, "ABC", 602, LocalDateTime.now(), Side.BUY, 50, 15800, 1, shareholder.getShareholderId(), 0, 0, 15700),
+                EnterOrderRq.createNewOrderRq(3, "ABC", 601, LocalDateTime.now(), Side.BUY, 100, 15700, 1, shareholder.getShareholderId(), 0)
+        )));
+
+        InOrder inOrder = inOrder(eventPublisher);
+        inOrder.verify(eventPublisher).publish(new OrderAcceptedEvent(2, 602));
+        inOrder.verify(eventPublisher).publish(new OrderAcceptedEvent(3, 601));
+        inOrder.verify(eventPublisher).publish(new OrderActivatedEvent(2, 602));
+        inOrder.verify(eventPublisher).publish(new OrderExecutedEvent(2, 602, List.of(new TradeDTO("ABC", 15700, 50, 602, 600))));
+        assertThat(security.getStopOrderList()).isEmpty();
+        assertThat(security.getOrderBook().findByOrderId(Side.SELL, 600).getQuantity()).isEqualTo(150);
+    }
+
+    @Test
+    void mass_cancel_by_broker_removes_resting_and_stop_orders_and_releases_credit() {
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 100, LocalDateTime.now(), Side.BUY, 300, 15500, 1, shareholder.getShareholderId(), 0));
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(2, "ABC", 101, LocalDateTime.now(), Side.BUY, 200, 15400, 1, shareholder.getShareholderId(), 0));
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(3, "ABC", 102, LocalDateTime.now(), Side.BUY, 50, 16000, 1, shareholder.getShareholderId(), 0, 0, 16000));
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(4, "ABC", 200, LocalDateTime.now(), Side.SELL, 100, 15600, 2, shareholder.getShareholderId(), 0));
+        assertThat(broker1.getCredit()).isLessThan(100_000_000);
+
+        orderHandler.handleMassCancel(MassCancelRq.byBroker(5, 1));
+
+        verify(eventPublisher).publish(new OrderDeletedEvent(5, 100));
+        verify(eventPublisher).publish(new OrderDeletedEvent(5, 101));
+        verify(eventPublisher).publish(new OrderDeletedEvent(5, 102));
+        verify(eventPublisher, never()).publish(new OrderDeletedEvent(5, 200));
+        assertThat(broker1.getCredit()).isEqualTo(100_000_000);
+        assertThat(security.getOrderBook().hasOrderOfType(Side.BUY)).isFalse();
+        assertThat(security.getStopOrderList()).isEmpty();
+        assertThat(security.getOrderBook().findByOrderId(Side.SELL, 200)).isNotNull();
+    }
+
+    @Test
+    void mass_cancel_can_be_limited_to_a_security_and_side() {
+        Security other = Security.builder().isin("XYZ").build();
+        securityRepository.addSecurity(other);
+        shareholder.incPosition(other, 100_000);
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 100, LocalDateTime.now(), Side.BUY, 300, 15500, 1, shareholder.getShareholderId(), 0));
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(2, "ABC", 101, LocalDateTime.now(), Side.SELL, 300, 15600, 1, shareholder.getShareholderId(), 0));
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(3, "XYZ", 102, LocalDateTime.now(), Side.BUY, 300, 15500, 1, shareholder.getShareholderId(), 0));
+
+        orderHandler.handleMassCancel(new MassCancelRq(4, "ABC", null, shareholder.getShareholderId(), Side.BUY));
+
+        verify(eventPublisher).publish(new OrderDeletedEvent(4, 100));
+        assertThat(security.getOrderBook().findByOrderId(Side.BUY, 100)).isNull();
+        assertThat(security.getOrderBook().findByOrderId(Side.SELL, 101)).isNotNull();
+        assertThat(other.getOrderBook().findByOrderId(Side.BUY, 102)).isNotNull();
+    }
+
+    @Test
+    void mass_cancel_without_a_scope_or_with_unknown_owners_is_rejected() {
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 100, LocalDateTime.now(), Side.BUY, 300, 15500, 1, shareholder.getShareholderId(), 0));
+
+        orderHandler.handleMassCancel(new MassCancelRq(2, null, null, null, Side.BUY));
+        orderHandler.handleMassCancel(MassCancelRq.byBroker(3, 99));
+
+        verify(eventPublisher).publish(new OrderRejectedEvent(2, 0, List.of(Message.MASS_CANCEL_SCOPE_NOT_SPECIFIED)));
+        verify(eventPublisher).publish(new OrderRejectedEvent(3, 0, List.of(Message.UNKNOWN_BROKER_ID)));
+        assertThat(security.getOrderBook().findByOrderId(Side.BUY, 100)).isNotNull();
+    }
+
+    @Test
+    void market_wide_mass_cancel_visits_only_securities_holding_the_owners_orders_and_releases_credit_once() {
+        Security other = Security.builder().isin("XYZ").build();
+        Security untouched = spy(Security.builder().isin("QQQ").build());
+        securityRepository.addSecurity(other);
+        securityRepository.addSecurity(untouched);
+        shareholder.incPosition(untouched, 100_000);
+        Broker broker = spy(broker1);
+        brokerRepository.addBroker(broker);
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 100, LocalDateTime.now(), Side.BUY, 300, 15500, 1, shareholder.getShareholderId(), 0));
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(2, "XYZ", 101, LocalDateTime.now(), Side.BUY, 200, 15400, 1, shareholder.getShareholderId(), 0));
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(3, "QQQ", 102, LocalDateTime.now(), Side.SELL, 100, 15600, 2, shareholder.getShareholderId(), 0));
+
+        orderHandler.handleMassCancel(MassCancelRq.byBroker(4, 1));
+
+        verify(eventPublisher).publish(new OrderDeletedEvent(4, 100));
+        verify(eventPublisher).publish(new OrderDeletedEvent(4, 101));
+        verify(eventPublisher).publish(new MassCancelCompletedEvent(4, 2));
+        verify(untouched, never()).cancelOrders(any(), any(), any(), any());
+        verify(broker).increaseCreditBy(300L * 15500 + 200L * 15400);
+        verify(broker, never()).increaseCreditBy(300L * 15500);
+        assertThat(broker.getCredit()).isEqualTo(100_000_000);
+        assertThat(broker.securitiesWithOrders()).isEmpty();
+        assertThat(brokerRepository.findBrokerById(2).securitiesWithOrders()).containsExactly(untouched);
+    }
+
+    @Test
+    void mass_cancel_that_matches_nothing_still_publishes_its_completion() {
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 100, LocalDateTime.now(), Side.BUY, 300, 15500, 1, shareholder.getShareholderId(), 0));
+
+        orderHandler.handleMassCancel(MassCancelRq.byBroker(2, 2));
+
+        verify(eventPublisher).publish(new MassCancelCompletedEvent(2, 0));
+        verify(eventPublisher, never()).publish(any(OrderDeletedEvent.class));
+        assertThat(security.getOrderBook().findByOrderId(Side.BUY, 100)).isNotNull();
+    }
+}
@@ -0,0 +1,114 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.service.SecurityShards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SecurityShardsTest {
+    private SecurityShards securityShards;
+
+    @BeforeEach
+    void setup() {
+        securityShards = new SecurityShards(4);
+    }
+
+    @AfterEach
+    void teardown() throws InterruptedException {
+        securityShards.shutdown();
+    }
+
+    private String isinOnAnotherShard(String isin) {
+        for (int i = 0; ; i++) {
+            String candidate = "ISIN" + i;
+            if (securityShards.shardOf(candidate) != securityShards.shardOf(isin))
+                return candidate;
+        }
+    }
+
+    @Test
+    void requests_of_one_security_run_in_order_on_one_thread() throws Exception {
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        Future<?> last = null;
+        for (int i = 0; i < 1000; i++) {
+            int sequence = i;
+            last = securityShards.submit("ABC", () -> {
+                seen.add(sequence);
+                threads.add(Thread.currentThread().getName());
+            });
+        }
+        last.get(5, TimeUnit.SECONDS);
+        assertThat(seen).isSorted().hasSize(1000);
+        assertThat(threads).containsOnly(threads.get(0));
+    }
+
+    @Test
+    void securities_on_different_shards_run_in_parallel() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        AtomicInteger completed = new AtomicInteger();
+        Runnable task = () -> {
+            bothStarted.countDown();
+            try {
+                if (bothStarted.await(5, TimeUnit.SECONDS))
+                    completed.incrementAndGet();
+            } catch (InterruptedException ignored) {
+            }
+        };
+        Future<?> first = securityShards.submit("ABC", task);
+        Future<?> second = securityShards.submit(isinOnAnotherShard("ABC"), task);
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        assertThat(completed.get()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrent_debits_from_different_shards_never_overdraw_a_broker() throws Exception {
+        Broker broker = Broker.builder().credit(10_000).build();
+        AtomicInteger accepted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            futures.add(securityShards.submit("ISIN" + i, () -> {
+                if (broker.reserveCredit(100)) {
+                    broker.commitReservedCredit(100);
+                    accepted.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get(5, TimeUnit.SECONDS);
+        assertThat(accepted.get()).isEqualTo(100);
+        assertThat(broker.getCredit()).isZero();
+    }
+
+    @Test
+    void quiesce_runs_the_action_while_no_shard_is_processing() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger runningDuringAction = new AtomicInteger(-1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(securityShards.submit("ISIN" + i, () -> {
+                running.incrementAndGet();
+                Thread.onSpinWait();
+                running.decrementAndGet();
+            }));
+        }
+        securityShards.quiesce(() -> runningDuringAction.set(running.get()));
+        Future<?> after = securityShards.submit("ABC", () -> {});
+        after.get(5, TimeUnit.SECONDS);
+        for (Future<?> future : futures)
+            assertThat(future.isDone()).isTrue();
+        assertThat(runningDuringAction.get()).isZero();
+    }
+}
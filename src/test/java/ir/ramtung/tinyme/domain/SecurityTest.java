@@ -15,6 +15,8 @@ import org.springframework.context.annotation.Import;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static ir.ramtung.tinyme.domain.entity.Side.BUY;
 import static ir.ramtung.tinyme.domain.entity.Side.SELL;
@@ -190,5 +192,41 @@ class SecurityTest {
         assertThat(result.remainder().getQuantity()).isZero();
     }
 
-
-}
\ No newline at end of file
+    @Test
+    void updating_a_buy_order_never_lets_a_concurrent_spend_overdraw_the_broker() throws InterruptedException {
+        Broker tightBroker = Broker.builder().brokerId(1).credit(0).build();
+        Order order = new Order(11, security, BUY, 100, 15000, tightBroker, shareholder);
+        security.getOrderBook().enqueue(order);
+        AtomicBoolean updating = new AtomicBoolean(true);
+        AtomicLong spentElsewhere = new AtomicLong();
+        AtomicLong lowestCredit = new AtomicLong();
+
+        Thread otherSecurity = new Thread(() -> {
+            while (updating.get()) {
+                long available = tightBroker.getCredit();
+                lowestCredit.accumulateAndGet(available, Math::min);
+                if (available > 0 && tightBroker.reserveCredit(available)) {
+                    tightBroker.commitReservedCredit(available);
+                    spentElsewhere.addAndGet(available);
+                }
+            }
+        });
+        otherSecurity.start();
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                int price = i % 2 == 0 ? 14900 : 15000;
+                EnterOrderRq updateOrderRq = EnterOrderRq.createUpdateOrderRq(i, security.getIsin(), 11, LocalDateTime.now(), BUY, 100, price, 1, 0, 0);
+                assertThatNoException().isThrownBy(() -> security.updateOrder(updateOrderRq, matcher));
+                lowestCredit.accumulateAndGet(tightBroker.getCredit(), Math::min);
+            }
+        } finally {
+            updating.set(false);
+            otherSecurity.join();
+        }
+
+        Order resting = security.getOrderBook().findByOrderId(BUY, 11);
+        assertThat(lowestCredit.get()).isGreaterThanOrEqualTo(0);
+        assertThat(tightBroker.getReservedCredit()).isZero();
+        assertThat(tightBroker.getCredit() + spentElsewhere.get() + resting.getValue()).isEqualTo(100L * 15000);
+    }
+}
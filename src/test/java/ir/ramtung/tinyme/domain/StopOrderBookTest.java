@@ -0,0 +1,69 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static ir.ramtung.tinyme.domain.entity.Side.BUY;
+import static ir.ramtung.tinyme.domain.entity.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StopOrderBookTest {
+    private Security security;
+    private StopOrderBook stopOrderBook;
+    private List<Order> orders;
+
+    @BeforeEach
+    void setupStopOrderBook() {
+        security = Security.builder().isin("ABC").build();
+        Broker broker = Broker.builder().brokerId(1).credit(100_000_000L).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        LocalDateTime now = LocalDateTime.now();
+        stopOrderBook = security.getStopOrderBook();
+        orders = Arrays.asList(
+                new Order(1, security, BUY, 100, 15800, broker, shareholder, now, OrderStatus.NEW, 0, false, 15700),
+                new Order(2, security, BUY, 100, 15800, broker, shareholder, now.plusSeconds(1), OrderStatus.NEW, 0, false, 15600),
+                new Order(3, security, BUY, 100, 15800, broker, shareholder, now.plusSeconds(2), OrderStatus.NEW, 0, false, 15600),
+                new Order(4, security, SELL, 100, 15000, broker, shareholder, now, OrderStatus.NEW, 0, false, 15100),
+                new Order(5, security, SELL, 100, 15000, broker, shareholder, now.plusSeconds(1), OrderStatus.NEW, 0, false, 15200)
+        );
+        orders.forEach(order -> stopOrderBook.add(order));
+    }
+
+    @Test
+    void buy_stop_orders_are_triggered_by_stop_price_then_entry_time() {
+        assertThat(stopOrderBook.removeTriggered(15650)).containsExactly(orders.get(1), orders.get(2));
+        assertThat(stopOrderBook.findByOrderId(2)).isNull();
+        assertThat(stopOrderBook.size()).isEqualTo(3);
+    }
+
+    @Test
+    void sell_stop_orders_are_triggered_from_the_highest_stop_price() {
+        assertThat(stopOrderBook.removeTriggered(15100)).containsExactly(orders.get(4), orders.get(3));
+        assertThat(stopOrderBook.getOrders()).containsExactly(orders.get(1), orders.get(2), orders.get(0));
+    }
+
+    @Test
+    void nothing_is_triggered_between_the_stop_prices() {
+        assertThat(stopOrderBook.removeTriggered(15400)).isEmpty();
+        assertThat(stopOrderBook.size()).isEqualTo(5);
+    }
+
+    @Test
+    void updated_stop_price_changes_trigger_order() {
+        stopOrderBook.update(orders.get(0), EnterOrderRq.createUpdateOrderRq(1, "ABC", 1, LocalDateTime.now(), BUY,
+                100, 15800, 1, 1, 0, 15500));
+        assertThat(stopOrderBook.removeTriggered(15500)).containsExactly(orders.get(0));
+    }
+
+    @Test
+    void removed_stop_order_is_not_triggered() {
+        stopOrderBook.remove(orders.get(1));
+        assertThat(stopOrderBook.removeTriggered(15600)).containsExactly(orders.get(2));
+    }
+}
@@ -0,0 +1,274 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.config.MockedJMSTestConfig;
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.domain.service.MatchingControl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static ir.ramtung.tinyme.domain.entity.Side.BUY;
+import static ir.ramtung.tinyme.domain.entity.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Import(MockedJMSTestConfig.class)
+@DirtiesContext
+public class TradeBufferTest {
+    private static final int WARMUP_ORDERS = 20_000;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int ROUND_ORDERS = 4_000;
+    private Security security;
+    private Broker buyBroker;
+    private Broker sellBroker;
+    private Shareholder buyer;
+    private Shareholder seller;
+    private OrderBook orderBook;
+    @Autowired
+    private Matcher matcher;
+    @Autowired
+    private RejectingControl rejectingControl;
+
+    @TestConfiguration
+    static class RejectingControlConfig {
+        @Bean
+        RejectingControl rejectingControl() {
+            return new RejectingControl();
+        }
+    }
+
+    static class RejectingControl implements MatchingControl {
+        boolean rejects;
+
+        @Override
+        public MatchingOutcome canAcceptMatching(Order order, MatchResult result) {
+            return rejects ? MatchingOutcome.NOT_ENOUGH_POSITIONS : MatchingOutcome.NO_PROBLEM;
+        }
+
+        @Override
+        public MatchingOutcome canAcceptFills(Order order, TradeBuffer fills) {
+            return rejects ? MatchingOutcome.NOT_ENOUGH_POSITIONS : MatchingOutcome.NO_PROBLEM;
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        security = Security.builder().build();
+        buyBroker = Broker.builder().credit(1_000_000_000L).build();
+        sellBroker = Broker.builder().credit(0).build();
+        buyer = Shareholder.builder().build();
+        seller = Shareholder.builder().build();
+        seller.incPosition(security, 100_000_000);
+        orderBook = security.getOrderBook();
+        orderBook.enqueue(new Order(1, security, SELL, 100, 15800, sellBroker, seller));
+        orderBook.enqueue(new Order(2, security, SELL, 200, 15810, sellBroker, seller));
+    }
+
+    @AfterEach
+    void acceptAgain() {
+        rejectingControl.rejects = false;
+    }
+
+    @Test
+    void buffered_match_records_fills_in_matching_order() {
+        TradeBuffer tradeBuffer = new TradeBuffer(1);
+        Order order = new Order(3, security, BUY, 150, 15810, buyBroker, buyer);
+
+        matcher.match(order, tradeBuffer);
+
+        assertThat(tradeBuffer.size()).isEqualTo(2);
+        assertThat(tradeBuffer.getPrice(0)).isEqualTo(15800);
+        assertThat(tradeBuffer.getQuantity(0)).isEqualTo(100);
+        assertThat(tradeBuffer.getSellOrderId(0)).isEqualTo(1);
+        assertThat(tradeBuffer.getBuyOrderId(1)).isEqualTo(3);
+        assertThat(tradeBuffer.getSellOrderId(1)).isEqualTo(2);
+        assertThat(tradeBuffer.getQuantity(1)).isEqualTo(50);
+        assertThat(order.getQuantity()).isZero();
+        assertThat(orderBook.findByOrderId(SELL, 2).getQuantity()).isEqualTo(150);
+    }
+
+    @Test
+    void buffered_execute_settles_credit_positions_and_latest_price() {
+        TradeBuffer tradeBuffer = new TradeBuffer(4);
+        Order order = new Order(3, security, BUY, 150, 15810, buyBroker, buyer);
+
+        MatchingOutcome outcome = matcher.execute(order, tradeBuffer);
+
+        long value = 100 * 15800L + 50 * 15810L;
+        assertThat(outcome).isEqualTo(MatchingOutcome.EXECUTED);
+        assertThat(buyBroker.getCredit()).isEqualTo(1_000_000_000L - value);
+        assertThat(sellBroker.getCredit()).isEqualTo(value);
+        assertThat(buyer.hasEnoughPositionsOn(security, 150)).isTrue();
+        assertThat(seller.hasEnoughPositionsOn(security, 100_000_000 - 150)).isTrue();
+        assertThat(seller.hasEnoughPositionsOn(security, 100_000_000 - 149)).isFalse();
+        assertThat(security.getLatestPrice()).isEqualTo(15810);
+    }
+
+    @Test
+    void buffered_execute_rejects_on_preview_without_touching_the_book() {
+        Broker poorBroker = Broker.builder().credit(1000).build();
+        TradeBuffer tradeBuffer = new TradeBuffer(4);
+        Order order = new Order(3, security, BUY, 400, 15810, poorBroker, buyer);
+
+        MatchingOutcome outcome = matcher.execute(order, tradeBuffer);
+
+        assertThat(outcome).isEqualTo(MatchingOutcome.NOT_ENOUGH_CREDIT);
+        assertThat(tradeBuffer.isEmpty()).isTrue();
+        assertThat(poorBroker.getCredit()).isEqualTo(1000);
+        assertThat(poorBroker.getReservedCredit()).isZero();
+        assertThat(orderBook.findByOrderId(SELL, 1).getQuantity()).isEqualTo(100);
+    }
+
+    @Test
+    void buffered_execute_commits_the_reservation_of_a_resting_remainder() {
+        TradeBuffer tradeBuffer = new TradeBuffer(4);
+        Order order = new Order(3, security, BUY, 400, 15810, buyBroker, buyer);
+
+        MatchingOutcome outcome = matcher.execute(order, tradeBuffer);
+
+        long value = 100 * 15800L + 200 * 15810L + 100 * 15810L;
+        assertThat(outcome).isEqualTo(MatchingOutcome.EXECUTED);
+        assertThat(buyBroker.getCredit()).isEqualTo(1_000_000_000L - value);
+        assertThat(buyBroker.getReservedCredit()).isZero();
+        assertThat(orderBook.findByOrderId(BUY, 3).getQuantity()).isEqualTo(100);
+    }
+
+    @Test
+    void buffered_execute_rolls_back_fills_a_control_rejects() {
+        rejectingControl.rejects = true;
+        TradeBuffer tradeBuffer = new TradeBuffer(4);
+        Order order = new Order(3, security, BUY, 250, 15810, buyBroker, buyer);
+
+        MatchingOutcome outcome = matcher.execute(order, tradeBuffer);
+
+        assertThat(outcome).isEqualTo(MatchingOutcome.NOT_ENOUGH_POSITIONS);
+        assertThat(buyBroker.getCredit()).isEqualTo(1_000_000_000L);
+        assertThat(buyBroker.getReservedCredit()).isZero();
+        assertThat(sellBroker.getCredit()).isZero();
+        assertThat(orderBook.getSellQueue()).extracting(Order::getOrderId, Order::getQuantity).containsExactly(
+                tuple(1L, 100), tuple(2L, 200));
+        assertThat(buyer.hasEnoughPositionsOn(security, 1)).isFalse();
+    }
+
+    @Test
+    void buffered_execute_leaves_the_same_state_as_execute_with_trade_objects() {
+        for (Side side : Side.values())
+            for (int quantity : new int[] {50, 120, 400})
+                for (int minimumExecutionQuantity : new int[] {0, 300})
+                    for (long credit : new long[] {1_000, 1_000_000_000L})
+                        for (boolean rejects : new boolean[] {false, true}) {
+                            rejectingControl.rejects = rejects;
+                            assertThat(stateAfterExecuting(side, quantity, minimumExecutionQuantity, credit, true))
+                                    .isEqualTo(stateAfterExecuting(side, quantity, minimumExecutionQuantity, credit, false));
+                        }
+    }
+
+    private List<Object> stateAfterExecuting(Side side, int quantity, int minimumExecutionQuantity, long credit, boolean buffered) {
+        Security security = Security.builder().build();
+        Broker broker = Broker.builder().brokerId(1).credit(credit).build();
+        Broker restingBroker = Broker.builder().brokerId(2).credit(0).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        Shareholder restingShareholder = Shareholder.builder().shareholderId(2).build();
+        shareholder.incPosition(security, 1_000);
+        restingShareholder.incPosition(security, 1_000);
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.enqueue(new Order(1, security, SELL, 100, 15800, restingBroker, restingShareholder));
+        orderBook.enqueue(new IcebergOrder(2, security, SELL, 200, 15810, restingBroker, restingShareholder, 50));
+        orderBook.enqueue(new Order(3, security, BUY, 100, 15700, restingBroker, restingShareholder));
+        orderBook.enqueue(new IcebergOrder(4, security, BUY, 200, 15690, restingBroker, restingShareholder, 50));
+        Order order = new Order(5, security, side, quantity, side == BUY ? 15810 : 15690, broker, shareholder, minimumExecutionQuantity);
+
+        List<Object> state = new ArrayList<>();
+        List<String> fills = new ArrayList<>();
+        if (buffered) {
+            TradeBuffer tradeBuffer = new TradeBuffer(1);
+            MatchingOutcome outcome = matcher.execute(order, tradeBuffer);
+            state.add(outcome);
+            if (outcome == MatchingOutcome.EXECUTED)
+                for (int i = 0; i < tradeBuffer.size(); i++)
+                    fills.add(tradeBuffer.getQuantity(i) + "@" + tradeBuffer.getPrice(i) + " " + tradeBuffer.getBuyOrderId(i) + "/" + tradeBuffer.getSellOrderId(i));
+        } else {
+            MatchResult result = matcher.execute(order);
+            state.add(result.outcome());
+            if (result.outcome() == MatchingOutcome.EXECUTED)
+                for (Trade trade : result.trades())
+                    fills.add(trade.getQuantity() + "@" + trade.getPrice() + " " + trade.getBuy().getOrderId() + "/" + trade.getSell().getOrderId());
+        }
+        state.add(fills);
+        state.add(List.of(broker.getCredit(), broker.getReservedCredit(), restingBroker.getCredit(), restingBroker.getReservedCredit()));
+        for (OrderQueue queue : List.of(orderBook.getBuyQueue(), orderBook.getSellQueue()))
+            state.add(queue.stream().map(resting -> resting.getOrderId() + ":" + resting.getQuantity() + "/" + resting.getTotalQuantity()).toList());
+        state.add(List.copyOf(shareholder.getPositions().values()));
+        state.add(List.copyOf(restingShareholder.getPositions().values()));
+        state.add(security.getLatestPrice());
+        return state;
+    }
+
+    @Test
+    void steady_state_partial_fills_do_not_allocate() {
+        orderBook.enqueue(new Order(4, security, SELL, 50_000_000, 15700, sellBroker, seller));
+        TradeBuffer tradeBuffer = new TradeBuffer(16);
+        Order[] orders = buyOrders(WARMUP_ORDERS + MEASURED_ROUNDS * ROUND_ORDERS);
+
+        long allocated = allocatedBytes(orders, order -> {
+            tradeBuffer.clear();
+            matcher.match(order, tradeBuffer);
+        });
+
+        assertThat(tradeBuffer.size()).isEqualTo(1);
+        assertThat(orderBook.findByOrderId(SELL, 4).getQuantity()).isEqualTo(50_000_000 - 10 * orders.length);
+        assertThat(allocated).isZero();
+    }
+
+    @Test
+    void steady_state_buffered_execution_allocates_a_small_fixed_amount_per_order() {
+        orderBook.enqueue(new Order(4, security, SELL, 50_000_000, 15700, sellBroker, seller));
+        TradeBuffer tradeBuffer = new TradeBuffer(16);
+        Order[] orders = buyOrders(WARMUP_ORDERS + MEASURED_ROUNDS * ROUND_ORDERS);
+
+        long allocated = allocatedBytes(orders, order -> matcher.execute(order, tradeBuffer));
+
+        assertThat(tradeBuffer.size()).isEqualTo(1);
+        assertThat(orderBook.findByOrderId(SELL, 4).getQuantity()).isEqualTo(50_000_000 - 10 * orders.length);
+        // The match preview and the JFR event of each execution; nothing per fill.
+        assertThat(allocated).isLessThanOrEqualTo(200L * ROUND_ORDERS);
+    }
+
+    private Order[] buyOrders(int count) {
+        Order[] orders = new Order[count];
+        for (int i = 0; i < count; i++)
+            orders[i] = new Order(100 + i, security, BUY, 10, 15700, buyBroker, buyer);
+        return orders;
+    }
+
+    // Fewest bytes allocated by the calling thread over one round of orders after warm-up; other rounds may include
+    // allocations of JIT deoptimization or of whatever else the suite left running on this thread.
+    private static long allocatedBytes(Order[] orders, Consumer<Order> action) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP_ORDERS; i++)
+            action.accept(orders[i]);
+        long fewest = Long.MAX_VALUE;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            int first = WARMUP_ORDERS + round * ROUND_ORDERS;
+            for (int i = first; i < first + ROUND_ORDERS; i++)
+                action.accept(orders[i]);
+            fewest = Math.min(fewest, threads.getThreadAllocatedBytes(threadId) - before);
+        }
+        return fewest;
+    }
+}
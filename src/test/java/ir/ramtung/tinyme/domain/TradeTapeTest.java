@@ -0,0 +1,95 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.TradeTape;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TradeTapeTest {
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final TradeTape tradeTape = new TradeTape(true, 4, "1s,1m", 3, clock::get);
+
+    @Test
+    void tape_keeps_the_most_recent_trades_oldest_first() {
+        for (int i = 1; i <= 6; i++)
+            tradeTape.record("ABC", 100 * i, i, i, 100 + i);
+
+        List<TapeTrade> trades = tradeTape.recentTrades("ABC", 10);
+        assertThat(trades).extracting(TapeTrade::sequence).containsExactly(2L, 3L, 4L, 5L);
+        assertThat(trades.get(3)).isEqualTo(new TapeTrade(5, 1_000_000, 600, 6, 6, 106));
+        assertThat(tradeTape.recentTrades("ABC", 2)).extracting(TapeTrade::price).containsExactly(500, 600);
+        assertThat(tradeTape.recentTrades("XYZ", 2)).isEmpty();
+    }
+
+    @Test
+    void bars_aggregate_ohlcv_and_vwap_per_interval() {
+        tradeTape.record("ABC", 100, 10, 1, 2);
+        clock.addAndGet(300);
+        tradeTape.record("ABC", 120, 30, 1, 2);
+        clock.addAndGet(300);
+        tradeTape.record("ABC", 90, 10, 1, 2);
+        clock.addAndGet(500);
+        tradeTape.record("ABC", 110, 50, 1, 2);
+
+        assertThat(tradeTape.recentBars("ABC", Duration.ofSeconds(1), 10)).containsExactly(
+                new Bar(1_000_000, 100, 120, 90, 90, 50, 5_500, 3),
+                new Bar(1_001_000, 110, 110, 110, 110, 50, 5_500, 1));
+        Bar minute = tradeTape.currentBar("ABC", Duration.ofMinutes(1));
+        assertThat(minute).isEqualTo(new Bar(960_000, 100, 120, 90, 110, 100, 11_000, 4));
+        assertThat(minute.vwap()).isEqualTo(110.0);
+        assertThatThrownBy(() -> tradeTape.currentBar("ABC", Duration.ofMinutes(5))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void trade_stamped_before_the_current_bar_is_folded_into_it() {
+        tradeTape.record("ABC", 100, 10, 1, 2);
+        clock.addAndGet(1_000);
+        tradeTape.record("ABC", 120, 20, 1, 2);
+        clock.addAndGet(-1_500);
+        tradeTape.record("ABC", 90, 10, 1, 2);
+
+        assertThat(tradeTape.recentBars("ABC", Duration.ofSeconds(1), 10)).containsExactly(
+                new Bar(1_000_000, 100, 100, 100, 100, 10, 1_000, 1),
+                new Bar(1_001_000, 120, 120, 90, 90, 30, 3_300, 2));
+    }
+
+    @Test
+    void readers_never_see_a_partially_written_trade_or_bar() throws InterruptedException {
+        TradeTape tape = new TradeTape(true, 64, "1ms", 8, clock::get);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= 2_000_000; i++) {
+                clock.incrementAndGet();
+                tape.record("ABC", i, i, i, -i);
+            }
+            done.set(true);
+        });
+        writer.start();
+        while (!done.get()) {
+            for (TapeTrade trade : tape.recentTrades("ABC", 64)) {
+                assertThat(trade.quantity()).isEqualTo(trade.price());
+                assertThat(trade.sellOrderId()).isEqualTo(-trade.buyOrderId());
+                assertThat(trade.buyOrderId()).isEqualTo(trade.sequence() + 1);
+            }
+            Bar bar = tape.currentBar("ABC", Duration.ofMillis(1));
+            if (bar != null)
+                assertThat(bar.notional()).isEqualTo((long) bar.open() * bar.open());
+            for (Bar recent : tape.recentBars("ABC", Duration.ofMillis(1), 8))
+                assertThat(recent.notional()).isEqualTo((long) recent.open() * recent.open());
+        }
+        writer.join();
+    }
+
+    @Test
+    void disabled_tape_records_nothing() {
+        TradeTape.DISABLED.record("ABC", 100, 10, 1, 2);
+        assertThat(TradeTape.DISABLED.recentTrades("ABC", 10)).isEmpty();
+    }
+}
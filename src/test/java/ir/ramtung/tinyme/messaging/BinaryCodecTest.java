@@ -0,0 +1,134 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.codec.BinaryCodec;
+import ir.ramtung.tinyme.messaging.codec.WireMessageConverter;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.BatchEnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class BinaryCodecTest {
+    private final BinaryCodec codec = new BinaryCodec();
+    private final LocalDateTime time = LocalDateTime.of(2024, 3, 1, 10, 30, 15, 123_456_789);
+
+    @SuppressWarnings("unchecked")
+    private <T> T roundTrip(T object) {
+        return (T) codec.decode(codec.encode(object));
+    }
+
+    @Test
+    void requests_survive_a_round_trip() {
+        EnterOrderRq enterOrderRq = EnterOrderRq.createNewOrderRq(1, "ABC", 2, time, Side.SELL, 300, 15450, 3, 4, 50, 10, 15000);
+        DeleteOrderRq deleteOrderRq = new DeleteOrderRq(5, "ABC", Side.BUY, 6);
+        ChangeMatchingStateRq changeMatchingStateRq = new ChangeMatchingStateRq("ABC", MatchingState.AUCTION);
+        BatchEnterOrderRq batchEnterOrderRq = BatchEnterOrderRq.of(List.of(enterOrderRq,
+                EnterOrderRq.createUpdateOrderRq(7, "ABC", 2, time, Side.SELL, 200, 15400, 3, 4, 0)));
+
+        assertThat(roundTrip(enterOrderRq)).isEqualTo(enterOrderRq);
+        assertThat(roundTrip(deleteOrderRq)).isEqualTo(deleteOrderRq);
+        assertThat(roundTrip(changeMatchingStateRq)).isEqualTo(changeMatchingStateRq);
+        assertThat(roundTrip(batchEnterOrderRq)).isEqualTo(batchEnterOrderRq);
+        assertThat(roundTrip(MassCancelRq.byBroker(8, 3))).isEqualTo(MassCancelRq.byBroker(8, 3));
+        assertThat(roundTrip(new MassCancelRq(9, "ABC", null, 4L, Side.SELL))).isEqualTo(new MassCancelRq(9, "ABC", null, 4L, Side.SELL));
+    }
+
+    @Test
+    void events_survive_a_round_trip_with_their_time() {
+        List<Event> events = List.of(
+                new OpeningPriceEvent("ABC", 15450, 300),
+                new OrderAcceptedEvent(1, 2),
+                new OrderActivatedEvent(1, 2),
+                new OrderDeletedEvent(1, 2),
+                new OrderUpdatedEvent(1, 2),
+                new OrderExecutedEvent(1, 2, List.of(new TradeDTO("ABC", 15450, 100, 7, 8), new TradeDTO("ABC", 15500, 50, 7, 9))),
+                new OrderRejectedEvent(1, 2, List.of(Message.INVALID_ORDER_ID, Message.UNKNOWN_BROKER_ID)),
+                new SecurityStateChangedEvent(time, "ABC", MatchingState.CONTINUOUS),
+                new TradeEvent("ABC", 15450, 100, 7, 8),
+                new TopOfBookEvent("ABC", 15400, 300, 2, 15450, 100, 1),
+                new MassCancelCompletedEvent(9, 0),
+                new MarketDepthUpdateEvent("ABC", 7, List.of(
+                        new LevelUpdate(LevelAction.ADD, Side.BUY, 15400, 300, 2),
+                        new LevelUpdate(LevelAction.DELETE, Side.SELL, 15450, 0, 0))),
+                new MarketDepthSnapshotEvent("ABC", 8, List.of(new LevelUpdate(LevelAction.CHANGE, Side.SELL, 15500, 120, 3)))
+        );
+        for (Event event : events) {
+            event.setTime(time);
+            Event decoded = roundTrip(event);
+            assertThat(decoded).isEqualTo(event);
+            assertThat(decoded.getTime()).isEqualTo(time);
+        }
+    }
+
+    @Test
+    void null_fields_are_preserved() {
+        EnterOrderRq enterOrderRq = new EnterOrderRq();
+        OrderRejectedEvent rejectedEvent = new OrderRejectedEvent(1, 2, null);
+
+        assertThat(roundTrip(enterOrderRq)).isEqualTo(enterOrderRq);
+        assertThat(roundTrip(rejectedEvent).getErrors()).isNull();
+        assertThat(roundTrip(new MarketDepthSnapshotEvent("ABC", 1, null)).getLevels()).isNull();
+    }
+
+    @Test
+    void binary_messages_are_much_smaller_than_json() throws Exception {
+        EnterOrderRq enterOrderRq = EnterOrderRq.createNewOrderRq(1, "ABC", 2, time, Side.SELL, 300, 15450, 3, 4, 0);
+        int jsonSize = new com.fasterxml.jackson.databind.ObjectMapper().findAndRegisterModules().writeValueAsBytes(enterOrderRq).length;
+        assertThat(codec.encode(enterOrderRq).length).isLessThan(jsonSize / 2);
+    }
+
+    @Test
+    void unknown_types_and_versions_are_rejected() {
+        assertThat(codec.supports(String.class)).isFalse();
+        assertThatThrownBy(() -> codec.encode("not a message")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> codec.decode(new byte[]{99, 1})).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void truncated_frames_with_huge_counts_are_rejected() {
+        byte[] batch = codec.encode(new BatchEnterOrderRq("ABC", 1, 2, List.of()));
+        byte[] rejected = codec.encode(new OrderRejectedEvent(1, 2, List.of()));
+        for (byte[] frame : List.of(batch, rejected)) {
+            frame[frame.length - 4] = 0x7f;
+            frame[frame.length - 3] = (byte) 0xff;
+            frame[frame.length - 2] = (byte) 0xff;
+            frame[frame.length - 1] = (byte) 0xff;
+            assertThatThrownBy(() -> codec.decode(frame)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void converter_uses_binary_only_for_binary_queues() throws Exception {
+        MessageConverter jsonConverter = mock(MessageConverter.class);
+        WireMessageConverter converter = new WireMessageConverter(jsonConverter, codec, Set.of("RS"));
+        Session session = mock(Session.class);
+        BytesMessage bytesMessage = mock(BytesMessage.class);
+        when(session.createBytesMessage()).thenReturn(bytesMessage);
+        OrderAcceptedEvent event = new OrderAcceptedEvent(1, 2);
+
+        assertThat(converter.toMessage(event, session, "RS")).isSameAs(bytesMessage);
+        verify(bytesMessage).writeBytes(any(byte[].class));
+        verify(bytesMessage).setStringProperty(WireMessageConverter.TYPE_PROPERTY, OrderAcceptedEvent.class.getName());
+
+        converter.toMessage(event, session, "OTHER");
+        converter.toMessage("not a message", session, "RS");
+        verify(jsonConverter).toMessage(event, session);
+        verify(jsonConverter).toMessage("not a message", session);
+    }
+}
@@ -0,0 +1,136 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderDeletedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventBatcherTest {
+    private final BlockingQueue<List<Event>> batches = new LinkedBlockingQueue<>();
+    private EventBatcher batcher;
+
+    private void start(int maxBatchSize, long maxLatencyMillis) {
+        batcher = new EventBatcher(batch -> batches.add(List.copyOf(batch)), maxBatchSize, maxLatencyMillis);
+        batcher.start();
+    }
+
+    @AfterEach
+    void teardown() throws InterruptedException {
+        batcher.stop();
+    }
+
+    private static Event event(long requestId) {
+        return new OrderDeletedEvent(requestId, requestId);
+    }
+
+    @Test
+    void full_batches_are_sent_without_waiting_for_the_latency_threshold() throws InterruptedException {
+        start(3, 60_000);
+        for (int i = 1; i <= 6; i++)
+            batcher.add(event(i));
+
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).containsExactly(event(1), event(2), event(3));
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).containsExactly(event(4), event(5), event(6));
+    }
+
+    @Test
+    void partial_batch_is_sent_once_the_latency_threshold_passes() throws InterruptedException {
+        start(100, 20);
+        batcher.add(event(1));
+        batcher.add(event(2));
+
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).containsExactly(event(1), event(2));
+    }
+
+    @Test
+    void flush_closes_the_batch_of_a_request() throws InterruptedException {
+        start(100, 60_000);
+        batcher.add(event(1));
+        batcher.add(event(2));
+        batcher.flush();
+        batcher.add(event(3));
+        batcher.flush();
+
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).containsExactly(event(1), event(2));
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).containsExactly(event(3));
+    }
+
+    @Test
+    void events_keep_their_order_across_batches_and_stop_drains_the_rest() throws InterruptedException {
+        start(7, 60_000);
+        for (int i = 1; i <= 100; i++)
+            batcher.add(event(i));
+        batcher.stop();
+
+        List<Event> delivered = new ArrayList<>();
+        batches.forEach(delivered::addAll);
+        List<Event> expected = new ArrayList<>();
+        for (int i = 1; i <= 100; i++)
+            expected.add(event(i));
+        assertThat(delivered).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void a_request_unit_is_never_split_across_batches() throws InterruptedException {
+        start(4, 60_000);
+        batcher.add(event(1));
+        batcher.add(event(2));
+        batcher.addAll(List.of(event(3), event(4), event(5)));
+        batcher.addAll(List.of(event(6), event(7), event(8), event(9), event(10)));
+        batcher.flush();
+
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).containsExactly(event(1), event(2));
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).containsExactly(event(3), event(4), event(5));
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).containsExactly(event(6), event(7), event(8), event(9), event(10));
+    }
+
+    @Test
+    void units_added_from_several_threads_stay_contiguous() throws InterruptedException {
+        start(5, 1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long base = t * 999L;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    batcher.addAll(List.of(event(base + i * 3), event(base + i * 3 + 1), event(base + i * 3 + 2)));
+                    batcher.flush();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        batcher.stop();
+
+        List<Event> delivered = new ArrayList<>();
+        batches.forEach(delivered::addAll);
+        assertThat(delivered).hasSize(1_200);
+        for (int i = 0; i < delivered.size(); i += 3) {
+            long first = ((OrderDeletedEvent) delivered.get(i)).getRequestId();
+            assertThat(first % 3).isZero();
+            assertThat(delivered.subList(i, i + 3)).containsExactly(event(first), event(first + 1), event(first + 2));
+        }
+    }
+
+    @Test
+    void batches_the_sink_refuses_are_counted_as_dropped() throws InterruptedException {
+        batcher = new EventBatcher(batch -> {
+            throw new IllegalStateException("broker unavailable");
+        }, 10, 60_000);
+        batcher.start();
+        batcher.addAll(List.of(event(1), event(2)));
+        batcher.flush();
+        batcher.stop();
+
+        assertThat(batcher.droppedEvents()).isEqualTo(2);
+    }
+}
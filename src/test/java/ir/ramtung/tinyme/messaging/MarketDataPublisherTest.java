@@ -0,0 +1,151 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.MarketDepthSnapshotEvent;
+import ir.ramtung.tinyme.messaging.event.MarketDepthUpdateEvent;
+import ir.ramtung.tinyme.messaging.event.TopOfBookEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class MarketDataPublisherTest {
+    private EventPublisher eventPublisher;
+    private MarketDataPublisher marketDataPublisher;
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+
+    @BeforeEach
+    void setup() {
+        eventPublisher = mock(EventPublisher.class);
+        security = Security.builder().isin("ABC").build();
+        broker = Broker.builder().brokerId(1).credit(100_000_000).build();
+        shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, 100_000);
+    }
+
+    @AfterEach
+    void teardown() {
+        marketDataPublisher.stop();
+    }
+
+    private void start(long conflationMillis) {
+        marketDataPublisher = new MarketDataPublisher(eventPublisher, true, false, "MD", conflationMillis);
+        marketDataPublisher.start();
+    }
+
+    private Order enqueue(long orderId, Side side, int quantity, int price) {
+        Order order = new Order(orderId, security, side, quantity, price, broker, shareholder);
+        security.getOrderBook().enqueue(order);
+        return order;
+    }
+
+    private List<Event> sent(int count) {
+        ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+        verify(eventPublisher, timeout(5000).times(count)).publishToTopic(eq("MD"), captor.capture());
+        return captor.getAllValues();
+    }
+
+    @Test
+    void levels_are_added_changed_and_deleted_with_increasing_sequence_numbers() {
+        start(0);
+        enqueue(1, Side.BUY, 100, 15000);
+        marketDataPublisher.onBookChanged(security);
+        Order second = enqueue(2, Side.BUY, 50, 15000);
+        marketDataPublisher.onBookChanged(security);
+        security.getOrderBook().removeByOrderId(Side.BUY, 1);
+        security.getOrderBook().removeByOrderId(Side.BUY, second.getOrderId());
+        marketDataPublisher.onBookChanged(security);
+
+        assertThat(sent(3)).containsExactly(
+                new MarketDepthUpdateEvent("ABC", 1, List.of(new LevelUpdate(LevelAction.ADD, Side.BUY, 15000, 100, 1))),
+                new MarketDepthUpdateEvent("ABC", 2, List.of(new LevelUpdate(LevelAction.CHANGE, Side.BUY, 15000, 150, 2))),
+                new MarketDepthUpdateEvent("ABC", 3, List.of(new LevelUpdate(LevelAction.DELETE, Side.BUY, 15000, 0, 0))));
+    }
+
+    @Test
+    void levels_queued_before_the_first_update_are_published_as_additions() {
+        start(0);
+        enqueue(1, Side.SELL, 100, 15100);
+        enqueue(2, Side.SELL, 100, 15200);
+        marketDataPublisher.onBookChanged(security);
+
+        MarketDepthUpdateEvent update = (MarketDepthUpdateEvent) sent(1).get(0);
+        assertThat(update.getUpdates()).containsExactlyInAnyOrder(
+                new LevelUpdate(LevelAction.ADD, Side.SELL, 15100, 100, 1),
+                new LevelUpdate(LevelAction.ADD, Side.SELL, 15200, 100, 1));
+    }
+
+    @Test
+    void bursts_within_the_conflation_window_are_published_as_one_update() {
+        start(200);
+        enqueue(1, Side.BUY, 100, 15000);
+        marketDataPublisher.onBookChanged(security);
+        enqueue(2, Side.BUY, 100, 15000);
+        marketDataPublisher.onBookChanged(security);
+        enqueue(3, Side.BUY, 100, 15000);
+        marketDataPublisher.onBookChanged(security);
+        enqueue(4, Side.SELL, 100, 15100);
+        security.getOrderBook().removeByOrderId(Side.SELL, 4);
+        marketDataPublisher.onBookChanged(security);
+
+        assertThat(sent(2)).containsExactly(
+                new MarketDepthUpdateEvent("ABC", 1, List.of(new LevelUpdate(LevelAction.ADD, Side.BUY, 15000, 100, 1))),
+                new MarketDepthUpdateEvent("ABC", 2, List.of(new LevelUpdate(LevelAction.CHANGE, Side.BUY, 15000, 300, 3))));
+    }
+
+    @Test
+    void snapshot_carries_every_level_best_first_with_the_latest_sequence_number() {
+        start(60_000);
+        enqueue(1, Side.BUY, 100, 15000);
+        marketDataPublisher.onBookChanged(security);
+        enqueue(2, Side.BUY, 100, 14900);
+        enqueue(3, Side.SELL, 100, 15200);
+        enqueue(4, Side.SELL, 100, 15100);
+        marketDataPublisher.onBookChanged(security);
+
+        marketDataPublisher.publishSnapshot(security);
+
+        List<Event> sent = sent(3);
+        assertThat(((MarketDepthUpdateEvent) sent.get(1)).getSequence()).isEqualTo(2);
+        assertThat(sent.get(2)).isEqualTo(new MarketDepthSnapshotEvent("ABC", 2, List.of(
+                new LevelUpdate(LevelAction.ADD, Side.BUY, 15000, 100, 1),
+                new LevelUpdate(LevelAction.ADD, Side.BUY, 14900, 100, 1),
+                new LevelUpdate(LevelAction.ADD, Side.SELL, 15100, 100, 1),
+                new LevelUpdate(LevelAction.ADD, Side.SELL, 15200, 100, 1))));
+    }
+
+    @Test
+    void top_of_book_is_published_only_when_the_best_levels_change() {
+        marketDataPublisher = new MarketDataPublisher(eventPublisher, false, true, "MD", 0);
+        enqueue(1, Side.BUY, 100, 15000);
+        marketDataPublisher.onBookChanged(security);
+        enqueue(2, Side.BUY, 100, 14900);
+        marketDataPublisher.onBookChanged(security);
+        enqueue(3, Side.SELL, 50, 15100);
+        marketDataPublisher.onBookChanged(security);
+
+        assertThat(sent(2)).containsExactly(
+                new TopOfBookEvent("ABC", 15000, 100, 1, 0, 0, 0),
+                new TopOfBookEvent("ABC", 15000, 100, 1, 15100, 50, 1));
+    }
+
+    @Test
+    void disabled_publisher_sends_nothing() {
+        marketDataPublisher = new MarketDataPublisher(eventPublisher, false, false, "MD", 0);
+        enqueue(1, Side.BUY, 100, 15000);
+        marketDataPublisher.onBookChanged(security);
+        marketDataPublisher.publishSnapshot(security);
+
+        verify(eventPublisher, never()).publishToTopic(any(), any());
+    }
+}
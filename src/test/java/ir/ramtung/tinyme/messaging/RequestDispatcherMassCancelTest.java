@@ -0,0 +1,60 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.domain.service.SecurityShards;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.MassCancelCompletedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class RequestDispatcherMassCancelTest {
+    private OrderHandler orderHandler;
+    private EventPublisher eventPublisher;
+    private SecurityShards securityShards;
+    private RequestDispatcher requestDispatcher;
+
+    @BeforeEach
+    void setup() {
+        orderHandler = mock(OrderHandler.class);
+        eventPublisher = mock(EventPublisher.class);
+        securityShards = new SecurityShards(3);
+        requestDispatcher = new RequestDispatcher(orderHandler, securityShards, eventPublisher);
+        when(orderHandler.validateMassCancel(any())).thenReturn(true);
+    }
+
+    @AfterEach
+    void teardown() throws InterruptedException {
+        securityShards.shutdown();
+    }
+
+    @Test
+    void a_failing_shard_still_completes_the_mass_cancel_and_reports_the_failure() {
+        String failingIsin = "ABC";
+        when(orderHandler.cancelOrdersOnShard(any(), any())).thenAnswer(invocation -> {
+            Predicate<String> ownsSecurity = invocation.getArgument(1);
+            if (ownsSecurity.test(failingIsin))
+                throw new IllegalStateException("book is corrupt");
+            return 2;
+        });
+
+        requestDispatcher.receiveMassCancelRq(MassCancelRq.byBroker(9, 1));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Event>> captor = ArgumentCaptor.forClass(List.class);
+        verify(eventPublisher, timeout(5000)).sendAll(captor.capture());
+        assertThat(captor.getValue()).containsExactly(
+                new OrderRejectedEvent(9, 0, List.of(Message.MASS_CANCEL_INCOMPLETE)),
+                new MassCancelCompletedEvent(9, 4));
+    }
+}
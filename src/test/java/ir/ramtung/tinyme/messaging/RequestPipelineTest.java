@@ -0,0 +1,120 @@
+package ir.ramtung.tinyme.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.domain.service.OrderValidator;
+import ir.ramtung.tinyme.domain.service.SecurityShards;
+import ir.ramtung.tinyme.messaging.event.MassCancelCompletedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
+import ir.ramtung.tinyme.messaging.pipeline.RequestPipeline;
+import ir.ramtung.tinyme.messaging.request.BatchEnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MassCancelRq;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class RequestPipelineTest {
+    private OrderHandler orderHandler;
+    private OrderValidator orderValidator;
+    private EventPublisher eventPublisher;
+    private SecurityShards securityShards;
+    private RequestPipeline requestPipeline;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @BeforeEach
+    void setup() {
+        orderHandler = mock(OrderHandler.class);
+        orderValidator = mock(OrderValidator.class);
+        eventPublisher = mock(EventPublisher.class);
+        securityShards = new SecurityShards(2);
+        requestPipeline = new RequestPipeline(orderHandler, orderValidator, eventPublisher, securityShards, objectMapper, 8);
+        requestPipeline.start();
+    }
+
+    @AfterEach
+    void teardown() throws InterruptedException {
+        requestPipeline.stop();
+        securityShards.shutdown();
+    }
+
+    private void submit(Object request) throws Exception {
+        requestPipeline.submit(request.getClass().getName(), objectMapper.writeValueAsString(request));
+    }
+
+    @Test
+    void requests_reach_the_handler_decoded_and_in_order_across_ring_wraparound() throws Exception {
+        for (int i = 1; i <= 100; i++)
+            submit(EnterOrderRq.createNewOrderRq(i, "ABC", i, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0));
+
+        ArgumentCaptor<EnterOrderRq> captor = ArgumentCaptor.forClass(EnterOrderRq.class);
+        verify(orderHandler, timeout(5000).times(100)).handleValidatedEnterOrder(captor.capture());
+        List<Long> requestIds = captor.getAllValues().stream().map(EnterOrderRq::getRequestId).toList();
+        assertThat(requestIds).isSorted().hasSize(100);
+        assertThat(captor.getAllValues().get(0).getSecurityIsin()).isEqualTo("ABC");
+    }
+
+    @Test
+    void invalid_requests_are_rejected_without_reaching_the_handler() throws Exception {
+        doThrow(new InvalidRequestException(Message.INVALID_ORDER_ID)).when(orderValidator).validateDeleteOrderRq(any());
+
+        submit(new DeleteOrderRq(7, "ABC", Side.SELL, -1));
+
+        verify(eventPublisher, timeout(5000)).send(new OrderRejectedEvent(7, -1, List.of(Message.INVALID_ORDER_ID)));
+        verify(orderHandler, never()).handleValidatedDeleteOrder(any());
+    }
+
+    @Test
+    void batch_without_orders_is_rejected_without_reaching_the_handler() throws Exception {
+        doThrow(new InvalidRequestException(Message.BATCH_HAS_NO_ORDERS)).when(orderValidator).validateBatchEnterOrderRq(any());
+
+        submit(new BatchEnterOrderRq("ABC", 1, 1, null));
+
+        verify(eventPublisher, timeout(5000)).sendAll(List.of(new OrderRejectedEvent(0, 0, List.of(Message.BATCH_HAS_NO_ORDERS))));
+        verify(orderHandler, never()).handleBatchEnterOrder(any());
+    }
+
+    @Test
+    void a_mass_cancel_that_fails_on_one_shard_is_still_completed_and_reported() throws Exception {
+        when(orderHandler.cancelOrdersOnShard(any(), any())).thenAnswer(invocation -> {
+            Predicate<String> ownsSecurity = invocation.getArgument(1);
+            if (ownsSecurity.test("ABC"))
+                throw new IllegalStateException("book is corrupt");
+            return 3;
+        });
+
+        submit(MassCancelRq.byBroker(9, 1));
+
+        InOrder inOrder = inOrder(eventPublisher);
+        inOrder.verify(eventPublisher, timeout(5000)).send(new OrderRejectedEvent(9, 0, List.of(Message.MASS_CANCEL_INCOMPLETE)));
+        inOrder.verify(eventPublisher, timeout(5000)).send(new MassCancelCompletedEvent(9, 3));
+    }
+
+    @Test
+    void events_raised_while_matching_are_sent_by_the_publish_stage() throws Exception {
+        doAnswer(invocation -> {
+            List<?> events = invocation.getArgument(0);
+            assertThat(Thread.currentThread().getName()).startsWith("request-pipeline-match-");
+            assertThat(events).isEmpty();
+            return null;
+        }).when(eventPublisher).captureInto(any());
+
+        submit(EnterOrderRq.createNewOrderRq(1, "ABC", 1, LocalDateTime.now(), Side.BUY, 10, 100, 1, 1, 0));
+
+        verify(orderHandler, timeout(5000)).handleValidatedEnterOrder(any());
+        verify(eventPublisher, timeout(5000)).stopCapturing();
+    }
+}
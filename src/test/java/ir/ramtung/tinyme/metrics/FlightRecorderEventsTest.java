@@ -0,0 +1,113 @@
+package ir.ramtung.tinyme.metrics;
+
+import ir.ramtung.tinyme.config.MockedJMSTestConfig;
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.metrics.jfr.BookSizeEvent;
+import ir.ramtung.tinyme.metrics.jfr.MatchExecutedEvent;
+import ir.ramtung.tinyme.metrics.jfr.RequestReceivedEvent;
+import ir.ramtung.tinyme.metrics.jfr.ValidationFailedEvent;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(MockedJMSTestConfig.class)
+@DirtiesContext
+public class FlightRecorderEventsTest {
+    @Autowired
+    OrderHandler orderHandler;
+    @Autowired
+    SecurityRepository securityRepository;
+    @Autowired
+    BrokerRepository brokerRepository;
+    @Autowired
+    ShareholderRepository shareholderRepository;
+    @TempDir
+    Path tempDir;
+    private Security security;
+    private Shareholder shareholder;
+    private Broker broker;
+
+    @BeforeEach
+    void setup() {
+        securityRepository.clear();
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        security = Security.builder().isin("ABC").build();
+        securityRepository.addSecurity(security);
+        shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, 100_000);
+        shareholderRepository.addShareholder(shareholder);
+        broker = Broker.builder().brokerId(1).credit(100_000_000).build();
+        brokerRepository.addBroker(broker);
+    }
+
+    private List<RecordedEvent> record(Runnable activity) throws IOException {
+        Path file = tempDir.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            for (Class<? extends Event> type : List.of(RequestReceivedEvent.class, ValidationFailedEvent.class, MatchExecutedEvent.class, BookSizeEvent.class))
+                recording.enable(type).withoutThreshold();
+            recording.start();
+            activity.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals("ir.ramtung.tinyme." + name)).toList();
+    }
+
+    @Test
+    void match_across_two_levels_is_recorded_with_its_trades_and_book_size() throws IOException {
+        security.getOrderBook().enqueue(new Order(1, security, Side.SELL, 100, 15000, broker, shareholder));
+        security.getOrderBook().enqueue(new Order(2, security, Side.SELL, 100, 15100, broker, shareholder));
+        security.getOrderBook().enqueue(new Order(3, security, Side.SELL, 100, 15200, broker, shareholder));
+
+        List<RecordedEvent> events = record(() -> orderHandler.handleEnterOrder(
+                EnterOrderRq.createNewOrderRq(10, "ABC", 20, LocalDateTime.now(), Side.BUY, 150, 15100, 1, 1, 0)));
+
+        assertThat(named(events, "RequestReceived")).singleElement()
+                .satisfies(event -> assertThat(event.getLong("orderId")).isEqualTo(20));
+        assertThat(named(events, "MatchExecuted")).singleElement().satisfies(event -> {
+            assertThat(event.getInt("tradeCount")).isEqualTo(2);
+            assertThat(event.getInt("levelsTouched")).isEqualTo(2);
+            assertThat(event.getLong("executedQuantity")).isEqualTo(150);
+        });
+        assertThat(named(events, "BookSize")).singleElement().satisfies(event -> {
+            assertThat(event.getInt("buyOrders")).isZero();
+            assertThat(event.getInt("sellOrders")).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void rejected_request_is_recorded_with_its_reasons() throws IOException {
+        List<RecordedEvent> events = record(() -> orderHandler.handleEnterOrder(
+                EnterOrderRq.createNewOrderRq(11, "XYZ", 21, LocalDateTime.now(), Side.BUY, 150, 15100, 1, 1, 0)));
+
+        assertThat(named(events, "ValidationFailed")).singleElement()
+                .satisfies(event -> assertThat(event.getString("reasons")).contains("Unknown security ISIN"));
+        assertThat(named(events, "MatchExecuted")).isEmpty();
+    }
+}
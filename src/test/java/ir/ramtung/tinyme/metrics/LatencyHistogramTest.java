@@ -0,0 +1,84 @@
+package ir.ramtung.tinyme.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class LatencyHistogramTest {
+    @Test
+    void bucket_lower_bounds_stay_within_one_percent_of_the_recorded_value() {
+        for (long value = 1; value < 1L << 40; value += 1 + value / 7) {
+            long lowest = LatencyHistogram.lowestValueAt(LatencyHistogram.indexOf(value));
+            assertThat(lowest).isLessThanOrEqualTo(value);
+            assertThat((double) value - lowest).isLessThanOrEqualTo(value / 64.0);
+        }
+    }
+
+    @Test
+    void percentiles_are_read_from_the_recorded_distribution() {
+        LatencyHistogram histogram = new LatencyHistogram(1);
+        for (int value = 1; value <= 10_000; value++)
+            histogram.record(value);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot(false);
+        assertThat(snapshot.count()).isEqualTo(10_000);
+        assertThat((double) snapshot.percentile(0.50)).isCloseTo(5_000, within(80.0));
+        assertThat((double) snapshot.percentile(0.99)).isCloseTo(9_900, within(160.0));
+        assertThat((double) snapshot.max()).isCloseTo(10_000, within(160.0));
+    }
+
+    @Test
+    void resetting_snapshot_clears_the_histogram() {
+        LatencyHistogram histogram = new LatencyHistogram(1);
+        histogram.record(42);
+
+        assertThat(histogram.snapshot(true).count()).isEqualTo(1);
+        assertThat(histogram.snapshot(false).count()).isZero();
+    }
+
+    @Test
+    void recorder_times_only_every_nth_request_of_a_stage() {
+        LatencyRecorder recorder = new LatencyRecorder(true, 4);
+        for (int i = 0; i < 16; i++)
+            recorder.stop(Stage.MATCHING, recorder.start(Stage.MATCHING));
+
+        assertThat(recorder.snapshot(Stage.MATCHING, false).count()).isEqualTo(4);
+        assertThat(recorder.snapshot(Stage.PUBLISH, false).count()).isZero();
+    }
+
+    @Test
+    void every_thread_samples_exactly_every_nth_request() throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder(true, 4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++)
+                    recorder.stop(Stage.MATCHING, recorder.start(Stage.MATCHING));
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertThat(recorder.snapshot(Stage.MATCHING, false).count()).isEqualTo(4 * 10_000 / 4);
+    }
+
+    @Test
+    void disabled_recorder_records_nothing() {
+        LatencyRecorder recorder = LatencyRecorder.DISABLED;
+        recorder.stop(Stage.REQUEST, recorder.start(Stage.REQUEST));
+
+        assertThat(recorder.snapshot(Stage.REQUEST, false).count()).isZero();
+    }
+
+    @Test
+    void sampling_interval_must_be_a_power_of_two() {
+        assertThatThrownBy(() -> new LatencyRecorder(true, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,40 @@
+package ir.ramtung.tinyme.metrics;
+
+import ir.ramtung.tinyme.config.MockedJMSTestConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.jmx.enabled=true",
+        "latencyMetrics.enabled=true",
+        "latencyMetrics.sampleEvery=1",
+        "latencyMetrics.exportIntervalSeconds=0"
+})
+@Import(MockedJMSTestConfig.class)
+@DirtiesContext
+public class LatencyReporterTest {
+    @Autowired
+    LatencyRecorder latencyRecorder;
+
+    @Test
+    void histograms_can_be_reported_and_reset_through_jmx() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("ir.ramtung.tinyme:name=latency");
+        latencyRecorder.stop(Stage.MATCHING, latencyRecorder.start(Stage.MATCHING));
+
+        String report = (String) mBeanServer.invoke(name, "report", null, null);
+        mBeanServer.invoke(name, "reset", null, null);
+
+        assertThat(report).contains("MATCHING     count=1");
+        assertThat(latencyRecorder.snapshot(Stage.MATCHING, false).count()).isZero();
+    }
+}
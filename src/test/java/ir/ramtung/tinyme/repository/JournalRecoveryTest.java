@@ -0,0 +1,141 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.config.MockedJMSTestConfig;
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.ChangeMatchStateHandler;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.domain.service.SecurityShards;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.MarketDataPublisher;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {
+        "shardCount=4",
+        "journal.enabled=true",
+        "journal.path=target/journal-recovery-test/requests.journal",
+        "journal.durability=NONE"
+})
+@Import(MockedJMSTestConfig.class)
+@DirtiesContext
+public class JournalRecoveryTest {
+    private static final LocalDateTime time = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @Autowired
+    OrderHandler orderHandler;
+    @Autowired
+    ChangeMatchStateHandler changeMatchStateHandler;
+    @Autowired
+    EventPublisher eventPublisher;
+    @Autowired
+    SecurityShards securityShards;
+    @Autowired
+    RequestJournal requestJournal;
+    @Autowired
+    SecurityRepository securityRepository;
+    @Autowired
+    BrokerRepository brokerRepository;
+    @Autowired
+    ShareholderRepository shareholderRepository;
+    private String firstIsin;
+    private String secondIsin;
+
+    @BeforeEach
+    void setup() {
+        requestJournal.truncate();
+        firstIsin = "ABC";
+        secondIsin = "ABD";
+        while (securityShards.shardOf(secondIsin) == securityShards.shardOf(firstIsin))
+            secondIsin = secondIsin + "X";
+        resetState();
+    }
+
+    private void resetState() {
+        securityRepository.clear();
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        securityRepository.addSecurity(Security.builder().isin(firstIsin).build());
+        securityRepository.addSecurity(Security.builder().isin(secondIsin).build());
+        brokerRepository.addBroker(Broker.builder().brokerId(1).credit(1_000_000).build());
+        shareholderRepository.addShareholder(Shareholder.builder().shareholderId(1).build());
+    }
+
+    private List<String> state() {
+        List<String> state = new ArrayList<>();
+        Broker broker = brokerRepository.findBrokerById(1);
+        state.add("credit " + broker.getCredit() + " reserved " + broker.getReservedCredit());
+        for (String isin : List.of(firstIsin, secondIsin))
+            for (Order order : securityRepository.findSecurityByIsin(isin).getOrderBook().getBuyQueue())
+                state.add(isin + " " + order.getOrderId() + " " + order.getQuantity() + "@" + order.getPrice());
+        return state;
+    }
+
+    @Test
+    void replaying_a_journal_written_by_several_shards_rebuilds_the_same_state() throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i <= 600; i++) {
+            int price = 1000 + i % 7;
+            EnterOrderRq first = EnterOrderRq.createNewOrderRq(i, firstIsin, i, time, Side.BUY, 10, price, 1, 1, 0);
+            EnterOrderRq second = EnterOrderRq.createNewOrderRq(i, secondIsin, i, time, Side.BUY, 12, price, 1, 1, 0);
+            futures.add(securityShards.submit(firstIsin, () -> orderHandler.handleEnterOrder(first)));
+            futures.add(securityShards.submit(secondIsin, () -> orderHandler.handleEnterOrder(second)));
+            if (i > 3) {
+                DeleteOrderRq delete = new DeleteOrderRq(i, firstIsin, Side.BUY, i - 3);
+                futures.add(securityShards.submit(firstIsin, () -> orderHandler.handleDeleteOrder(delete)));
+            }
+        }
+        for (Future<?> future : futures)
+            future.get();
+        List<String> live = state();
+
+        resetState();
+        new JournalRecovery(requestJournal, orderHandler, changeMatchStateHandler, eventPublisher).afterSingletonsInstantiated();
+
+        assertThat(state()).containsExactlyElementsOf(live);
+    }
+
+    @Test
+    void replay_sends_nothing_to_the_market_data_topic() {
+        JmsTemplate jmsTemplate = mock(JmsTemplate.class);
+        EventPublisher livePublisher = new EventPublisher(jmsTemplate);
+        MarketDataPublisher marketDataPublisher = new MarketDataPublisher(livePublisher, true, true, "MD", 0);
+        Security security = securityRepository.findSecurityByIsin(firstIsin);
+        OrderHandler replayingHandler = mock(OrderHandler.class);
+        doAnswer(invocation -> {
+            EnterOrderRq rq = invocation.getArgument(0);
+            security.getOrderBook().enqueue(new Order(rq.getOrderId(), security, rq.getSide(), rq.getQuantity(), rq.getPrice(),
+                    brokerRepository.findBrokerById(1), shareholderRepository.findShareholderById(1)));
+            marketDataPublisher.onBookChanged(security);
+            return null;
+        }).when(replayingHandler).handleValidatedEnterOrder(any());
+        RequestJournal journal = mock(RequestJournal.class);
+        when(journal.isEnabled()).thenReturn(true);
+        doAnswer(invocation -> {
+            BiConsumer<Object, CreditDecisions> consumer = invocation.getArgument(0);
+            consumer.accept(EnterOrderRq.createNewOrderRq(1, firstIsin, 1, time, Side.BUY, 10, 1000, 1, 1, 0), CreditDecisions.NONE);
+            return null;
+        }).when(journal).replayWithCreditDecisions(any());
+
+        new JournalRecovery(journal, replayingHandler, changeMatchStateHandler, livePublisher).afterSingletonsInstantiated();
+
+        verify(replayingHandler).handleValidatedEnterOrder(any());
+        verifyNoInteractions(jmsTemplate);
+    }
+}
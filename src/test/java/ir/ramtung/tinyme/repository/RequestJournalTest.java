@@ -0,0 +1,142 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.request.ChangeMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import ir.ramtung.tinyme.repository.RequestJournal.Durability;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestJournalTest {
+    private static final LocalDateTime time = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @TempDir
+    Path directory;
+
+    private final List<Object> requests = List.of(
+            EnterOrderRq.createNewOrderRq(1, "ABC", 10, time, Side.BUY, 300, 15450, 1, 1, 0),
+            EnterOrderRq.createUpdateOrderRq(2, "ABC", 10, time, Side.BUY, 200, 15500, 1, 1, 0),
+            new ChangeMatchingStateRq("ABC", MatchingState.AUCTION),
+            new DeleteOrderRq(3, "ABC", Side.BUY, 10)
+    );
+
+    private RequestJournal open(Durability durability, int initialSize) throws Exception {
+        RequestJournal journal = new RequestJournal(true, directory.resolve("requests.journal").toString(), durability, initialSize, 1);
+        journal.open();
+        return journal;
+    }
+
+    private List<Object> replay(RequestJournal journal) {
+        List<Object> replayed = new ArrayList<>();
+        journal.replay(replayed::add);
+        return replayed;
+    }
+
+    @ParameterizedTest
+    @EnumSource(Durability.class)
+    void appended_requests_are_replayed_in_order_after_reopening(Durability durability) throws Exception {
+        RequestJournal journal = open(durability, 4096);
+        requests.forEach(journal::append);
+        journal.close();
+
+        RequestJournal reopened = open(durability, 4096);
+        assertThat(replay(reopened)).isEqualTo(requests);
+        reopened.close();
+    }
+
+    @Test
+    void appending_after_recovery_continues_the_journal() throws Exception {
+        RequestJournal journal = open(Durability.PER_REQUEST, 4096);
+        journal.append(requests.get(0));
+        journal.close();
+
+        RequestJournal reopened = open(Durability.PER_REQUEST, 4096);
+        replay(reopened);
+        requests.subList(1, 4).forEach(reopened::append);
+        reopened.close();
+
+        assertThat(replay(open(Durability.PER_REQUEST, 4096))).isEqualTo(requests);
+    }
+
+    @Test
+    void requests_appended_during_replay_are_not_journaled_again() throws Exception {
+        RequestJournal journal = open(Durability.PER_REQUEST, 4096);
+        requests.forEach(journal::append);
+        journal.replay(journal::append);
+        assertThat(replay(journal)).hasSize(requests.size());
+        journal.close();
+    }
+
+    @Test
+    void truncation_discards_requests_covered_by_a_snapshot() throws Exception {
+        RequestJournal journal = open(Durability.GROUP_COMMIT, 4096);
+        requests.forEach(journal::append);
+        journal.truncate();
+        journal.append(requests.get(3));
+        journal.close();
+
+        assertThat(replay(open(Durability.GROUP_COMMIT, 4096))).containsExactly(requests.get(3));
+    }
+
+    @Test
+    void a_torn_record_at_the_tail_ends_the_replay() throws Exception {
+        RequestJournal journal = open(Durability.PER_REQUEST, 4096);
+        journal.append(requests.get(0));
+        journal.append(requests.get(1));
+        journal.close();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("requests.journal").toFile(), "rw")) {
+            int firstLength = file.readInt();
+            file.seek(8 + firstLength + 8);
+            file.write(~file.read());
+        }
+
+        RequestJournal recovered = open(Durability.PER_REQUEST, 4096);
+        assertThat(replay(recovered)).containsExactly(requests.get(0));
+        recovered.append(requests.get(3));
+        recovered.close();
+        assertThat(replay(open(Durability.PER_REQUEST, 4096))).containsExactly(requests.get(0), requests.get(3));
+    }
+
+    @Test
+    void the_journal_grows_beyond_its_initial_mapping() throws Exception {
+        RequestJournal journal = open(Durability.GROUP_COMMIT, 64);
+        for (int i = 0; i < 50; i++)
+            requests.forEach(journal::append);
+        journal.close();
+
+        assertThat(replay(open(Durability.GROUP_COMMIT, 64))).hasSize(200);
+    }
+
+    @Test
+    void concurrent_appenders_share_group_commits() throws Exception {
+        RequestJournal journal = open(Durability.GROUP_COMMIT, 4096);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++)
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 250; i++)
+                    journal.append(requests.get(i % 4));
+            }));
+        for (Future<?> future : futures)
+            future.get();
+        executor.shutdown();
+        journal.close();
+
+        assertThat(replay(open(Durability.GROUP_COMMIT, 4096))).hasSize(1000);
+    }
+}
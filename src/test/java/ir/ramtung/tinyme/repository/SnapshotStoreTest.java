@@ -0,0 +1,115 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class SnapshotStoreTest {
+    @TempDir
+    Path directory;
+    private BrokerRepository brokerRepository;
+    private ShareholderRepository shareholderRepository;
+    private SecurityRepository securityRepository;
+    private SnapshotStore snapshotStore;
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+
+    @BeforeEach
+    void setup() {
+        brokerRepository = new BrokerRepository();
+        shareholderRepository = new ShareholderRepository();
+        securityRepository = new SecurityRepository();
+        snapshotStore = new SnapshotStore(brokerRepository, shareholderRepository, securityRepository,
+                true, directory.resolve("engine.snapshot").toString(), 2);
+
+        broker = Broker.builder().brokerId(1).name("first").credit(1_000_000).build();
+        brokerRepository.addBroker(broker);
+        shareholder = Shareholder.builder().shareholderId(2).name("holder").build();
+        shareholderRepository.addShareholder(shareholder);
+        security = Security.builder().isin("ABC").tickSize(5).lotSize(10).matchingState(MatchingState.AUCTION).latestPrice(15500).build();
+        securityRepository.addSecurity(security);
+        securityRepository.addSecurity(Security.builder().isin("XYZ").build());
+        shareholder.incPosition(security, 5000);
+    }
+
+    @Test
+    void brokers_shareholders_and_positions_survive_a_restore() throws Exception {
+        snapshotStore.write();
+        broker.decreaseCreditBy(1000);
+        snapshotStore.restore();
+
+        Broker restoredBroker = brokerRepository.findBrokerById(1);
+        Shareholder restoredShareholder = shareholderRepository.findShareholderById(2);
+        Security restoredSecurity = securityRepository.findSecurityByIsin("ABC");
+        assertThat(restoredBroker).isNotSameAs(broker);
+        assertThat(restoredBroker.getName()).isEqualTo("first");
+        assertThat(restoredBroker.getCredit()).isEqualTo(1_000_000);
+        assertThat(restoredShareholder.getName()).isEqualTo("holder");
+        assertThat(restoredShareholder.getPositions()).containsEntry(restoredSecurity, 5000);
+        assertThat(restoredSecurity.getTickSize()).isEqualTo(5);
+        assertThat(restoredSecurity.getLotSize()).isEqualTo(10);
+        assertThat(restoredSecurity.getMatchingState()).isEqualTo(MatchingState.AUCTION);
+        assertThat(restoredSecurity.getLatestPrice()).isEqualTo(15500);
+        assertThat(securityRepository.findSecurityByIsin("XYZ")).isNotNull();
+    }
+
+    @Test
+    void resting_orders_keep_their_queue_position_and_iceberg_state() throws Exception {
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 9, 0, 0, 500);
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.enqueue(new Order(1, security, Side.BUY, 300, 15700, broker, shareholder, time));
+        orderBook.enqueue(new Order(2, security, Side.BUY, 200, 15700, broker, shareholder, time.plusSeconds(1)));
+        orderBook.enqueue(new Order(3, security, Side.BUY, 100, 15800, broker, shareholder, time.plusSeconds(2)));
+        IcebergOrder iceberg = new IcebergOrder(4, security, Side.SELL, 1000, 15900, broker, shareholder, time, 300, OrderStatus.NEW);
+        orderBook.enqueue(iceberg);
+        orderBook.decreaseQuantity(iceberg, 120);
+        orderBook.enqueue(new Order(5, security, Side.SELL, 400, 15950, broker, shareholder, time));
+
+        snapshotStore.write();
+        snapshotStore.restore();
+
+        OrderBook restored = securityRepository.findSecurityByIsin("ABC").getOrderBook();
+        assertThat(restored.getBuyQueue()).extracting(Order::getOrderId, Order::getQuantity, Order::getPrice, Order::getEntryTime, Order::getStatus)
+                .containsExactly(
+                        tuple(3L, 100, 15800, time.plusSeconds(2), OrderStatus.QUEUED),
+                        tuple(1L, 300, 15700, time, OrderStatus.QUEUED),
+                        tuple(2L, 200, 15700, time.plusSeconds(1), OrderStatus.QUEUED));
+        assertThat(restored.getSellQueue()).extracting(Order::getOrderId).containsExactly(4L, 5L);
+        IcebergOrder restoredIceberg = (IcebergOrder) restored.findByOrderId(Side.SELL, 4);
+        assertThat(restoredIceberg.getPeakSize()).isEqualTo(300);
+        assertThat(restoredIceberg.getDisplayedQuantity()).isEqualTo(180);
+        assertThat(restoredIceberg.getTotalQuantity()).isEqualTo(880);
+        assertThat(restoredIceberg.getBroker()).isSameAs(brokerRepository.findBrokerById(1));
+        assertThat(restored.totalSellQuantityByShareholder(shareholderRepository.findShareholderById(2))).isEqualTo(1280);
+    }
+
+    @Test
+    void unactivated_stop_orders_are_restored_with_their_requests() throws Exception {
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 9, 0);
+        EnterOrderRq request = EnterOrderRq.createNewOrderRq(77, "ABC", 6, time, Side.BUY, 100, 16000, 1, 2, 0, 0, 15900);
+        Order stopOrder = new Order(6, security, Side.BUY, 100, 16000, broker, shareholder, time, OrderStatus.NEW, 0, false, 15900);
+        security.getStopOrderBook().add(stopOrder);
+        security.getRequestIDs().put(6L, request);
+
+        snapshotStore.write();
+        snapshotStore.restore();
+
+        Security restoredSecurity = securityRepository.findSecurityByIsin("ABC");
+        List<Order> stopOrders = restoredSecurity.getStopOrderBook().getOrders();
+        assertThat(stopOrders).extracting(Order::getOrderId, Order::getStopPrice, Order::getQuantity, Order::isActive)
+                .containsExactly(tuple(6L, 15900, 100, false));
+        assertThat(restoredSecurity.getRequestIDs().get(6L)).isEqualTo(request);
+        assertThat(restoredSecurity.getOrderBook().hasOrderOfType(Side.BUY)).isFalse();
+    }
+}